@@ -0,0 +1,139 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Parser;
+import com.aalanko.cli.parser.Schema;
+import com.aalanko.cli.parser.binding.Binder;
+import com.aalanko.cli.parser.binding.CliData;
+import com.aalanko.cli.parser.binding.CliFlag;
+import com.aalanko.cli.parser.binding.CliOption;
+
+/**
+ * Cost of binding a parse result with {@link Binder} compared to reading
+ * the same values by hand, by name and by index.
+ *
+ * @author Andreas Alanko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BindBenchmark {
+  /**
+   * The bound class.
+   */
+  public static class Config {
+    @CliOption(name = "--name")
+    String name;
+    @CliOption(name = "--count")
+    int count;
+    @CliOption(name = "--size")
+    long size;
+    @CliOption(name = "--ratio")
+    double ratio;
+    @CliOption(name = "--include")
+    List<String> includes;
+    @CliFlag(name = "--verbose")
+    boolean verbose;
+    @CliFlag(name = "--quiet")
+    boolean quiet;
+    @CliData
+    List<String> files;
+  }
+
+  private Binder<Config> binder;
+  private ParseResult result;
+  private int name;
+  private int count;
+  private int size;
+  private int ratio;
+  private int include;
+  private int verbose;
+  private int quiet;
+
+  @Setup
+  public void setUp() throws Exception {
+    binder = Binder.of(Config.class);
+    Schema schema = binder.getSchema();
+    result = Parser.parseArgs(schema, new String[] {
+        "--name", "app", "--count", "12", "--size", "5000000000", "--ratio", "0.25",
+        "--include", "a", "--include", "b", "--verbose", "file1", "file2" });
+    name = schema.optionIndex("--name");
+    count = schema.optionIndex("--count");
+    size = schema.optionIndex("--size");
+    ratio = schema.optionIndex("--ratio");
+    include = schema.optionIndex("--include");
+    verbose = schema.flagIndex("--verbose");
+    quiet = schema.flagIndex("--quiet");
+  }
+
+  @Benchmark
+  public Config binder() throws Exception {
+    return binder.bind(result);
+  }
+
+  @Benchmark
+  public Config handWrittenByName() throws Exception {
+    Config config = new Config();
+    if (result.isOptionSet("--name")) {
+      config.name = result.getOption("--name");
+    }
+    if (result.isOptionSet("--count")) {
+      config.count = result.getInt("--count");
+    }
+    if (result.isOptionSet("--size")) {
+      config.size = result.getLong("--size");
+    }
+    if (result.isOptionSet("--ratio")) {
+      config.ratio = result.getDouble("--ratio");
+    }
+    if (!result.getValues("--include").isEmpty()) {
+      config.includes = new ArrayList<String>(result.getValues("--include").asList());
+    }
+    config.verbose = result.getFlag("--verbose");
+    config.quiet = result.getFlag("--quiet");
+    config.files = new ArrayList<String>(result.getDataList());
+    return config;
+  }
+
+  @Benchmark
+  public Config handWrittenByIndex() throws Exception {
+    Config config = new Config();
+    if (result.isOptionSet(name)) {
+      config.name = result.getOption(name);
+    }
+    if (result.isOptionSet(count)) {
+      config.count = result.getInt(count);
+    }
+    if (result.isOptionSet(size)) {
+      config.size = result.getLong(size);
+    }
+    if (result.isOptionSet(ratio)) {
+      config.ratio = result.getDouble(ratio);
+    }
+    if (!result.getValues(include).isEmpty()) {
+      config.includes = new ArrayList<String>(result.getValues(include).asList());
+    }
+    config.verbose = result.getFlag(verbose);
+    config.quiet = result.getFlag(quiet);
+    config.files = new ArrayList<String>(result.getDataList());
+    return config;
+  }
+}
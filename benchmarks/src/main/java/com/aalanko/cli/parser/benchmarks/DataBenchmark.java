@@ -0,0 +1,61 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Parser;
+
+/**
+ * Cost of reading data values after a parse.
+ *
+ * @author Andreas Alanko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class DataBenchmark {
+  @Param({ "10", "1000", "100000" })
+  public int dataCount;
+
+  private Options options;
+  private ParseResult result;
+
+  @Setup
+  public void setUp() throws Exception {
+    String[] args = Fixtures.args(0, dataCount);
+    options = Parser.parseArgs(new Options(), args);
+    result = Parser.parseArgs(new Options().freeze(), args);
+  }
+
+  @Benchmark
+  public String[] optionsGetData() {
+    return options.getData();
+  }
+
+  @Benchmark
+  public String[] resultGetData() {
+    return result.getData();
+  }
+
+  @Benchmark
+  public List<String> resultGetDataList() {
+    return result.getDataList();
+  }
+}
@@ -0,0 +1,98 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Deterministic schemas and argument arrays for the benchmarks.
+ *
+ * @author Andreas Alanko
+ */
+final class Fixtures {
+  /** Seed for all generated input. */
+  static final long SEED = 0x5eed;
+
+  private Fixtures() {
+  }
+
+  /**
+   * Gets the name of an option.
+   */
+  static String optionName(int index) {
+    return "--option-" + index;
+  }
+
+  /**
+   * Gets the name of a flag.
+   */
+  static String flagName(int index) {
+    return "--flag-" + index;
+  }
+
+  /**
+   * Creates options with half of the names as options and half as flags.
+   *
+   * @param size     the total number of options and flags
+   * @param required if the options are required
+   * @return the options
+   */
+  static Options options(int size, boolean required) throws SimpleCliParserException {
+    Options options = new Options();
+    for (int i = 0; i < size / 2; i++) {
+      options.addOption(optionName(i), "default", required, "option " + i);
+    }
+    for (int i = 0; i < size - size / 2; i++) {
+      options.addFlag(flagName(i), "flag " + i);
+    }
+    return options;
+  }
+
+  /**
+   * Creates an argument array for options created by
+   * {@link #options(int, boolean)}. Roughly a quarter of the arguments are
+   * options with a value, a quarter are flags and the rest is data. Each
+   * option is used at most once.
+   *
+   * @param size   the schema size
+   * @param length the number of arguments
+   * @return the arguments
+   */
+  static String[] args(int size, int length) {
+    Random random = new Random(SEED);
+    List<String> args = new ArrayList<String>(length);
+    int optionCount = size / 2;
+    int flagCount = size - optionCount;
+    int nextOption = 0;
+
+    while (args.size() < length) {
+      int kind = random.nextInt(4);
+      if (kind == 0 && nextOption < optionCount && args.size() + 2 <= length) {
+        args.add(optionName(nextOption++));
+        args.add("value-" + random.nextInt(1000));
+      } else if (kind == 1 && flagCount > 0) {
+        args.add(flagName(random.nextInt(flagCount)));
+      } else {
+        args.add("/data/file-" + random.nextInt(100000) + ".txt");
+      }
+    }
+    return args.toArray(new String[args.size()]);
+  }
+
+  /**
+   * Joins arguments into a single command line.
+   */
+  static String commandLine(String[] args) {
+    StringBuilder line = new StringBuilder();
+    for (String arg : args) {
+      if (line.length() > 0) {
+        line.append(' ');
+      }
+      line.append(arg);
+    }
+    return line.toString();
+  }
+}
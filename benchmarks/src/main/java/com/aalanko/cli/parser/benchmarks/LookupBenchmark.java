@@ -0,0 +1,69 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Parser;
+
+/**
+ * Cost of reading values after a parse.
+ *
+ * @author Andreas Alanko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class LookupBenchmark {
+  @Param({ "10", "100", "1000" })
+  public int schemaSize;
+
+  private Options options;
+  private ParseResult result;
+  private String optionName;
+  private String flagName;
+
+  @Setup
+  public void setUp() throws Exception {
+    String[] args = Fixtures.args(schemaSize, 100);
+    options = Parser.parseArgs(Fixtures.options(schemaSize, false), args);
+    result = Parser.parseArgs(Fixtures.options(schemaSize, false).freeze(), args);
+    optionName = Fixtures.optionName(schemaSize / 4);
+    flagName = Fixtures.flagName(schemaSize / 4);
+  }
+
+  @Benchmark
+  public String optionsGetOption() throws Exception {
+    return options.getOption(optionName);
+  }
+
+  @Benchmark
+  public boolean optionsGetFlag() throws Exception {
+    return options.getFlag(flagName);
+  }
+
+  @Benchmark
+  public String resultGetOption() throws Exception {
+    return result.getOption(optionName);
+  }
+
+  @Benchmark
+  public boolean resultGetFlag() throws Exception {
+    return result.getFlag(flagName);
+  }
+}
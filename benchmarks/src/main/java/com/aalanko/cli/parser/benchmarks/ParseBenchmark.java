@@ -0,0 +1,69 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Parser;
+import com.aalanko.cli.parser.Schema;
+
+/**
+ * Parse cost across schema sizes and argument counts.
+ *
+ * @author Andreas Alanko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class ParseBenchmark {
+  @Param({ "10", "100", "1000" })
+  public int schemaSize;
+
+  @Param({ "10", "100", "10000" })
+  public int argCount;
+
+  private Schema schema;
+  private String[] args;
+  private String commandLine;
+
+  @Setup
+  public void setUp() throws Exception {
+    schema = Fixtures.options(schemaSize, false).freeze();
+    args = Fixtures.args(schemaSize, argCount);
+    commandLine = Fixtures.commandLine(args);
+  }
+
+  /**
+   * The original mutable path, which has to build its options for every
+   * parse.
+   */
+  @Benchmark
+  public Options legacyBuildAndParse() throws Exception {
+    return Parser.parseArgs(Fixtures.options(schemaSize, false), args);
+  }
+
+  @Benchmark
+  public ParseResult schemaArgs() throws Exception {
+    return Parser.parseArgs(schema, args);
+  }
+
+  @Benchmark
+  public ParseResult schemaCommandLine() throws Exception {
+    return Parser.parseArgs(schema, commandLine);
+  }
+}
@@ -0,0 +1,65 @@
+package com.aalanko.cli.parser.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+
+/**
+ * Cost of validating required options, when all are set and when half of
+ * them are missing.
+ *
+ * @author Andreas Alanko
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class RequiredBenchmark {
+  @Param({ "10", "100", "1000" })
+  public int schemaSize;
+
+  private Options complete;
+  private Options incomplete;
+
+  @Setup
+  public void setUp() throws Exception {
+    complete = Fixtures.options(schemaSize, true);
+    incomplete = Fixtures.options(schemaSize, true);
+    for (int i = 0; i < schemaSize / 2; i++) {
+      complete.setOption(Fixtures.optionName(i), "value");
+      if (i % 2 == 0) {
+        incomplete.setOption(Fixtures.optionName(i), "value");
+      }
+    }
+  }
+
+  @Benchmark
+  public void allSet() throws Exception {
+    complete.checkRequiredOptionsSet();
+  }
+
+  @Benchmark
+  public void halfMissing(Blackhole blackhole) {
+    try {
+      incomplete.checkRequiredOptionsSet();
+    } catch (MissingRequiredOptionException e) {
+      blackhole.consume(e);
+    }
+  }
+}
@@ -0,0 +1,65 @@
+package com.aalanko.cli.parser;
+
+/**
+ * Tokens of an already split command line argument array.
+ *
+ * @author Andreas Alanko
+ */
+final class ArgumentArray extends TokenSource {
+  /** The arguments. */
+  private String[] args;
+  /** Index of the current argument. */
+  private int index;
+
+  /**
+   * @param args the command line arguments
+   */
+  ArgumentArray(String[] args) {
+    reset(args);
+  }
+
+  /**
+   * Starts over with other arguments.
+   *
+   * @param args the command line arguments
+   */
+  void reset(String[] args) {
+    this.args = args;
+    index = -1;
+  }
+
+  @Override
+  boolean next() {
+    if (index + 1 < args.length) {
+      index++;
+      return true;
+    }
+    index = args.length;
+    return false;
+  }
+
+  @Override
+  CharSequence chars() {
+    return args[index];
+  }
+
+  @Override
+  int start() {
+    return 0;
+  }
+
+  @Override
+  int end() {
+    return args[index].length();
+  }
+
+  @Override
+  int resolve(Schema schema) {
+    return schema.resolve(args[index]);
+  }
+
+  @Override
+  String token() {
+    return args[index];
+  }
+}
@@ -0,0 +1,23 @@
+package com.aalanko.cli.parser;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Receives the outcome of each command parsed by a {@link BatchParser}.
+ *
+ * @author Andreas Alanko
+ */
+public interface BatchCallback {
+
+  /**
+   * Called once for every parsed command.
+   *
+   * Calls come from the worker threads of the batch parser, concurrently
+   * and in no particular order, so implementations must be thread safe.
+   *
+   * @param index  the position of the command in the input, starting at zero
+   * @param result the parsed values, or null if the parse failed
+   * @param error  the parse failure, or null if the parse succeeded
+   */
+  void onResult(long index, ParseResult result, SimpleCliParserException error);
+}
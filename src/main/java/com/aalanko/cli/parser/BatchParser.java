@@ -0,0 +1,384 @@
+package com.aalanko.cli.parser;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.stream.Stream;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Parses large numbers of commands in parallel against one shared schema.
+ *
+ * Commands are read from the source by the calling thread and handed to a
+ * fork-join pool in chunks. Only a bounded number of chunks is in flight
+ * at any time, so sources with tens of millions of commands are parsed in
+ * constant memory when results are handed to a {@link BatchCallback}.
+ *
+ * @author Andreas Alanko
+ */
+public final class BatchParser {
+  /** Default number of commands per chunk. */
+  public static final int DEFAULT_CHUNK_SIZE = 1024;
+
+  /** The schema. */
+  private final Schema schema;
+  /** The pool parsing the chunks. */
+  private final ForkJoinPool pool;
+  /** Number of commands per chunk. */
+  private final int chunkSize;
+  /** Maximum number of chunks in flight. */
+  private final int maxChunks;
+
+  /**
+   * Creates a batch parser using the common fork-join pool.
+   *
+   * @param schema the schema
+   */
+  public BatchParser(Schema schema) {
+    this(schema, ForkJoinPool.commonPool(), DEFAULT_CHUNK_SIZE);
+  }
+
+  /**
+   * Creates a batch parser.
+   *
+   * @param schema    the schema
+   * @param pool      the pool parsing the commands
+   * @param chunkSize the number of commands handed to a worker at a time
+   */
+  public BatchParser(Schema schema, ForkJoinPool pool, int chunkSize) {
+    if (chunkSize < 1) {
+      throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+    }
+    this.schema = schema;
+    this.pool = pool;
+    this.chunkSize = chunkSize;
+    maxChunks = pool.getParallelism() * 4;
+  }
+
+  /**
+   * Parses argument arrays and returns the results in input order.
+   *
+   * @param commands the command line argument arrays
+   * @return the parsed values in input order
+   * @throws SimpleCliParserException the failure of the first command, in input order, that could not be parsed
+   */
+  public List<ParseResult> parseAll(Stream<String[]> commands) throws SimpleCliParserException {
+    return collect(commands.iterator());
+  }
+
+  /**
+   * Parses argument arrays and hands each outcome to a callback.
+   *
+   * @param commands the command line argument arrays
+   * @param callback the callback, called concurrently from the workers
+   */
+  public void parseAll(Stream<String[]> commands, BatchCallback callback) {
+    run(commands.iterator(), callback, null, null);
+  }
+
+  /**
+   * Parses a UTF-8 file with one command line per line and returns the
+   * results in input order. Lines are split like
+   * {@link Parser#parseArgs(Schema, CharSequence)}.
+   *
+   * @param file the file
+   * @return the parsed values in input order
+   * @throws IOException              thrown if the file can't be read
+   * @throws SimpleCliParserException the failure of the first line that could not be parsed
+   */
+  public List<ParseResult> parseLines(Path file) throws IOException, SimpleCliParserException {
+    BufferedReader reader = Files.newBufferedReader(file, Charset.forName("UTF-8"));
+    try {
+      return collect(new LineIterator(reader));
+    } catch (LineIterator.ReadFailure e) {
+      throw e.getCause();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Parses a UTF-8 file with one command line per line and hands each
+   * outcome to a callback. The index passed to the callback is the line
+   * number, starting at zero.
+   *
+   * @param file     the file
+   * @param callback the callback, called concurrently from the workers
+   * @throws IOException thrown if the file can't be read
+   */
+  public void parseLines(Path file, BatchCallback callback) throws IOException {
+    BufferedReader reader = Files.newBufferedReader(file, Charset.forName("UTF-8"));
+    try {
+      run(new LineIterator(reader), callback, null, null);
+    } catch (LineIterator.ReadFailure e) {
+      throw e.getCause();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Parses argument arrays into columns, see {@link ColumnarBatch}.
+   *
+   * Each worker parses its chunk with one reused {@link ParseContext} and
+   * encodes it into columns of its own, no result is kept per command.
+   * Commands that fail to parse become failed rows.
+   *
+   * @param commands the command line argument arrays
+   * @param offHeap  true to store the columns in direct buffers
+   * @return the parsed values, one row per command in input order
+   */
+  public ColumnarBatch parseColumnar(Stream<String[]> commands, boolean offHeap) {
+    ColumnarBatch.Builder columns = new ColumnarBatch.Builder(schema);
+    run(commands.iterator(), null, null, columns);
+    return columns.build(offHeap);
+  }
+
+  /**
+   * Parses a UTF-8 file with one command line per line into columns, see
+   * {@link #parseColumnar(Stream, boolean)}. Row numbers are line numbers,
+   * starting at zero.
+   *
+   * @param file    the file
+   * @param offHeap true to store the columns in direct buffers
+   * @return the parsed values, one row per line
+   * @throws IOException thrown if the file can't be read
+   */
+  public ColumnarBatch parseLinesColumnar(Path file, boolean offHeap) throws IOException {
+    BufferedReader reader = Files.newBufferedReader(file, Charset.forName("UTF-8"));
+    try {
+      ColumnarBatch.Builder columns = new ColumnarBatch.Builder(schema);
+      run(new LineIterator(reader), null, null, columns);
+      return columns.build(offHeap);
+    } catch (LineIterator.ReadFailure e) {
+      throw e.getCause();
+    } finally {
+      reader.close();
+    }
+  }
+
+  /**
+   * Parses commands and collects the results in input order.
+   */
+  private List<ParseResult> collect(Iterator<?> commands) throws SimpleCliParserException {
+    List<ParseResult> results = new ArrayList<ParseResult>();
+    SimpleCliParserException error = run(commands, null, results, null);
+    if (error != null) {
+      throw error;
+    }
+    return results;
+  }
+
+  /**
+   * Hands chunks of commands to the pool, waiting for the oldest chunk
+   * whenever too many are in flight.
+   *
+   * One of the callback, the result list or the columns is used. Results
+   * are added to the list or the columns in input order as chunks
+   * complete, to the list only until the first failure.
+   *
+   * @return the first failure in input order when collecting results, null otherwise
+   */
+  private SimpleCliParserException run(Iterator<?> commands, BatchCallback callback, List<ParseResult> results,
+      ColumnarBatch.Builder columns) {
+    ArrayDeque<ForkJoinTask<Chunk>> inFlight = new ArrayDeque<ForkJoinTask<Chunk>>();
+    long index = 0;
+
+    try {
+      while (commands.hasNext()) {
+        Object[] items = new Object[chunkSize];
+        int count = 0;
+        while (count < chunkSize && commands.hasNext()) {
+          items[count++] = commands.next();
+        }
+
+        inFlight.add(pool.submit(new Chunk(index, items, count, callback, columns != null)));
+        index += count;
+
+        if (inFlight.size() >= maxChunks) {
+          SimpleCliParserException error = drain(inFlight.poll().join(), results, columns);
+          if (error != null) {
+            return error;
+          }
+        }
+      }
+
+      while (!inFlight.isEmpty()) {
+        SimpleCliParserException error = drain(inFlight.poll().join(), results, columns);
+        if (error != null) {
+          return error;
+        }
+      }
+      return null;
+    } finally {
+      for (ForkJoinTask<Chunk> task : inFlight) {
+        task.cancel(false);
+      }
+    }
+  }
+
+  /**
+   * Adds the results of a completed chunk to the result list or the
+   * columns.
+   *
+   * @return the first failure of the chunk, or null
+   */
+  private static SimpleCliParserException drain(Chunk chunk, List<ParseResult> results, ColumnarBatch.Builder columns) {
+    if (columns != null) {
+      columns.append(chunk.columns);
+      return null;
+    } else if (results == null) {
+      return null;
+    }
+    for (int i = 0; i < chunk.count; i++) {
+      if (chunk.errors[i] != null) {
+        return chunk.errors[i];
+      }
+      results.add(chunk.results[i]);
+    }
+    return null;
+  }
+
+  /**
+   * A chunk of commands parsed by one worker.
+   */
+  private final class Chunk implements Callable<Chunk> {
+    /** Index of the first command. */
+    private final long index;
+    /** Argument arrays or command lines. */
+    private final Object[] items;
+    /** Number of commands. */
+    private final int count;
+    /** The callback, or null to keep the outcomes. */
+    private final BatchCallback callback;
+    /** Results by position, when there is no callback. */
+    private ParseResult[] results;
+    /** Failures by position, when there is no callback. */
+    private SimpleCliParserException[] errors;
+    /** True to encode the outcomes into columns. */
+    private final boolean columnar;
+    /** The outcomes as columns, when columnar. */
+    private ColumnarBatch.Builder columns;
+
+    Chunk(long index, Object[] items, int count, BatchCallback callback, boolean columnar) {
+      this.index = index;
+      this.items = items;
+      this.count = count;
+      this.callback = callback;
+      this.columnar = columnar;
+    }
+
+    public Chunk call() {
+      if (columnar) {
+        return encode();
+      }
+      if (callback == null) {
+        results = new ParseResult[count];
+        errors = new SimpleCliParserException[count];
+      }
+
+      for (int i = 0; i < count; i++) {
+        ParseResult result = null;
+        SimpleCliParserException error = null;
+        try {
+          if (items[i] instanceof String) {
+            result = Parser.parseArgs(schema, (String) items[i]);
+          } else {
+            result = Parser.parseArgs(schema, (String[]) items[i]);
+          }
+        } catch (SimpleCliParserException e) {
+          error = e;
+        }
+        items[i] = null;
+
+        if (callback == null) {
+          results[i] = result;
+          errors[i] = error;
+        } else {
+          callback.onResult(index + i, result, error);
+        }
+      }
+      return this;
+    }
+
+    /**
+     * Parses the commands into columns with one reused context.
+     */
+    private Chunk encode() {
+      ParseContext context = new ParseContext(schema);
+      columns = new ColumnarBatch.Builder(schema);
+      for (int i = 0; i < count; i++) {
+        if (items[i] instanceof String) {
+          columns.add(context.tryParse((String) items[i]));
+        } else {
+          columns.add(context.tryParse((String[]) items[i]));
+        }
+        items[i] = null;
+      }
+      return this;
+    }
+  }
+
+  /**
+   * Iterates the lines of a reader, wrapping read failures.
+   */
+  private static final class LineIterator implements Iterator<String> {
+    /** The reader. */
+    private final BufferedReader reader;
+    /** The next line, or null at the end. */
+    private String next;
+
+    LineIterator(BufferedReader reader) {
+      this.reader = reader;
+      advance();
+    }
+
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    public String next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      String line = next;
+      advance();
+      return line;
+    }
+
+    private void advance() {
+      try {
+        next = reader.readLine();
+      } catch (IOException e) {
+        throw new ReadFailure(e);
+      }
+    }
+
+    /**
+     * Carries a read failure through the iterator.
+     */
+    static final class ReadFailure extends RuntimeException {
+      private static final long serialVersionUID = 1L;
+
+      ReadFailure(IOException cause) {
+        super(cause);
+      }
+
+      @Override
+      public synchronized IOException getCause() {
+        return (IOException) super.getCause();
+      }
+    }
+  }
+}
@@ -0,0 +1,161 @@
+package com.aalanko.cli.parser;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Shell style tokens of a UTF-8 encoded command line held in a
+ * {@link ByteBuffer}.
+ *
+ * The input is scanned byte by byte and only the bytes of the current
+ * token are decoded, into a reused buffer. The position of the byte buffer
+ * is never changed. Malformed UTF-8 is decoded as U+FFFD.
+ *
+ * @author Andreas Alanko
+ */
+final class ByteBufferTokenizer extends ShellTokenizer {
+  /** Buffer for the decoded current token. */
+  private final StringBuilder chars;
+  /** The encoded command line. */
+  private ByteBuffer input;
+  /** Buffer for the unescaped bytes of the current token. */
+  private byte[] bytes;
+  /** Number of bytes in the byte buffer. */
+  private int length;
+
+  /**
+   * @param input the encoded command line, read from its position to its limit
+   */
+  ByteBufferTokenizer(ByteBuffer input) {
+    chars = new StringBuilder();
+    bytes = new byte[64];
+    reset(input);
+  }
+
+  /**
+   * Starts tokenizing another command line, reusing the buffers.
+   *
+   * @param input the encoded command line, read from its position to its limit
+   */
+  void reset(ByteBuffer input) {
+    this.input = input;
+    chars.setLength(0);
+    reset(input.position(), input.limit());
+  }
+
+  @Override
+  int unitAt(int index) {
+    return input.get(index) & 0xff;
+  }
+
+  @Override
+  void beginCopy() {
+    length = 0;
+  }
+
+  @Override
+  void appendRange(int start, int end) {
+    if (length + end - start > bytes.length) {
+      grow(length + end - start);
+    }
+    for (int i = start; i < end; i++) {
+      bytes[length++] = input.get(i);
+    }
+  }
+
+  @Override
+  void appendUnit(int unit) {
+    if (length == bytes.length) {
+      grow(length + 1);
+    }
+    bytes[length++] = (byte) unit;
+  }
+
+  @Override
+  void finishPlain(int start, int end) {
+    length = 0;
+    appendRange(start, end);
+    finishCopy();
+  }
+
+  @Override
+  void finishCopy() {
+    chars.setLength(0);
+    decode(bytes, length, chars);
+  }
+
+  @Override
+  CharSequence chars() {
+    return chars;
+  }
+
+  @Override
+  int start() {
+    return 0;
+  }
+
+  @Override
+  int end() {
+    return chars.length();
+  }
+
+  /**
+   * Grows the byte buffer to hold at least the given number of bytes.
+   */
+  private void grow(int minimum) {
+    byte[] grown = new byte[Math.max(minimum, bytes.length * 2)];
+    System.arraycopy(bytes, 0, grown, 0, length);
+    bytes = grown;
+  }
+
+  /**
+   * Decodes UTF-8 bytes, replacing malformed sequences with U+FFFD.
+   *
+   * @param bytes  the bytes
+   * @param length the number of bytes to decode
+   * @param out    the builder to append the characters to
+   */
+  static void decode(byte[] bytes, int length, StringBuilder out) {
+    int i = 0;
+    while (i < length) {
+      int lead = bytes[i] & 0xff;
+      if (lead < 0x80) {
+        out.append((char) lead);
+        i++;
+        continue;
+      }
+
+      int count;
+      int codePoint;
+      if (lead >= 0xc2 && lead < 0xe0) {
+        count = 1;
+        codePoint = lead & 0x1f;
+      } else if (lead >= 0xe0 && lead < 0xf0) {
+        count = 2;
+        codePoint = lead & 0x0f;
+      } else if (lead >= 0xf0 && lead < 0xf5) {
+        count = 3;
+        codePoint = lead & 0x07;
+      } else {
+        out.append('\uFFFD');
+        i++;
+        continue;
+      }
+
+      int n = 1;
+      while (n <= count && i + n < length && (bytes[i + n] & 0xc0) == 0x80) {
+        codePoint = (codePoint << 6) | (bytes[i + n] & 0x3f);
+        n++;
+      }
+
+      if (n <= count
+          || (count == 2 && (codePoint < 0x800 || (codePoint >= 0xd800 && codePoint < 0xe000)))
+          || (count == 3 && (codePoint < 0x10000 || codePoint > 0x10ffff))) {
+        out.append('\uFFFD');
+        i += n;
+      } else {
+        out.appendCodePoint(codePoint);
+        i += n;
+      }
+    }
+  }
+}
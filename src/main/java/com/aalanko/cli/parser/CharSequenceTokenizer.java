@@ -0,0 +1,91 @@
+package com.aalanko.cli.parser;
+
+/**
+ * Shell style tokens of a command line held in a {@link CharSequence}.
+ *
+ * Tokens without quotes or escapes are ranges of the input itself.
+ *
+ * @author Andreas Alanko
+ */
+final class CharSequenceTokenizer extends ShellTokenizer {
+  /** Buffer for unescaped tokens. */
+  private final StringBuilder buffer;
+  /** The command line. */
+  private CharSequence input;
+  /** Characters holding the current token. */
+  private CharSequence chars;
+  /** Start of the current token. */
+  private int start;
+  /** End of the current token. */
+  private int end;
+
+  /**
+   * @param input the command line
+   */
+  CharSequenceTokenizer(CharSequence input) {
+    buffer = new StringBuilder();
+    reset(input);
+  }
+
+  /**
+   * Starts tokenizing another command line, reusing the buffer.
+   *
+   * @param input the command line
+   */
+  void reset(CharSequence input) {
+    this.input = input;
+    chars = input;
+    start = 0;
+    end = 0;
+    reset(0, input.length());
+  }
+
+  @Override
+  int unitAt(int index) {
+    return input.charAt(index);
+  }
+
+  @Override
+  void beginCopy() {
+    buffer.setLength(0);
+  }
+
+  @Override
+  void appendRange(int start, int end) {
+    buffer.append(input, start, end);
+  }
+
+  @Override
+  void appendUnit(int unit) {
+    buffer.append((char) unit);
+  }
+
+  @Override
+  void finishPlain(int start, int end) {
+    chars = input;
+    this.start = start;
+    this.end = end;
+  }
+
+  @Override
+  void finishCopy() {
+    chars = buffer;
+    start = 0;
+    end = buffer.length();
+  }
+
+  @Override
+  CharSequence chars() {
+    return chars;
+  }
+
+  @Override
+  int start() {
+    return start;
+  }
+
+  @Override
+  int end() {
+    return end;
+  }
+}
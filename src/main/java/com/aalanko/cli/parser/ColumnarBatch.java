@@ -0,0 +1,682 @@
+package com.aalanko.cli.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import com.aalanko.cli.parser.exceptions.FlagNotFoundException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+
+/**
+ * The parsed values of many command lines, stored column by column.
+ *
+ * Each command line is a row. Every flag is a bitmap with one bit per row.
+ * Every option has a bitmap of the rows that set it and a column of
+ * values: {@link OptionType#STRING} values are dictionary encoded as codes
+ * into a list of the distinct values, values of the other types are stored
+ * as converted by their type. A non-repeatable option has one value slot
+ * per row, which holds its default value in rows that don't set it. A
+ * repeatable option has a column of offsets where the values of row
+ * {@code r} are the slots from {@code offsets[r]} up to
+ * {@code offsets[r + 1]}.
+ *
+ * Rows that failed to parse are marked in a bitmap of their own and have
+ * no flags or options set. The columns can be kept off the heap in direct
+ * buffers. Columns are returned as read-only buffers.
+ *
+ * A batch is built with a {@link Builder} or
+ * {@link BatchParser#parseColumnar(java.util.stream.Stream, boolean)}.
+ *
+ * @author Andreas Alanko
+ */
+public final class ColumnarBatch {
+  /** Code of a string option without a value in a row, because it is not set and has no default or the row failed. */
+  public static final int NOT_SET = -1;
+
+  /** The schema. */
+  private final Schema schema;
+  /** Number of rows. */
+  private final int rows;
+  /** Rows that failed to parse. */
+  private final LongBuffer failed;
+  /** Rows that set each flag, by flag index. */
+  private final LongBuffer[] flags;
+  /** Rows that set each option, by option index. */
+  private final LongBuffer[] present;
+  /** Value offsets of repeatable options by option index, null for other options. */
+  private final IntBuffer[] offsets;
+  /** Dictionary codes of string options by option index, null for other options. */
+  private final IntBuffer[] codes;
+  /** Converted values of typed options by option index, null for string options. */
+  private final LongBuffer[] numbers;
+  /** Distinct values of string options by option index, null for other options. */
+  private final Dictionary[] dictionaries;
+
+  private ColumnarBatch(Schema schema, int rows, LongBuffer failed, LongBuffer[] flags, LongBuffer[] present, IntBuffer[] offsets,
+      IntBuffer[] codes, LongBuffer[] numbers, Dictionary[] dictionaries) {
+    this.schema = schema;
+    this.rows = rows;
+    this.failed = failed;
+    this.flags = flags;
+    this.present = present;
+    this.offsets = offsets;
+    this.codes = codes;
+    this.numbers = numbers;
+    this.dictionaries = dictionaries;
+  }
+
+  /**
+   * Gets the schema.
+   *
+   * @return the schema
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Gets the number of rows.
+   *
+   * @return the number of rows
+   */
+  public int getRowCount() {
+    return rows;
+  }
+
+  /**
+   * Checks if a row failed to parse.
+   *
+   * @param row the row
+   * @return true if the row failed to parse
+   */
+  public boolean isFailed(int row) {
+    return bit(failed, checkRow(row));
+  }
+
+  /**
+   * Gets the number of rows that failed to parse.
+   *
+   * @return the number of failed rows
+   */
+  public int getFailedCount() {
+    return count(failed);
+  }
+
+  /**
+   * Gets the rows that failed to parse, bit {@code r % 64} of word
+   * {@code r / 64} is set if row {@code r} failed.
+   *
+   * @return the bitmap
+   */
+  public LongBuffer getFailedBitmap() {
+    return failed.asReadOnlyBuffer();
+  }
+
+  /**
+   * Checks if a flag is set in a row.
+   *
+   * @param name the flag name
+   * @param row  the row
+   * @return true if the flag is set
+   * @throws FlagNotFoundException thrown if the flag doesn't exist
+   */
+  public boolean getFlag(String name, int row) throws FlagNotFoundException {
+    return bit(flags[flagIndex(name)], checkRow(row));
+  }
+
+  /**
+   * Gets the number of rows that set a flag.
+   *
+   * @param name the flag name
+   * @return the number of rows
+   * @throws FlagNotFoundException thrown if the flag doesn't exist
+   */
+  public int getFlagCount(String name) throws FlagNotFoundException {
+    return count(flags[flagIndex(name)]);
+  }
+
+  /**
+   * Gets the rows that set a flag, laid out like {@link #getFailedBitmap()}.
+   *
+   * @param name the flag name
+   * @return the bitmap
+   * @throws FlagNotFoundException thrown if the flag doesn't exist
+   */
+  public LongBuffer getFlagBitmap(String name) throws FlagNotFoundException {
+    return flags[flagIndex(name)].asReadOnlyBuffer();
+  }
+
+  /**
+   * Checks if an option is set in a row.
+   *
+   * @param name the option name
+   * @param row  the row
+   * @return true if the option is set
+   * @throws OptionNotFoundException thrown if the option doesn't exist
+   */
+  public boolean isOptionSet(String name, int row) throws OptionNotFoundException {
+    return bit(present[optionIndex(name)], checkRow(row));
+  }
+
+  /**
+   * Gets the number of rows that set an option.
+   *
+   * @param name the option name
+   * @return the number of rows
+   * @throws OptionNotFoundException thrown if the option doesn't exist
+   */
+  public int getOptionCount(String name) throws OptionNotFoundException {
+    return count(present[optionIndex(name)]);
+  }
+
+  /**
+   * Gets the rows that set an option, laid out like
+   * {@link #getFailedBitmap()}.
+   *
+   * @param name the option name
+   * @return the bitmap
+   * @throws OptionNotFoundException thrown if the option doesn't exist
+   */
+  public LongBuffer getOptionBitmap(String name) throws OptionNotFoundException {
+    return present[optionIndex(name)].asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets the value offsets of a repeatable option, one more than the
+   * number of rows.
+   *
+   * @param name the option name
+   * @return the offsets, or null if the option is not repeatable
+   * @throws OptionNotFoundException thrown if the option doesn't exist
+   */
+  public IntBuffer getOffsets(String name) throws OptionNotFoundException {
+    IntBuffer column = offsets[optionIndex(name)];
+    return (column == null) ? null : column.asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets the dictionary codes of a string option. Rows that don't set a
+   * non-repeatable option have the code of its default value, or
+   * {@link #NOT_SET} if it has none. Failed rows have {@link #NOT_SET}.
+   *
+   * @param name the option name
+   * @return the codes
+   * @throws OptionNotFoundException     thrown if the option doesn't exist
+   * @throws OptionTypeMismatchException thrown if the option is not a string option
+   */
+  public IntBuffer getCodes(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    return codes[stringIndex(name)].asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets the distinct values of a string option, in the order they were
+   * first seen. A value's position is its code.
+   *
+   * @param name the option name
+   * @return the values
+   * @throws OptionNotFoundException     thrown if the option doesn't exist
+   * @throws OptionTypeMismatchException thrown if the option is not a string option
+   */
+  public List<String> getDictionary(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    return dictionaries[stringIndex(name)].values;
+  }
+
+  /**
+   * Counts how often each distinct value of a string option occurs,
+   * including default values of rows that don't set it.
+   *
+   * @param name the option name
+   * @return the counts, indexed by code
+   * @throws OptionNotFoundException     thrown if the option doesn't exist
+   * @throws OptionTypeMismatchException thrown if the option is not a string option
+   */
+  public int[] getValueCounts(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = stringIndex(name);
+    int[] counts = new int[dictionaries[index].values.size()];
+    IntBuffer column = codes[index];
+    for (int i = 0; i < column.limit(); i++) {
+      int code = column.get(i);
+      if (code != NOT_SET) {
+        counts[code]++;
+      }
+    }
+    return counts;
+  }
+
+  /**
+   * Gets the converted values of a typed option, see
+   * {@link OptionValues#getLong(int)} for the units. Rows that don't set a
+   * non-repeatable option have its converted default value, or zero if it
+   * has none. Failed rows have zero.
+   *
+   * @param name the option name
+   * @return the values
+   * @throws OptionNotFoundException     thrown if the option doesn't exist
+   * @throws OptionTypeMismatchException thrown if the option is a string option
+   */
+  public LongBuffer getNumbers(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = optionIndex(name);
+    if (numbers[index] == null) {
+      throw new OptionTypeMismatchException("Option \"" + name + "\" is of type " + OptionType.STRING);
+    }
+    return numbers[index].asReadOnlyBuffer();
+  }
+
+  /**
+   * Gets the value of a non-repeatable string option in a row, or the
+   * last value of a repeatable one.
+   *
+   * @param name the option name
+   * @param row  the row
+   * @return the value, the default value if a non-repeatable option is not
+   *     set in the row, or null if there is neither
+   * @throws OptionNotFoundException     thrown if the option doesn't exist
+   * @throws OptionTypeMismatchException thrown if the option is not a string option
+   */
+  public String getOption(String name, int row) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = stringIndex(name);
+    checkRow(row);
+    int slot = row;
+    if (offsets[index] != null) {
+      slot = offsets[index].get(row + 1) - 1;
+      if (slot < offsets[index].get(row)) {
+        return null;
+      }
+    }
+    int code = codes[index].get(slot);
+    return (code == NOT_SET) ? null : dictionaries[index].values.get(code);
+  }
+
+  private int checkRow(int row) {
+    if (row < 0 || row >= rows) {
+      throw new IndexOutOfBoundsException("Row " + row + ", rows " + rows);
+    }
+    return row;
+  }
+
+  private int flagIndex(String name) throws FlagNotFoundException {
+    int index = schema.flagIndex(name);
+    if (index < 0) {
+      throw new FlagNotFoundException("Flag \"" + name + "\" was not found");
+    }
+    return index;
+  }
+
+  private int optionIndex(String name) throws OptionNotFoundException {
+    int index = schema.optionIndex(name);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    return index;
+  }
+
+  private int stringIndex(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = optionIndex(name);
+    if (codes[index] == null) {
+      throw new OptionTypeMismatchException("Option \"" + name + "\" is of type " + schema.getOptionType(index));
+    }
+    return index;
+  }
+
+  private static boolean bit(LongBuffer bitmap, int row) {
+    return (bitmap.get(row >>> 6) & (1L << row)) != 0;
+  }
+
+  private static int count(LongBuffer bitmap) {
+    int count = 0;
+    for (int i = 0; i < bitmap.limit(); i++) {
+      count += Long.bitCount(bitmap.get(i));
+    }
+    return count;
+  }
+
+  /**
+   * The distinct values of a string option, the position of a value is
+   * its code.
+   */
+  private static final class Dictionary {
+    /** Codes by value, null once built. */
+    private final HashMap<String, Integer> codes;
+    /** The values. */
+    final List<String> values;
+
+    Dictionary() {
+      codes = new HashMap<String, Integer>();
+      values = new ArrayList<String>();
+    }
+
+    private Dictionary(List<String> values) {
+      codes = null;
+      this.values = values;
+    }
+
+    /**
+     * Gets the code of a value, adding it if it is new.
+     */
+    int code(String value) {
+      Integer code = codes.get(value);
+      if (code == null) {
+        code = values.size();
+        codes.put(value, code);
+        values.add(value);
+      }
+      return code;
+    }
+
+    /**
+     * Copies the values into an unmodifiable dictionary.
+     */
+    Dictionary build() {
+      return new Dictionary(Collections.unmodifiableList(Arrays.asList(values.toArray(new String[0]))));
+    }
+  }
+
+  /**
+   * Builds a batch one parse result at a time.
+   *
+   * The builder only reads a result while it is added, so a single
+   * {@link ParseContext} can parse every row. Builders filled by different
+   * threads can be combined in order with {@link #append(Builder)}.
+   *
+   * A builder is not thread safe.
+   */
+  public static final class Builder {
+    /** The schema. */
+    private final Schema schema;
+    /** Number of rows. */
+    private int rows;
+    /** Rows that failed to parse. */
+    private long[] failed;
+    /** Rows that set each flag. */
+    private final long[][] flags;
+    /** Rows that set each option. */
+    private final long[][] present;
+    /** Value offsets of repeatable options, null for others. */
+    private final int[][] offsets;
+    /** Number of values of each option. */
+    private final int[] sizes;
+    /** Dictionary codes of string options, null for others. */
+    private final int[][] codes;
+    /** Converted values of typed options, null for string options. */
+    private final long[][] numbers;
+    /** Distinct values of string options, null for others. */
+    private final Dictionary[] dictionaries;
+
+    /**
+     * Creates an empty builder.
+     *
+     * @param schema the schema of the results that will be added
+     */
+    public Builder(Schema schema) {
+      this.schema = schema;
+      int optionCount = schema.getOptionCount();
+      failed = new long[1];
+      flags = new long[schema.getFlagCount()][1];
+      present = new long[optionCount][1];
+      offsets = new int[optionCount][];
+      sizes = new int[optionCount];
+      codes = new int[optionCount][];
+      numbers = new long[optionCount][];
+      dictionaries = new Dictionary[optionCount];
+      for (int i = 0; i < optionCount; i++) {
+        if (schema.isOptionRepeatable(i)) {
+          offsets[i] = new int[17];
+        }
+        if (schema.getOptionType(i) == OptionType.STRING) {
+          codes[i] = new int[16];
+          dictionaries[i] = new Dictionary();
+        } else {
+          numbers[i] = new long[16];
+        }
+      }
+    }
+
+    /**
+     * Gets the number of rows added so far.
+     *
+     * @return the number of rows
+     */
+    public int getRowCount() {
+      return rows;
+    }
+
+    /**
+     * Adds a parse result as the next row. A result with errors is added
+     * as a failed row.
+     *
+     * @param result the result, parsed against the schema of the builder
+     * @throws IllegalArgumentException thrown if the result belongs to another schema
+     */
+    public void add(ParseResult result) {
+      if (result.getSchema() != schema) {
+        throw new IllegalArgumentException("Result belongs to another schema");
+      }
+      if (result.hasErrors()) {
+        addFailed();
+        return;
+      }
+      int row = nextRow();
+
+      long[] flagBits = result.flagBits();
+      for (int w = 0; w < flagBits.length; w++) {
+        long word = flagBits[w];
+        while (word != 0) {
+          set(flags[(w << 6) + Long.numberOfTrailingZeros(word)], row);
+          word &= word - 1;
+        }
+      }
+
+      for (int i = 0; i < present.length; i++) {
+        boolean set = result.optionSet(i);
+        if (set) {
+          set(present[i], row);
+        }
+        if (offsets[i] == null) {
+          if (codes[i] != null) {
+            String value = result.value(i);
+            addCode(i, (value == null) ? NOT_SET : dictionaries[i].code(value));
+          } else {
+            addNumber(i, result.number(i));
+          }
+        } else {
+          OptionValues values = result.repeated(i);
+          int size = (values == null) ? 0 : values.size();
+          for (int v = 0; v < size; v++) {
+            if (codes[i] != null) {
+              addCode(i, dictionaries[i].code(values.string(v)));
+            } else {
+              addNumber(i, values.number(v));
+            }
+          }
+          offsets[i][row + 1] = sizes[i];
+        }
+      }
+    }
+
+    /**
+     * Adds a row that failed to parse.
+     */
+    public void addFailed() {
+      int row = nextRow();
+      set(failed, row);
+      for (int i = 0; i < present.length; i++) {
+        if (offsets[i] != null) {
+          offsets[i][row + 1] = sizes[i];
+        } else if (codes[i] != null) {
+          addCode(i, NOT_SET);
+        } else {
+          addNumber(i, 0);
+        }
+      }
+    }
+
+    /**
+     * Adds the rows of another builder after the rows of this one.
+     *
+     * @param other the builder to take the rows from, left unchanged
+     * @throws IllegalArgumentException thrown if the builder has another schema
+     */
+    public void append(Builder other) {
+      if (other.schema != schema) {
+        throw new IllegalArgumentException("Builder belongs to another schema");
+      }
+      int start = rows;
+      ensureRows(rows + other.rows);
+      rows += other.rows;
+      appendBits(failed, other.failed, start);
+      for (int f = 0; f < flags.length; f++) {
+        appendBits(flags[f], other.flags[f], start);
+      }
+
+      for (int i = 0; i < present.length; i++) {
+        appendBits(present[i], other.present[i], start);
+        int base = sizes[i];
+        if (offsets[i] != null) {
+          for (int r = 1; r <= other.rows; r++) {
+            offsets[i][start + r] = base + other.offsets[i][r];
+          }
+        }
+        int count = other.sizes[i];
+        if (codes[i] != null) {
+          int[] remap = new int[other.dictionaries[i].values.size()];
+          for (int c = 0; c < remap.length; c++) {
+            remap[c] = dictionaries[i].code(other.dictionaries[i].values.get(c));
+          }
+          ensureValues(i, base + count);
+          for (int v = 0; v < count; v++) {
+            int code = other.codes[i][v];
+            codes[i][base + v] = (code == NOT_SET) ? NOT_SET : remap[code];
+          }
+        } else {
+          ensureValues(i, base + count);
+          System.arraycopy(other.numbers[i], 0, numbers[i], base, count);
+        }
+        sizes[i] = base + count;
+      }
+    }
+
+    /**
+     * Builds a batch of the rows added so far. The builder can still be
+     * used afterwards.
+     *
+     * @param offHeap true to store the columns in direct buffers
+     * @return the batch
+     */
+    public ColumnarBatch build(boolean offHeap) {
+      int words = Schema.words(rows);
+      int optionCount = present.length;
+      LongBuffer[] flagColumns = new LongBuffer[flags.length];
+      for (int f = 0; f < flags.length; f++) {
+        flagColumns[f] = longs(flags[f], words, offHeap);
+      }
+      LongBuffer[] presentColumns = new LongBuffer[optionCount];
+      IntBuffer[] offsetColumns = new IntBuffer[optionCount];
+      IntBuffer[] codeColumns = new IntBuffer[optionCount];
+      LongBuffer[] numberColumns = new LongBuffer[optionCount];
+      Dictionary[] builtDictionaries = new Dictionary[optionCount];
+      for (int i = 0; i < optionCount; i++) {
+        presentColumns[i] = longs(present[i], words, offHeap);
+        if (offsets[i] != null) {
+          offsetColumns[i] = ints(offsets[i], rows + 1, offHeap);
+        }
+        if (codes[i] != null) {
+          codeColumns[i] = ints(codes[i], sizes[i], offHeap);
+          builtDictionaries[i] = dictionaries[i].build();
+        } else {
+          numberColumns[i] = longs(numbers[i], sizes[i], offHeap);
+        }
+      }
+      return new ColumnarBatch(schema, rows, longs(failed, words, offHeap), flagColumns, presentColumns, offsetColumns, codeColumns,
+          numberColumns, builtDictionaries);
+    }
+
+    /**
+     * Takes the next row, growing the bitmaps and offsets to fit it.
+     */
+    private int nextRow() {
+      ensureRows(rows + 1);
+      return rows++;
+    }
+
+    private void ensureRows(int count) {
+      int words = Schema.words(count);
+      if (words > failed.length) {
+        int size = Math.max(words, failed.length * 2);
+        failed = Arrays.copyOf(failed, size);
+        for (int f = 0; f < flags.length; f++) {
+          flags[f] = Arrays.copyOf(flags[f], size);
+        }
+        for (int i = 0; i < present.length; i++) {
+          present[i] = Arrays.copyOf(present[i], size);
+        }
+      }
+      for (int i = 0; i < offsets.length; i++) {
+        if (offsets[i] != null && count + 1 > offsets[i].length) {
+          offsets[i] = Arrays.copyOf(offsets[i], Math.max(count + 1, offsets[i].length * 2));
+        }
+      }
+    }
+
+    private void ensureValues(int option, int count) {
+      if (codes[option] != null) {
+        if (count > codes[option].length) {
+          codes[option] = Arrays.copyOf(codes[option], Math.max(count, codes[option].length * 2));
+        }
+      } else if (count > numbers[option].length) {
+        numbers[option] = Arrays.copyOf(numbers[option], Math.max(count, numbers[option].length * 2));
+      }
+    }
+
+    private void addCode(int option, int code) {
+      ensureValues(option, sizes[option] + 1);
+      codes[option][sizes[option]++] = code;
+    }
+
+    private void addNumber(int option, long number) {
+      ensureValues(option, sizes[option] + 1);
+      numbers[option][sizes[option]++] = number;
+    }
+
+    private static void set(long[] bitmap, int row) {
+      bitmap[row >>> 6] |= 1L << row;
+    }
+
+    /**
+     * Sets the bits of another bitmap, shifted by a number of rows.
+     */
+    private static void appendBits(long[] bitmap, long[] other, int start) {
+      for (int w = 0; w < other.length; w++) {
+        long word = other[w];
+        while (word != 0) {
+          set(bitmap, start + (w << 6) + Long.numberOfTrailingZeros(word));
+          word &= word - 1;
+        }
+      }
+    }
+
+    private static LongBuffer longs(long[] values, int count, boolean offHeap) {
+      if (!offHeap) {
+        return LongBuffer.wrap(Arrays.copyOf(values, count));
+      }
+      ByteBuffer bytes = ByteBuffer.allocateDirect(count * 8).order(ByteOrder.nativeOrder());
+      bytes.asLongBuffer().put(values, 0, count);
+      return bytes.asLongBuffer();
+    }
+
+    private static IntBuffer ints(int[] values, int count, boolean offHeap) {
+      if (!offHeap) {
+        return IntBuffer.wrap(Arrays.copyOf(values, count));
+      }
+      ByteBuffer bytes = ByteBuffer.allocateDirect(count * 4).order(ByteOrder.nativeOrder());
+      bytes.asIntBuffer().put(values, 0, count);
+      return bytes.asIntBuffer();
+    }
+  }
+}
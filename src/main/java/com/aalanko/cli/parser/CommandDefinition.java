@@ -0,0 +1,25 @@
+package com.aalanko.cli.parser;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Builds the options of a subcommand.
+ *
+ * A definition is only run when its subcommand is selected, see
+ * {@link Commands}. Settings of the frozen schema, such as GNU syntax or
+ * value sources, are applied with
+ * {@link Commands#add(String, CommandDefinition, java.util.function.UnaryOperator)}.
+ *
+ * @author Andreas Alanko
+ */
+@FunctionalInterface
+public interface CommandDefinition {
+
+  /**
+   * Creates the options of the subcommand.
+   *
+   * @return the options
+   * @throws SimpleCliParserException thrown if the options can't be defined
+   */
+  Options define() throws SimpleCliParserException;
+}
@@ -0,0 +1,178 @@
+package com.aalanko.cli.parser;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Set;
+import java.util.function.UnaryOperator;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * A set of subcommands, each with its own options.
+ *
+ * The options of a subcommand are only defined when the subcommand is
+ * first selected, so the startup cost of a tool with many subcommands
+ * depends on the subcommand actually used. The frozen schema of a
+ * subcommand is kept and shared by all later parses.
+ *
+ * Subcommands are added and settings are made before parsing starts,
+ * after that a command set can be shared between threads that parse
+ * concurrently.
+ *
+ * The subcommand is selected by the first token. {@code @file} response
+ * files in that position are only expanded when
+ * {@link #setResponseFiles(boolean)} is on, the response file setting of
+ * a subcommand schema only applies to the tokens after the subcommand
+ * name.
+ *
+ * @author Andreas Alanko
+ */
+public final class Commands {
+  /** Schema used for results of command lines without a valid command. */
+  static final Schema NONE = new Schema(Collections.<Option>emptyList(), Collections.<Flag>emptyList());
+
+  /** Subcommands by name. */
+  private final LinkedHashMap<String, Command> commands;
+  /** True if response files are expanded before the subcommand is selected. */
+  private boolean responseFiles;
+
+  /**
+   * Creates an empty set of subcommands.
+   */
+  public Commands() {
+    commands = new LinkedHashMap<String, Command>();
+  }
+
+  /**
+   * Adds a subcommand. The definition is not run until the subcommand is
+   * selected.
+   *
+   * @param name       the subcommand name
+   * @param definition builds the subcommand options
+   * @return this command set
+   * @throws IllegalArgumentException thrown if a subcommand with the same name already exists
+   */
+  public Commands add(String name, CommandDefinition definition) {
+    return add(name, definition, UnaryOperator.identity());
+  }
+
+  /**
+   * Adds a subcommand whose frozen schema is adjusted before it is used,
+   * for example {@code schema -> schema.withGnuSyntax(true)}. Neither the
+   * definition nor the adjustment is run until the subcommand is selected.
+   *
+   * @param name       the subcommand name
+   * @param definition builds the subcommand options
+   * @param settings   applies the {@code with} settings of the schema
+   * @return this command set
+   * @throws IllegalArgumentException thrown if a subcommand with the same name already exists
+   */
+  public Commands add(String name, CommandDefinition definition, UnaryOperator<Schema> settings) {
+    if (commands.containsKey(name)) {
+      throw new IllegalArgumentException("Command \"" + name + "\" already exists");
+    }
+    commands.put(name, new Command(definition, settings));
+    return this;
+  }
+
+  /**
+   * Sets if {@code @file} response files are expanded for the whole
+   * command line, so the subcommand name and its arguments can both come
+   * from a response file. See {@link Schema#withResponseFiles(boolean)}
+   * for how response files are read.
+   *
+   * @param responseFiles true to expand response files
+   * @return this command set
+   */
+  public Commands setResponseFiles(boolean responseFiles) {
+    this.responseFiles = responseFiles;
+    return this;
+  }
+
+  /**
+   * Checks if response files are expanded before the subcommand is
+   * selected.
+   *
+   * @return true if response files are expanded
+   */
+  public boolean isResponseFiles() {
+    return responseFiles;
+  }
+
+  /**
+   * Checks if a subcommand with the given name exists.
+   *
+   * @param name the subcommand name
+   * @return true if the subcommand exists, false otherwise
+   */
+  public boolean commandExists(String name) {
+    return commands.containsKey(name);
+  }
+
+  /**
+   * Gets the subcommand names, in the order they were added.
+   *
+   * @return unmodifiable set of names
+   */
+  public Set<String> getCommandNames() {
+    return Collections.unmodifiableSet(commands.keySet());
+  }
+
+  /**
+   * Gets the schema of a subcommand, defining its options on first use.
+   *
+   * @param name the subcommand name
+   * @return the schema, or null if no such subcommand exists
+   * @throws SimpleCliParserException thrown if the subcommand definition fails
+   */
+  public Schema getSchema(String name) throws SimpleCliParserException {
+    Command command = commands.get(name);
+    return (command == null) ? null : command.schema();
+  }
+
+  /**
+   * Checks if the options of a subcommand have been defined.
+   *
+   * @param name the subcommand name
+   * @return true if the subcommand has been defined, false otherwise
+   */
+  public boolean isLoaded(String name) {
+    Command command = commands.get(name);
+    return command != null && command.schema != null;
+  }
+
+  /**
+   * A subcommand whose schema is built on first use.
+   */
+  private static final class Command {
+    /** Builds the options. */
+    private final CommandDefinition definition;
+    /** Adjusts the frozen schema. */
+    private final UnaryOperator<Schema> settings;
+    /** The schema, or null until defined. */
+    private volatile Schema schema;
+
+    Command(CommandDefinition definition, UnaryOperator<Schema> settings) {
+      this.definition = definition;
+      this.settings = settings;
+    }
+
+    /**
+     * Gets the schema, running the definition once. A failed definition is
+     * run again on the next use.
+     */
+    Schema schema() throws SimpleCliParserException {
+      Schema result = schema;
+      if (result == null) {
+        synchronized (this) {
+          result = schema;
+          if (result == null) {
+            result = settings.apply(definition.define().freeze());
+            schema = result;
+          }
+        }
+      }
+      return result;
+    }
+  }
+}
@@ -0,0 +1,463 @@
+package com.aalanko.cli.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+
+/**
+ * Shell completion of command lines against a frozen schema.
+ *
+ * The word being completed is the last one of the words given. The words
+ * before it are classified the way the parser reads them, so the
+ * completer knows if the last word is the value of an option, data after
+ * the {@code --} end of options marker, or a name. Names are completed
+ * from the prefix index of the schema, which is built when the completer
+ * is created. Option values are completed by the {@link ValueCompleter}
+ * of the option, if it has one.
+ *
+ * A completion stops gathering candidates once it has the maximum number
+ * of them or its time budget is spent, whatever it has by then is
+ * returned. Value completers are read on one of two shared daemon threads,
+ * so one that blocks in {@code complete} or in its iterator doesn't hold
+ * up the completion past the budget; it is interrupted and its later
+ * candidates are dropped. A value completer that ignores the interrupt
+ * keeps its thread until it returns, and while both threads are held
+ * completions skip value candidates rather than start more threads. For
+ * completion on every keypress use a {@link Session},
+ * which only classifies the words that changed since the last completion.
+ *
+ * A completer is immutable and thread safe.
+ *
+ * @author Andreas Alanko
+ */
+public final class Completer {
+  /** State of a word that is a name or data. */
+  private static final int NAME = -1;
+  /** State of a word after the end of options marker. */
+  private static final int END = -2;
+  /** Default maximum number of candidates. */
+  private static final int DEFAULT_MAX_CANDIDATES = 256;
+  /** Default time budget of a completion. */
+  private static final long DEFAULT_BUDGET = TimeUnit.MILLISECONDS.toNanos(20);
+
+  /** The schema. */
+  private final Schema schema;
+  /** Value completers by option index. */
+  private final ValueCompleter[] valueCompleters;
+  /** Maximum number of candidates. */
+  private final int maxCandidates;
+  /** Time budget of a completion in nanoseconds. */
+  private final long budget;
+
+  /**
+   * Creates a completer for the schema, with at most 256 candidates and a
+   * time budget of 20 milliseconds.
+   *
+   * @param schema the schema
+   */
+  public Completer(Schema schema) {
+    this(schema, new ValueCompleter[schema.getOptionCount()], DEFAULT_MAX_CANDIDATES, DEFAULT_BUDGET);
+    schema.nameIndex();
+  }
+
+  private Completer(Schema schema, ValueCompleter[] valueCompleters, int maxCandidates, long budget) {
+    this.schema = schema;
+    this.valueCompleters = valueCompleters;
+    this.maxCandidates = maxCandidates;
+    this.budget = budget;
+  }
+
+  /**
+   * Returns a copy of this completer that completes the values of an
+   * option with the given value completer.
+   *
+   * @param option    the option name
+   * @param completer the value completer, or null to not complete values
+   * @return the new completer
+   * @throws OptionNotFoundException thrown if the option doesn't exist
+   */
+  public Completer withValueCompleter(String option, ValueCompleter completer) throws OptionNotFoundException {
+    int index = schema.optionIndex(option);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + option + "\" was not found");
+    }
+    ValueCompleter[] copy = Arrays.copyOf(valueCompleters, valueCompleters.length);
+    copy[index] = completer;
+    return new Completer(schema, copy, maxCandidates, budget);
+  }
+
+  /**
+   * Returns a copy of this completer with another maximum number of
+   * candidates.
+   *
+   * @param maxCandidates the maximum number of candidates
+   * @return the new completer
+   * @throws IllegalArgumentException thrown if the maximum is not positive
+   */
+  public Completer withMaxCandidates(int maxCandidates) {
+    if (maxCandidates < 1) {
+      throw new IllegalArgumentException("Maximum number of candidates must be positive: " + maxCandidates);
+    }
+    return new Completer(schema, valueCompleters, maxCandidates, budget);
+  }
+
+  /**
+   * Returns a copy of this completer with another time budget. Names are
+   * always completed, the budget limits how long value completers are
+   * read.
+   *
+   * @param time the time budget
+   * @param unit the unit of the time
+   * @return the new completer
+   * @throws IllegalArgumentException thrown if the time is negative
+   */
+  public Completer withBudget(long time, TimeUnit unit) {
+    if (time < 0) {
+      throw new IllegalArgumentException("Time budget must not be negative: " + time);
+    }
+    return new Completer(schema, valueCompleters, maxCandidates, unit.toNanos(time));
+  }
+
+  /**
+   * Gets the schema.
+   *
+   * @return the schema
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Completes the last of the given words.
+   *
+   * @param words the words of the command line up to and including the
+   *     word being completed, which may be empty
+   * @return the candidates for the last word, sorted for names and in
+   *     value completer order for values
+   */
+  public List<String> complete(String[] words) {
+    if (words.length == 0) {
+      return candidates(NAME, "");
+    }
+    int state = NAME;
+    for (int i = 0; i < words.length - 1; i++) {
+      state = classify(state, words[i]);
+    }
+    return candidates(state, words[words.length - 1]);
+  }
+
+  /**
+   * Creates a session for incremental completion of one command line.
+   *
+   * @return the session
+   */
+  public Session newSession() {
+    return new Session();
+  }
+
+  /**
+   * Classifies a complete word.
+   *
+   * @param state the state of the previous word
+   * @param word  the word
+   * @return the state of the word: an option descriptor if the next word is
+   *     its value, {@link #NAME} or {@link #END}
+   */
+  private int classify(int state, String word) {
+    if (state == END) {
+      return END;
+    }
+    int optionCount = schema.getOptionCount();
+    int descriptor = schema.resolve(word);
+    if (descriptor >= 0) {
+      return (descriptor < optionCount) ? descriptor : NAME;
+    } else if (state >= 0) {
+      return NAME;
+    }
+
+    if (schema.isGnuSyntax() && word.length() >= 2 && word.charAt(0) == '-') {
+      if (word.equals("--")) {
+        return END;
+      } else if (word.charAt(1) == '-') {
+        if (word.indexOf('=') > 0) {
+          return NAME;
+        }
+      } else if (schema.shortName(word.charAt(1)) >= 0) {
+        for (int i = 1; i < word.length(); i++) {
+          int shortDescriptor = schema.shortName(word.charAt(i));
+          if (shortDescriptor < 0) {
+            return NAME;
+          } else if (shortDescriptor < optionCount) {
+            return (i + 1 == word.length()) ? shortDescriptor : NAME;
+          }
+        }
+        return NAME;
+      }
+    }
+
+    if (schema.isAbbreviations() && looksLikeName(word)) {
+      descriptor = schema.nameIndex().prefix(word, 0, word.length());
+      if (descriptor >= 0 && descriptor < optionCount) {
+        return descriptor;
+      }
+    }
+    return NAME;
+  }
+
+  /**
+   * Checks if a word looks like an option name rather than a negative
+   * number, the same way the parser does before resolving abbreviations.
+   */
+  private static boolean looksLikeName(String word) {
+    int dashes = 0;
+    while (dashes < word.length() && word.charAt(dashes) == '-') {
+      dashes++;
+    }
+    return dashes > 0 && dashes < word.length() && !Character.isDigit(word.charAt(dashes)) && word.charAt(dashes) != '.';
+  }
+
+  /**
+   * Gets the candidates for the word being completed.
+   *
+   * @param state the state of the previous word
+   * @param word  the word being completed
+   * @return the candidates
+   */
+  private List<String> candidates(int state, String word) {
+    if (state == END) {
+      return Collections.emptyList();
+    } else if (state >= 0) {
+      return values(state, word, "");
+    }
+
+    if (schema.isGnuSyntax() && word.startsWith("--")) {
+      int equals = word.indexOf('=');
+      if (equals > 0) {
+        int descriptor = schema.resolve(word, 0, equals);
+        if (descriptor < 0 || descriptor >= schema.getOptionCount()) {
+          return Collections.emptyList();
+        }
+        return values(descriptor, word.substring(equals + 1), word.substring(0, equals + 1));
+      }
+    }
+    return schema.nameIndex().withPrefix(word, maxCandidates);
+  }
+
+  /**
+   * Reads the candidates of a value completer on a reader thread until
+   * there are enough or the budget is spent. Without a free reader thread
+   * there are no candidates.
+   *
+   * @param option the option index
+   * @param prefix the typed part of the value
+   * @param lead   the text to put before each candidate
+   * @return the candidates
+   */
+  private List<String> values(int option, String prefix, String lead) {
+    ValueCompleter completer = valueCompleters[option];
+    if (completer == null) {
+      return Collections.emptyList();
+    }
+    if (!Readers.PERMITS.tryAcquire()) {
+      // every reader thread is held by a value completer that didn't stop
+      return Collections.emptyList();
+    }
+    ValueReader reader = new ValueReader(completer, prefix, lead, maxCandidates);
+    Readers.EXECUTOR.execute(reader);
+    try {
+      if (reader.finished.await(budget, TimeUnit.NANOSECONDS) && reader.failure != null) {
+        if (reader.failure instanceof RuntimeException) {
+          throw (RuntimeException) reader.failure;
+        }
+        throw (Error) reader.failure;
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return reader.stop();
+  }
+
+  /**
+   * The threads that read value completers, created on first use.
+   */
+  private static final class Readers {
+    /** Number of reader threads. */
+    static final int THREADS = 2;
+    /** One permit per reader thread, held from submitting a reader until it has returned. */
+    static final Semaphore PERMITS = new Semaphore(THREADS);
+    /** Daemon threads, so a blocked value completer doesn't keep the process alive. */
+    static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(THREADS, task -> {
+      Thread thread = new Thread(task, "completer-values");
+      thread.setDaemon(true);
+      return thread;
+    });
+  }
+
+  /**
+   * Gathers the candidates of a value completer until it is stopped.
+   */
+  private static final class ValueReader implements Runnable {
+    /** The value completer. */
+    private final ValueCompleter completer;
+    /** The typed part of the value. */
+    private final String prefix;
+    /** The text to put before each candidate. */
+    private final String lead;
+    /** Maximum number of candidates. */
+    private final int maxCandidates;
+    /** The candidates, guarded by this reader. */
+    private final List<String> candidates;
+    /** True once the candidates were taken, guarded by this reader. */
+    private boolean stopped;
+    /** The thread reading the completer, or null, guarded by this reader. */
+    private Thread runner;
+    /** Counted down when the reader has returned. */
+    final CountDownLatch finished;
+    /** The failure of the completer, or null, read after {@link #finished}. */
+    Throwable failure;
+
+    ValueReader(ValueCompleter completer, String prefix, String lead, int maxCandidates) {
+      this.completer = completer;
+      this.prefix = prefix;
+      this.lead = lead;
+      this.maxCandidates = maxCandidates;
+      candidates = new ArrayList<String>();
+      finished = new CountDownLatch(1);
+    }
+
+    @Override
+    public void run() {
+      try {
+        synchronized (this) {
+          if (stopped) {
+            return;
+          }
+          runner = Thread.currentThread();
+        }
+        read();
+      } catch (RuntimeException | Error e) {
+        failure = e;
+      } finally {
+        synchronized (this) {
+          if (runner != null) {
+            runner = null;
+            // the pool thread must not carry an interrupt to the next reader
+            Thread.interrupted();
+          }
+        }
+        finished.countDown();
+        Readers.PERMITS.release();
+      }
+    }
+
+    /**
+     * Adds candidates until there are enough, or the reader is stopped.
+     */
+    private void read() {
+      for (String value : completer.complete(prefix)) {
+        if (value != null && value.startsWith(prefix)) {
+          synchronized (this) {
+            if (stopped) {
+              return;
+            }
+            candidates.add(lead.isEmpty() ? value : lead + value);
+            if (candidates.size() >= maxCandidates) {
+              return;
+            }
+          }
+        }
+        if (Thread.currentThread().isInterrupted()) {
+          return;
+        }
+      }
+    }
+
+    /**
+     * Stops gathering, interrupting the completer if it is still being
+     * read.
+     *
+     * @return the candidates gathered so far
+     */
+    synchronized List<String> stop() {
+      stopped = true;
+      if (runner != null) {
+        runner.interrupt();
+      }
+      return candidates;
+    }
+  }
+
+  /**
+   * Incremental completion of a command line as it is typed.
+   *
+   * A session remembers the words it has classified. On each completion
+   * only the words from the first one that changed are classified again,
+   * so typing at the end of a long command line costs the same as typing
+   * at the start of a short one.
+   *
+   * A session is not thread safe, use one per command line being edited.
+   */
+  public final class Session {
+    /** The classified words. */
+    private String[] words;
+    /** The state of each classified word. */
+    private int[] states;
+    /** Number of classified words. */
+    private int count;
+
+    private Session() {
+      words = new String[8];
+      states = new int[8];
+    }
+
+    /**
+     * Completes the last of the given words, see
+     * {@link Completer#complete(String[])}.
+     *
+     * @param words the words of the command line up to and including the
+     *     word being completed, which may be empty
+     * @return the candidates for the last word
+     */
+    public List<String> complete(String[] words) {
+      if (words.length == 0) {
+        count = 0;
+        return candidates(NAME, "");
+      }
+      int complete = words.length - 1;
+      if (complete > this.words.length) {
+        int size = Math.max(complete, this.words.length * 2);
+        this.words = Arrays.copyOf(this.words, size);
+        states = Arrays.copyOf(states, size);
+      }
+
+      int i = 0;
+      int limit = Math.min(count, complete);
+      while (i < limit && this.words[i].equals(words[i])) {
+        i++;
+      }
+      for (; i < complete; i++) {
+        this.words[i] = words[i];
+        states[i] = classify((i == 0) ? NAME : states[i - 1], words[i]);
+      }
+      Arrays.fill(this.words, complete, Math.max(complete, count), null);
+      count = complete;
+      return candidates((complete == 0) ? NAME : states[complete - 1], words[complete]);
+    }
+
+    /**
+     * Forgets the classified words.
+     */
+    public void reset() {
+      Arrays.fill(words, 0, count, null);
+      count = 0;
+    }
+  }
+}
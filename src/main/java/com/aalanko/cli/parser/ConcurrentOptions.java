@@ -0,0 +1,191 @@
+package com.aalanko.cli.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
+
+/**
+ * Option and flag definitions that can be added from many threads at once,
+ * then frozen into a {@link Schema}.
+ *
+ * Options and flags share one concurrent map, so a name is claimed with a
+ * single atomic insert and an option and a flag can never end up with the
+ * same name. Threads adding different names don't block each other.
+ *
+ * The order in which threads add their definitions is not kept. Options
+ * and flags are sorted by name when frozen, so the same definitions
+ * always give the same schema.
+ *
+ * @author Andreas Alanko
+ */
+public final class ConcurrentOptions {
+  /** Definitions by name. */
+  private final ConcurrentHashMap<String, Definition> definitions;
+
+  /**
+   * Creates an empty set of definitions.
+   */
+  public ConcurrentOptions() {
+    definitions = new ConcurrentHashMap<String, Definition>();
+  }
+
+  /**
+   * Adds a flag.
+   *
+   * @param name        the flag name
+   * @param description the flag description
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addFlag(String name, String description) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    add(name, new Definition(null, new Flag(name, description)));
+  }
+
+  /**
+   * Adds an option.
+   *
+   * @param name         the option name
+   * @param defaultValue the option default value
+   * @param required     if option is required
+   * @param description  the option description
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addOption(String name, String defaultValue, boolean required, String description) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    add(name, new Definition(new Option(name, defaultValue, required, description), null));
+  }
+
+  /**
+   * Adds a typed option, see {@link Options#addOption(String, String, boolean, String, OptionType)}.
+   *
+   * @param name         the option name
+   * @param defaultValue the option default value
+   * @param required     if option is required
+   * @param description  the option description
+   * @param type         the option value type
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   * @throws InvalidOptionValueException  thrown if the default value can't be converted to the type
+   */
+  public void addOption(String name, String defaultValue, boolean required, String description, OptionType type) throws OptionAlreadyExistsException, FlagAlreadyExistsException, InvalidOptionValueException {
+    Options.checkDefault(name, defaultValue, required, type);
+    add(name, new Definition(new Option(name, defaultValue, required, description, type), null));
+  }
+
+  /**
+   * Adds a repeatable option, see {@link Options#addRepeatableOption(String, boolean, String)}.
+   *
+   * @param name         the option name
+   * @param required     if option is required to be given at least once
+   * @param description  the option description
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addRepeatableOption(String name, boolean required, String description) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    addRepeatableOption(name, required, description, OptionType.STRING);
+  }
+
+  /**
+   * Adds a typed repeatable option, see {@link Options#addRepeatableOption(String, boolean, String, OptionType)}.
+   *
+   * @param name         the option name
+   * @param required     if option is required to be given at least once
+   * @param description  the option description
+   * @param type         the option value type
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addRepeatableOption(String name, boolean required, String description, OptionType type) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    add(name, new Definition(new Option(name, null, required, description, type, true), null));
+  }
+
+  /**
+   * Checks if the option exists.
+   *
+   * @param name the option name
+   * @return true if an option with name exists, false otherwise
+   */
+  public boolean optionExists(String name) {
+    Definition definition = definitions.get(name);
+    return definition != null && definition.option != null;
+  }
+
+  /**
+   * Checks if a flag with the given name exists.
+   *
+   * @param name the flag name
+   * @return true if a flag with name exists, false otherwise
+   */
+  public boolean flagExists(String name) {
+    Definition definition = definitions.get(name);
+    return definition != null && definition.flag != null;
+  }
+
+  /**
+   * Gets the number of options and flags.
+   *
+   * @return the number of definitions
+   */
+  public int size() {
+    return definitions.size();
+  }
+
+  /**
+   * Freezes the definitions into an immutable schema, with the options
+   * and the flags each sorted by name.
+   *
+   * Definitions added while freezing may or may not be part of the
+   * schema, so freeze once all threads are done adding.
+   *
+   * @return the schema
+   */
+  public Schema freeze() {
+    String[] names = definitions.keySet().toArray(new String[0]);
+    Arrays.sort(names);
+
+    List<Option> options = new ArrayList<Option>();
+    List<Flag> flags = new ArrayList<Flag>();
+    for (String name : names) {
+      Definition definition = definitions.get(name);
+      if (definition.option != null) {
+        options.add(definition.option);
+      } else {
+        flags.add(definition.flag);
+      }
+    }
+    return new Schema(options, flags);
+  }
+
+  /**
+   * Claims the name for a definition.
+   */
+  private void add(String name, Definition definition) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    Definition existing = definitions.putIfAbsent(name, definition);
+    if (existing == null) {
+      return;
+    } else if (existing.option != null) {
+      throw new OptionAlreadyExistsException("Option \"" + name + "\" already exists");
+    }
+    throw new FlagAlreadyExistsException("Flag \"" + name + "\" already exists");
+  }
+
+  /**
+   * An option or a flag.
+   */
+  private static final class Definition {
+    /** The option, or null for a flag. */
+    final Option option;
+    /** The flag, or null for an option. */
+    final Flag flag;
+
+    Definition(Option option, Flag flag) {
+      this.option = option;
+      this.flag = flag;
+    }
+  }
+}
@@ -0,0 +1,253 @@
+package com.aalanko.cli.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Option values from a UTF-8 encoded properties file.
+ *
+ * A key is an option name, the leading dashes can be left out, so both
+ * {@code --log-level=debug} and {@code log-level=debug} set the option
+ * {@code --log-level}.
+ *
+ * The file is read once into an immutable snapshot, with the dashes
+ * already stripped from the keys. The snapshot is kept until the
+ * modification time or size of the file changes, and the file is checked
+ * for changes at most once per check interval, so parses in between don't
+ * touch the file system at all. Each parse takes the snapshot once, see
+ * {@link #snapshot()}. A missing file has no values.
+ *
+ * @author Andreas Alanko
+ */
+public final class ConfigFileSource implements ValueSource {
+  /** Default time between checks for changes, in milliseconds. */
+  public static final long DEFAULT_CHECK_INTERVAL = 1000;
+
+  /** The file. */
+  private final Path file;
+  /** Time between checks for changes, in nanoseconds. */
+  private final long checkInterval;
+  /** The current snapshot. */
+  private volatile Snapshot snapshot;
+  /** Option names without leading dashes, by option name. */
+  private final ConcurrentHashMap<String, String> bareNames;
+
+  /**
+   * Creates a source of a file, checked for changes at most once a second.
+   *
+   * @param file the properties file
+   * @throws UncheckedIOException thrown if the file exists but can't be read
+   */
+  public ConfigFileSource(Path file) {
+    this(file, DEFAULT_CHECK_INTERVAL);
+  }
+
+  /**
+   * Creates a source of a file.
+   *
+   * @param file          the properties file
+   * @param checkInterval the time between checks for changes in milliseconds,
+   *                      zero to check on every parse
+   * @throws UncheckedIOException thrown if the file exists but can't be read
+   */
+  public ConfigFileSource(Path file, long checkInterval) {
+    this.file = file;
+    this.checkInterval = checkInterval * 1000000L;
+    bareNames = new ConcurrentHashMap<String, String>();
+    snapshot = load(System.nanoTime());
+  }
+
+  /**
+   * Gets the file.
+   *
+   * @return the file
+   */
+  public Path getFile() {
+    return file;
+  }
+
+  /**
+   * Gets the current values, re-reading the file if it has changed.
+   *
+   * @return unmodifiable map of values by key, as written in the file
+   * @throws UncheckedIOException thrown if the file exists but can't be read
+   */
+  public Map<String, String> getValues() {
+    return current().values;
+  }
+
+  @Override
+  public String get(String name) {
+    return current().get(name);
+  }
+
+  /**
+   * Gets the current values, re-reading the file if it has changed. The
+   * returned snapshot doesn't change when the file does.
+   *
+   * @return the current snapshot
+   * @throws UncheckedIOException thrown if the file exists but can't be read
+   */
+  @Override
+  public ValueSource snapshot() {
+    return current();
+  }
+
+  /**
+   * Gets an option name without leading dashes, derived once per name.
+   */
+  private String bareName(String name) {
+    String bare = bareNames.get(name);
+    if (bare == null) {
+      bare = stripDashes(name);
+      bareNames.putIfAbsent(name, bare);
+    }
+    return bare;
+  }
+
+  /**
+   * Removes the leading dashes of a name.
+   */
+  private static String stripDashes(String name) {
+    int start = 0;
+    while (start < name.length() && name.charAt(start) == '-') {
+      start++;
+    }
+    return name.substring(start);
+  }
+
+  /**
+   * Gets the snapshot, replacing it when the check interval has passed and
+   * the file has changed. Concurrent callers may both re-read the file, the
+   * last snapshot wins.
+   */
+  private Snapshot current() {
+    Snapshot current = snapshot;
+    long now = System.nanoTime();
+    if (now - current.checked < checkInterval) {
+      return current;
+    }
+
+    BasicFileAttributes attributes = attributes(file);
+    if (attributes == null ? current.modified == -1
+        : attributes.lastModifiedTime().toMillis() == current.modified && attributes.size() == current.size) {
+      snapshot = new Snapshot(current.modified, current.size, current.values, current.bareValues, now);
+      return current;
+    }
+    current = load(now);
+    snapshot = current;
+    return current;
+  }
+
+  /**
+   * Reads the file into a snapshot.
+   */
+  private Snapshot load(long now) {
+    BasicFileAttributes attributes = attributes(file);
+    if (attributes == null) {
+      return new Snapshot(-1, -1, Collections.<String, String>emptyMap(), now);
+    }
+
+    Properties properties = new Properties();
+    try (Reader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+      properties.load(reader);
+    } catch (NoSuchFileException e) {
+      return new Snapshot(-1, -1, Collections.<String, String>emptyMap(), now);
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't read config file " + file, e);
+    }
+
+    Map<String, String> values = new HashMap<String, String>();
+    for (String key : properties.stringPropertyNames()) {
+      values.put(key, properties.getProperty(key));
+    }
+    return new Snapshot(attributes.lastModifiedTime().toMillis(), attributes.size(), Collections.unmodifiableMap(values), now);
+  }
+
+  /**
+   * Reads the attributes of the file.
+   *
+   * @return the attributes, or null if the file doesn't exist
+   */
+  private static BasicFileAttributes attributes(Path file) {
+    try {
+      return Files.readAttributes(file, BasicFileAttributes.class);
+    } catch (NoSuchFileException e) {
+      return null;
+    } catch (IOException e) {
+      throw new UncheckedIOException("Can't read config file " + file, e);
+    }
+  }
+
+  /**
+   * The values of the file at one point in time.
+   */
+  private final class Snapshot implements ValueSource {
+    /** Modification time of the file in milliseconds, -1 if missing. */
+    final long modified;
+    /** Size of the file, -1 if missing. */
+    final long size;
+    /** The values by key, as written in the file. */
+    final Map<String, String> values;
+    /** The values by key without leading dashes. */
+    final Map<String, String> bareValues;
+    /** Time of the last check for changes, in {@link System#nanoTime()} units. */
+    final long checked;
+
+    Snapshot(long modified, long size, Map<String, String> values, long checked) {
+      this(modified, size, values, bareValues(values), checked);
+    }
+
+    Snapshot(long modified, long size, Map<String, String> values, Map<String, String> bareValues, long checked) {
+      this.modified = modified;
+      this.size = size;
+      this.values = values;
+      this.bareValues = bareValues;
+      this.checked = checked;
+    }
+
+    /**
+     * Gets a value by the key as written, or by the option name without
+     * dashes.
+     */
+    @Override
+    public String get(String name) {
+      String value = values.get(name);
+      if (value == null && !bareValues.isEmpty() && name.startsWith("-")) {
+        value = bareValues.get(bareName(name));
+      }
+      return value;
+    }
+  }
+
+  /**
+   * Keys the values by their key without leading dashes. A key written
+   * without dashes wins over keys that only match once stripped.
+   */
+  private static Map<String, String> bareValues(Map<String, String> values) {
+    if (values.isEmpty()) {
+      return values;
+    }
+    Map<String, String> bare = new HashMap<String, String>();
+    for (Map.Entry<String, String> entry : values.entrySet()) {
+      String key = stripDashes(entry.getKey());
+      if (key.length() == entry.getKey().length()) {
+        bare.put(key, entry.getValue());
+      } else {
+        bare.putIfAbsent(key, entry.getValue());
+      }
+    }
+    return bare;
+  }
+}
@@ -0,0 +1,82 @@
+package com.aalanko.cli.parser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Option values from environment variables.
+ *
+ * The variable of an option is its name without leading dashes, upper
+ * cased, with every character that is not a letter or digit replaced by
+ * an underscore and the prefix in front. With the prefix {@code APP_} the
+ * option {@code --log-level} is read from {@code APP_LOG_LEVEL}.
+ *
+ * The environment is copied when the source is created, and the variable
+ * name of each option is only derived once.
+ *
+ * @author Andreas Alanko
+ */
+public final class EnvironmentSource implements ValueSource {
+  /** Cached marker for options without a variable. */
+  private static final String ABSENT = new String();
+
+  /** The variable name prefix. */
+  private final String prefix;
+  /** The environment. */
+  private final Map<String, String> environment;
+  /** Values by option name, {@link #ABSENT} if there is none. */
+  private final ConcurrentHashMap<String, String> values;
+
+  /**
+   * Creates a source of the process environment.
+   *
+   * @param prefix the variable name prefix
+   */
+  public EnvironmentSource(String prefix) {
+    this(prefix, System.getenv());
+  }
+
+  /**
+   * Creates a source of the given variables.
+   *
+   * @param prefix      the variable name prefix
+   * @param environment the variables, copied
+   */
+  public EnvironmentSource(String prefix, Map<String, String> environment) {
+    this.prefix = prefix;
+    this.environment = Collections.unmodifiableMap(new HashMap<String, String>(environment));
+    values = new ConcurrentHashMap<String, String>();
+  }
+
+  /**
+   * Gets the variable name of an option.
+   *
+   * @param name the option name
+   * @return the variable name
+   */
+  public String variableName(String name) {
+    int start = 0;
+    while (start < name.length() && name.charAt(start) == '-') {
+      start++;
+    }
+    StringBuilder variable = new StringBuilder(prefix.length() + name.length() - start);
+    variable.append(prefix);
+    for (int i = start; i < name.length(); i++) {
+      char c = name.charAt(i);
+      variable.append(Character.isLetterOrDigit(c) ? Character.toUpperCase(c) : '_');
+    }
+    return variable.toString();
+  }
+
+  @Override
+  public String get(String name) {
+    String value = values.get(name);
+    if (value == null) {
+      value = environment.get(variableName(name));
+      values.putIfAbsent(name, (value == null) ? ABSENT : value);
+    }
+    return (value == ABSENT) ? null : value;
+  }
+}
@@ -0,0 +1,27 @@
+package com.aalanko.cli.parser;
+
+/**
+ * The kind of a {@link ParseError}.
+ *
+ * @author Andreas Alanko
+ */
+public enum ErrorCode {
+  /** An option is followed by another option or flag, or by nothing. */
+  MISSING_OPTION_VALUE,
+  /** An option is given more than once. */
+  OPTION_ALREADY_SET,
+  /** A required option is not given. */
+  MISSING_REQUIRED_OPTION,
+  /** An option value can't be converted to the option type. */
+  INVALID_OPTION_VALUE,
+  /** A quote is not closed before the end of the command line. */
+  UNTERMINATED_QUOTE,
+  /** A response file can't be read. */
+  RESPONSE_FILE,
+  /** The subcommand is missing or unknown. */
+  UNKNOWN_COMMAND,
+  /** A token looks like an option but is not an option or flag name. */
+  UNKNOWN_OPTION,
+  /** An abbreviated option or flag name is the prefix of more than one name. */
+  AMBIGUOUS_OPTION
+}
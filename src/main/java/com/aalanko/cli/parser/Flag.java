@@ -56,4 +56,11 @@ public class Flag {
   public void set() {
     isSet = true;
   }
+
+  /**
+   * Marks the flag as not set.
+   */
+  public void reset() {
+    isSet = false;
+  }
 }
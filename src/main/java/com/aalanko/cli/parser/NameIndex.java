@@ -0,0 +1,268 @@
+package com.aalanko.cli.parser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Prefix and similarity lookups over the names of a schema.
+ *
+ * Prefixes are resolved with a binary search over the sorted names, read
+ * directly from a character range. Similar names are found with a BK-tree
+ * keyed by edit distance, which only visits the names whose distance can
+ * still be within the limit instead of comparing against every name.
+ *
+ * @author Andreas Alanko
+ */
+final class NameIndex {
+  /** Result of a prefix lookup that matches more than one name. */
+  static final int AMBIGUOUS = -2;
+
+  /** The names, sorted. */
+  private final String[] sorted;
+  /** Descriptors of the sorted names. */
+  private final int[] descriptors;
+  /** Root of the BK-tree, or null if there are no names. */
+  private final Node root;
+
+  /**
+   * Creates an index of the given names, the position of each name is its
+   * descriptor.
+   *
+   * @param names the names, must be unique
+   */
+  NameIndex(String[] names) {
+    Integer[] order = new Integer[names.length];
+    for (int i = 0; i < order.length; i++) {
+      order[i] = i;
+    }
+    Arrays.sort(order, (a, b) -> names[a].compareTo(names[b]));
+
+    sorted = new String[names.length];
+    descriptors = new int[names.length];
+    for (int i = 0; i < order.length; i++) {
+      sorted[i] = names[order[i]];
+      descriptors[i] = order[i];
+    }
+
+    Node tree = null;
+    for (int i = 0; i < names.length; i++) {
+      if (tree == null) {
+        tree = new Node(names[i], i);
+      } else {
+        tree.add(names[i], i);
+      }
+    }
+    root = tree;
+  }
+
+  /**
+   * Resolves the name that a range of characters is a prefix of.
+   *
+   * @param chars the characters
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   * @return the descriptor, -1 if no name starts with the range or
+   *     {@link #AMBIGUOUS} if more than one does
+   */
+  int prefix(CharSequence chars, int start, int end) {
+    int first = lowerBound(chars, start, end);
+    if (first == sorted.length || !startsWith(sorted[first], chars, start, end)) {
+      return -1;
+    } else if (first + 1 < sorted.length && startsWith(sorted[first + 1], chars, start, end)) {
+      return AMBIGUOUS;
+    }
+    return descriptors[first];
+  }
+
+  /**
+   * Gets all names that start with a prefix, sorted.
+   *
+   * @param prefix the prefix
+   * @return the names
+   */
+  List<String> withPrefix(String prefix) {
+    return withPrefix(prefix, Integer.MAX_VALUE);
+  }
+
+  /**
+   * Gets the first names that start with a prefix, sorted.
+   *
+   * @param prefix the prefix
+   * @param limit  the largest number of names to get
+   * @return the names
+   */
+  List<String> withPrefix(String prefix, int limit) {
+    List<String> names = new ArrayList<String>();
+    for (int i = lowerBound(prefix, 0, prefix.length()); i < sorted.length && names.size() < limit && sorted[i].startsWith(prefix); i++) {
+      names.add(sorted[i]);
+    }
+    return names;
+  }
+
+  /**
+   * Finds the name closest to a misspelled one.
+   *
+   * @param name        the misspelled name
+   * @param maxDistance the largest edit distance to accept
+   * @return the closest name, or null if none is within the distance
+   */
+  String closest(String name, int maxDistance) {
+    if (root == null) {
+      return null;
+    }
+    Node[] best = new Node[1];
+    int[] bestDistance = { maxDistance + 1 };
+    root.search(name, best, bestDistance);
+    return (best[0] == null) ? null : best[0].name;
+  }
+
+  /**
+   * Finds the first sorted name not less than a range of characters.
+   */
+  private int lowerBound(CharSequence chars, int start, int end) {
+    int low = 0;
+    int high = sorted.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (compare(sorted[middle], chars, start, end) < 0) {
+        low = middle + 1;
+      } else {
+        high = middle;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Compares a name with a range of characters, like
+   * {@link String#compareTo(String)}.
+   */
+  private static int compare(String name, CharSequence chars, int start, int end) {
+    int length = Math.min(name.length(), end - start);
+    for (int i = 0; i < length; i++) {
+      int difference = name.charAt(i) - chars.charAt(start + i);
+      if (difference != 0) {
+        return difference;
+      }
+    }
+    return name.length() - (end - start);
+  }
+
+  /**
+   * Checks if a name starts with a range of characters.
+   */
+  private static boolean startsWith(String name, CharSequence chars, int start, int end) {
+    if (name.length() < end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (name.charAt(i - start) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Computes the edit distance between two strings.
+   *
+   * @param a the first string
+   * @param b the second string
+   * @return the number of single character insertions, deletions and
+   *     substitutions that turn one into the other
+   */
+  static int distance(String a, String b) {
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = (a.charAt(i - 1) == b.charAt(j - 1)) ? 0 : 1;
+        current[j] = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+      }
+      int[] swap = previous;
+      previous = current;
+      current = swap;
+    }
+    return previous[b.length()];
+  }
+
+  /**
+   * A node of the BK-tree. The children of a node are keyed by their edit
+   * distance to it.
+   */
+  private static final class Node {
+    /** The name. */
+    final String name;
+    /** Order the name was added in, breaks ties between equally close names. */
+    final int order;
+    /** Edit distances of the children. */
+    private int[] distances;
+    /** The children. */
+    private Node[] children;
+    /** Number of children. */
+    private int size;
+
+    Node(String name, int order) {
+      this.name = name;
+      this.order = order;
+    }
+
+    /**
+     * Adds a name below this node.
+     */
+    void add(String name, int order) {
+      Node node = this;
+      while (true) {
+        int distance = distance(name, node.name);
+        Node child = node.child(distance);
+        if (child == null) {
+          node.addChild(distance, new Node(name, order));
+          return;
+        }
+        node = child;
+      }
+    }
+
+    /**
+     * Searches this subtree for a name closer than the best so far.
+     */
+    void search(String query, Node[] best, int[] bestDistance) {
+      int distance = distance(query, name);
+      if (distance < bestDistance[0] || (distance == bestDistance[0] && best[0] != null && order < best[0].order)) {
+        best[0] = this;
+        bestDistance[0] = distance;
+      }
+      for (int i = 0; i < size; i++) {
+        if (Math.abs(distances[i] - distance) <= bestDistance[0]) {
+          children[i].search(query, best, bestDistance);
+        }
+      }
+    }
+
+    private Node child(int distance) {
+      for (int i = 0; i < size; i++) {
+        if (distances[i] == distance) {
+          return children[i];
+        }
+      }
+      return null;
+    }
+
+    private void addChild(int distance, Node child) {
+      if (children == null) {
+        distances = new int[2];
+        children = new Node[2];
+      } else if (size == children.length) {
+        distances = Arrays.copyOf(distances, size * 2);
+        children = Arrays.copyOf(children, size * 2);
+      }
+      distances[size] = distance;
+      children[size++] = child;
+    }
+  }
+}
@@ -0,0 +1,197 @@
+package com.aalanko.cli.parser;
+
+/**
+ * An open addressing hash table from names to descriptors.
+ *
+ * Options and flags share one table, descriptors below the option count
+ * are option indices and the rest are flag indices offset by the option
+ * count. A token is therefore classified and resolved with a single probe
+ * sequence. Names can be looked up from any character range without first
+ * creating a string for it.
+ *
+ * @author Andreas Alanko
+ */
+final class NameTable {
+  /** Slot contents, the descriptor plus one or zero for an empty slot. */
+  private final int[] slots;
+  /** Name hashes by descriptor. */
+  private final int[] hashes;
+  /** Names by descriptor. */
+  private final String[] names;
+  /** Slot index mask. */
+  private final int mask;
+  /** Prefix and similarity index, built on first use. */
+  private volatile NameIndex index;
+
+  /**
+   * Creates a table for the given names, the position of each name is its
+   * descriptor.
+   *
+   * @param names the names, must be unique
+   */
+  NameTable(String[] names) {
+    int capacity = 2;
+    while (capacity < names.length * 2) {
+      capacity <<= 1;
+    }
+    this.names = names;
+    slots = new int[capacity];
+    hashes = new int[names.length];
+    mask = capacity - 1;
+
+    for (int i = 0; i < names.length; i++) {
+      int hash = names[i].hashCode();
+      int slot = spread(hash) & mask;
+      while (slots[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      hashes[i] = hash;
+      slots[slot] = i + 1;
+    }
+  }
+
+  /**
+   * Creates a table from a prebuilt slot layout, see {@link #slots()}.
+   *
+   * The layout is checked before it is used: there must be more slots than
+   * names, so every probe sequence ends at an empty slot, each descriptor
+   * must be in exactly one slot, each hash must be the hash of its name
+   * and each name must be found from its hash.
+   *
+   * @param names  the names by descriptor
+   * @param slots  the slot contents, the length is a power of two
+   * @param hashes the name hashes by descriptor
+   * @throws IllegalArgumentException thrown if the layout doesn't fit the names
+   */
+  NameTable(String[] names, int[] slots, int[] hashes) {
+    if (Integer.bitCount(slots.length) != 1 || slots.length <= names.length || hashes.length != names.length) {
+      throw new IllegalArgumentException("Invalid name table layout");
+    }
+    boolean[] placed = new boolean[names.length];
+    for (int entry : slots) {
+      if (entry < 0 || entry > names.length || (entry > 0 && placed[entry - 1])) {
+        throw new IllegalArgumentException("Invalid name table slot " + entry);
+      } else if (entry > 0) {
+        placed[entry - 1] = true;
+      }
+    }
+    for (int i = 0; i < names.length; i++) {
+      if (!placed[i]) {
+        throw new IllegalArgumentException("Name table lacks descriptor " + i);
+      } else if (names[i] == null || hashes[i] != names[i].hashCode()) {
+        throw new IllegalArgumentException("Invalid name table entry " + i);
+      }
+    }
+    this.names = names;
+    this.slots = slots;
+    this.hashes = hashes;
+    mask = slots.length - 1;
+
+    for (int i = 0; i < names.length; i++) {
+      if (lookup(names[i]) != i) {
+        throw new IllegalArgumentException("Name \"" + names[i] + "\" is not in its slot");
+      }
+    }
+  }
+
+  /**
+   * Gets the slot contents, the descriptor plus one or zero for an empty
+   * slot.
+   *
+   * @return the slots, must not be modified
+   */
+  int[] slots() {
+    return slots;
+  }
+
+  /**
+   * Gets the name hashes by descriptor.
+   *
+   * @return the hashes, must not be modified
+   */
+  int[] hashes() {
+    return hashes;
+  }
+
+  /**
+   * Looks up a name.
+   *
+   * @param name the name
+   * @return the descriptor, or -1 if the name is not in the table
+   */
+  int lookup(String name) {
+    int hash = name.hashCode();
+    int slot = spread(hash) & mask;
+    int entry;
+    while ((entry = slots[slot]) != 0) {
+      int descriptor = entry - 1;
+      if (hashes[descriptor] == hash && names[descriptor].equals(name)) {
+        return descriptor;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Looks up the name held by a range of characters.
+   *
+   * @param chars the characters
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   * @return the descriptor, or -1 if the name is not in the table
+   */
+  int lookup(CharSequence chars, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    int slot = spread(hash) & mask;
+    int entry;
+    while ((entry = slots[slot]) != 0) {
+      int descriptor = entry - 1;
+      if (hashes[descriptor] == hash && regionEquals(names[descriptor], chars, start, end)) {
+        return descriptor;
+      }
+      slot = (slot + 1) & mask;
+    }
+    return -1;
+  }
+
+  /**
+   * Gets the prefix and similarity index of the names, building it on
+   * first use.
+   *
+   * @return the index
+   */
+  NameIndex index() {
+    NameIndex result = index;
+    if (result == null) {
+      result = new NameIndex(names);
+      index = result;
+    }
+    return result;
+  }
+
+  /**
+   * Compares a name with a range of characters.
+   */
+  private static boolean regionEquals(String name, CharSequence chars, int start, int end) {
+    if (name.length() != end - start) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      if (name.charAt(i) != chars.charAt(start + i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Spreads the higher hash bits into the lower ones used for the slot.
+   */
+  private static int spread(int hash) {
+    return hash ^ (hash >>> 16);
+  }
+}
@@ -1,5 +1,8 @@
 package com.aalanko.cli.parser;
 
+import java.util.Collections;
+import java.util.List;
+
 /**
  * @author Andreas Alanko
  */
@@ -8,12 +11,20 @@ public class Option {
   private String name;
   /** The option value. */
   private String value;
+  /** The option default value. */
+  private String defaultValue;
   /** The option description. */
   private String description;
   /** Flag if option is required. */
   private boolean required;
   /** Flag if value has been set. */
   private boolean isSet;
+  /** The option value type. */
+  private OptionType type;
+  /** Flag if option can be given more than once. */
+  private boolean repeatable;
+  /** All values of a repeatable option. */
+  private OptionValues values;
 
   /**
    * 
@@ -23,13 +34,53 @@ public class Option {
    * @param description  the option description
    */
   public Option(String name, String defaultValue, boolean required, String description) {
+    this(name, defaultValue, required, description, OptionType.STRING);
+  }
+
+  /**
+   * 
+   * @param name         the option name
+   * @param defaultValue the option default value
+   * @param required     if the option is required to be set
+   * @param description  the option description
+   * @param type         the option value type
+   */
+  public Option(String name, String defaultValue, boolean required, String description, OptionType type) {
+    this(name, defaultValue, required, description, type, false);
+  }
+
+  /**
+   * 
+   * @param name         the option name
+   * @param defaultValue the option default value
+   * @param required     if the option is required to be set
+   * @param description  the option description
+   * @param type         the option value type
+   * @param repeatable   if the option can be given more than once
+   */
+  public Option(String name, String defaultValue, boolean required, String description, OptionType type, boolean repeatable) {
     this.name = name;
+    this.type = type;
+    this.repeatable = repeatable;
+    values = (repeatable) ? new OptionValues(OptionType.STRING) : null;
     this.required = required;
     this.description = description;
-    value = (required) ? null : defaultValue;
+    this.defaultValue = (required) ? null : defaultValue;
+    value = this.defaultValue;
     isSet = false;
   }
 
+  /**
+   * Gets the option default value.
+   * 
+   * Required options never have a default value.
+   * 
+   * @return the option default value
+   */
+  public String getDefaultValue() {
+    return defaultValue;
+  }
+
   /**
    * Gets the option description.
    * 
@@ -48,15 +99,50 @@ public class Option {
     return name;
   }
 
+  /**
+   * Gets the option value type.
+   * 
+   * @return the option value type
+   */
+  public OptionType getType() {
+    return type;
+  }
+
   /**
    * Gets the option value.
    * 
+   * For repeatable options this is the last value given.
+   * 
    * @return the option value
    */
   public String getValue() {
     return value;
   }
 
+  /**
+   * Gets all values of the option, in the order they were given.
+   * 
+   * The list is an unmodifiable view. It holds at most one value for an
+   * option that is not repeatable, and never holds the default value.
+   * 
+   * @return list of values
+   */
+  public List<String> getValues() {
+    if (repeatable) {
+      return values.asList();
+    }
+    return (isSet) ? Collections.singletonList(value) : Collections.<String>emptyList();
+  }
+
+  /**
+   * Checks if the option can be given more than once.
+   * 
+   * @return true if repeatable, false otherwise
+   */
+  public boolean repeatable() {
+    return repeatable;
+  }
+
   /**
    * Checks if the option value has been set.
    * 
@@ -79,17 +165,31 @@ public class Option {
    * Sets the option value.
    * 
    * If the option value has already been set once the method will
-   * return false.
+   * return false, unless the option is repeatable. Values of repeatable
+   * options are appended.
    * 
    * @param value the option value
    * @return true if value could be set, false otherwise
    */
   public boolean setValue(String value) {
-    if (isSet) {
+    if (repeatable) {
+      values.addString(value);
+    } else if (isSet) {
       return false;
     }
     this.value = value;
     isSet = true;
     return true;
   }
+
+  /**
+   * Restores the default value and marks the option as not set.
+   */
+  public void reset() {
+    value = defaultValue;
+    isSet = false;
+    if (values != null) {
+      values.clear();
+    }
+  }
 }
@@ -0,0 +1,102 @@
+package com.aalanko.cli.parser;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+
+/**
+ * The type of an option value.
+ *
+ * Typed option values are converted once when they are parsed and kept as
+ * primitives, see {@link ParseResult#getInt(String)},
+ * {@link ParseResult#getLong(String)} and
+ * {@link ParseResult#getDouble(String)}.
+ *
+ * @author Andreas Alanko
+ */
+public enum OptionType {
+  /** A string value, kept as is. */
+  STRING {
+    @Override
+    long convert(String value) {
+      return 0;
+    }
+  },
+  /** A 32-bit integer value. */
+  INT {
+    @Override
+    long convert(String value) {
+      return Integer.parseInt(value.trim());
+    }
+  },
+  /** A 64-bit integer value. */
+  LONG {
+    @Override
+    long convert(String value) {
+      return Long.parseLong(value.trim());
+    }
+  },
+  /** A double precision floating point value. */
+  DOUBLE {
+    @Override
+    long convert(String value) {
+      return Double.doubleToRawLongBits(Double.parseDouble(value));
+    }
+  },
+  /**
+   * A duration, kept as milliseconds.
+   *
+   * Either an ISO-8601 duration such as {@code PT1M30S} or a whole number
+   * with one of the units {@code ms}, {@code s}, {@code m}, {@code h} or
+   * {@code d}. A number without a unit is milliseconds.
+   */
+  DURATION {
+    @Override
+    long convert(String value) {
+      String trimmed = value.trim();
+      if (trimmed.startsWith("P") || trimmed.startsWith("p") || trimmed.startsWith("-P")) {
+        try {
+          return Duration.parse(trimmed).toMillis();
+        } catch (DateTimeParseException e) {
+          throw new IllegalArgumentException(e.getMessage());
+        } catch (ArithmeticException e) {
+          throw new IllegalArgumentException(e.getMessage());
+        }
+      }
+
+      int end = trimmed.length();
+      while (end > 0 && Character.isLetter(trimmed.charAt(end - 1))) {
+        end--;
+      }
+      long amount = Long.parseLong(trimmed.substring(0, end));
+      String unit = trimmed.substring(end);
+
+      try {
+        if (unit.isEmpty() || unit.equals("ms")) {
+          return amount;
+        } else if (unit.equals("s")) {
+          return Math.multiplyExact(amount, 1000L);
+        } else if (unit.equals("m")) {
+          return Math.multiplyExact(amount, 60000L);
+        } else if (unit.equals("h")) {
+          return Math.multiplyExact(amount, 3600000L);
+        } else if (unit.equals("d")) {
+          return Math.multiplyExact(amount, 86400000L);
+        }
+      } catch (ArithmeticException e) {
+        throw new IllegalArgumentException("Duration out of range: " + value);
+      }
+      throw new IllegalArgumentException("Unknown duration unit \"" + unit + "\"");
+    }
+  };
+
+  /**
+   * Converts a value to its primitive representation.
+   *
+   * Doubles are returned as their raw long bits.
+   *
+   * @param value the value
+   * @return the primitive representation
+   * @throws IllegalArgumentException thrown if the value can't be converted
+   */
+  abstract long convert(String value);
+}
@@ -0,0 +1,238 @@
+package com.aalanko.cli.parser;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+
+/**
+ * The values of a repeatable option, in the order they were given.
+ *
+ * String values are kept in a growable array. Typed values are converted
+ * when they are added and only their primitives are kept, in a growable
+ * long array, so repeating a typed option creates no object per value.
+ *
+ * @author Andreas Alanko
+ */
+public final class OptionValues {
+  /** Shared empty string storage. */
+  private static final String[] NO_STRINGS = new String[0];
+  /** Shared empty number storage. */
+  private static final long[] NO_NUMBERS = new long[0];
+
+  /** The value type. */
+  private final OptionType type;
+  /** String values, used for {@link OptionType#STRING}. */
+  private String[] strings;
+  /** Converted values, used for all other types. */
+  private long[] numbers;
+  /** Number of values. */
+  private int size;
+
+  /**
+   * Creates an empty list of values.
+   *
+   * @param type the value type
+   */
+  OptionValues(OptionType type) {
+    this.type = type;
+    strings = NO_STRINGS;
+    numbers = NO_NUMBERS;
+  }
+
+  /**
+   * Gets the value type.
+   *
+   * @return the value type
+   */
+  public OptionType getType() {
+    return type;
+  }
+
+  /**
+   * Gets the number of values.
+   *
+   * @return the number of values
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Checks if there are no values.
+   *
+   * @return true if there are no values, false otherwise
+   */
+  public boolean isEmpty() {
+    return size == 0;
+  }
+
+  /**
+   * Gets a value as a string.
+   *
+   * Typed values are not kept as strings, they are formatted from their
+   * primitive, so an int value given as {@code 007} is returned as
+   * {@code 7} and durations are returned as milliseconds.
+   *
+   * @param index the value index
+   * @return the value
+   */
+  public String get(int index) {
+    checkIndex(index);
+    if (type == OptionType.STRING) {
+      return strings[index];
+    } else if (type == OptionType.DOUBLE) {
+      return Double.toString(Double.longBitsToDouble(numbers[index]));
+    }
+    return Long.toString(numbers[index]);
+  }
+
+  /**
+   * Gets an {@link OptionType#INT} value.
+   *
+   * @param index the value index
+   * @return the value
+   * @throws OptionTypeMismatchException thrown if the values are not int values
+   */
+  public int getInt(int index) throws OptionTypeMismatchException {
+    checkType(OptionType.INT, null, null);
+    checkIndex(index);
+    return (int) numbers[index];
+  }
+
+  /**
+   * Gets an {@link OptionType#LONG}, {@link OptionType#INT} or
+   * {@link OptionType#DURATION} value. Durations are returned in
+   * milliseconds.
+   *
+   * @param index the value index
+   * @return the value
+   * @throws OptionTypeMismatchException thrown if the values are not integer or duration values
+   */
+  public long getLong(int index) throws OptionTypeMismatchException {
+    checkType(OptionType.LONG, OptionType.INT, OptionType.DURATION);
+    checkIndex(index);
+    return numbers[index];
+  }
+
+  /**
+   * Gets a {@link OptionType#DOUBLE}, {@link OptionType#INT} or
+   * {@link OptionType#LONG} value.
+   *
+   * @param index the value index
+   * @return the value
+   * @throws OptionTypeMismatchException thrown if the values are not numeric values
+   */
+  public double getDouble(int index) throws OptionTypeMismatchException {
+    checkType(OptionType.DOUBLE, OptionType.INT, OptionType.LONG);
+    checkIndex(index);
+    if (type == OptionType.DOUBLE) {
+      return Double.longBitsToDouble(numbers[index]);
+    }
+    return numbers[index];
+  }
+
+  /**
+   * Gets the values as an unmodifiable list of strings, without copying
+   * them. The list is a view and sees values added later. Typed values are
+   * formatted as described in {@link #get(int)}.
+   *
+   * @return list of values
+   */
+  public List<String> asList() {
+    return new AbstractList<String>() {
+      @Override
+      public String get(int index) {
+        return OptionValues.this.get(index);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  /**
+   * Gets a value without checking the index, for callers that already
+   * know the size.
+   *
+   * @param index the value index
+   * @return the string value
+   */
+  String string(int index) {
+    return strings[index];
+  }
+
+  /**
+   * Gets a converted value without checking the index.
+   *
+   * @param index the value index
+   * @return the value as converted by {@link OptionType#convert(String)}
+   */
+  long number(int index) {
+    return numbers[index];
+  }
+
+  /**
+   * Adds a string value.
+   *
+   * @param value the value
+   */
+  void addString(String value) {
+    if (size == strings.length) {
+      strings = Arrays.copyOf(strings, Math.max(4, size * 2));
+    }
+    strings[size++] = value;
+  }
+
+  /**
+   * Adds a converted value.
+   *
+   * @param number the value as converted by {@link OptionType#convert(String)}
+   */
+  void addNumber(long number) {
+    if (size == numbers.length) {
+      numbers = Arrays.copyOf(numbers, Math.max(4, size * 2));
+    }
+    numbers[size++] = number;
+  }
+
+  /**
+   * Removes all values, keeping the storage.
+   */
+  void clear() {
+    if (type == OptionType.STRING) {
+      Arrays.fill(strings, 0, size, null);
+    }
+    size = 0;
+  }
+
+  /**
+   * Checks a value index.
+   */
+  private void checkIndex(int index) {
+    if (index < 0 || index >= size) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+    }
+  }
+
+  /**
+   * Checks that the value type is one of the given types.
+   */
+  private void checkType(OptionType accepted, OptionType other, OptionType third) throws OptionTypeMismatchException {
+    if (type != accepted && type != other && type != third) {
+      throw new OptionTypeMismatchException("Values are of type " + type + ", not " + accepted);
+    }
+  }
+
+  /**
+   * Returns a string representing the values.
+   *
+   * @return the string representation
+   */
+  public String toString() {
+    return asList().toString();
+  }
+}
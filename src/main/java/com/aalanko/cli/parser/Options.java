@@ -1,10 +1,15 @@
 package com.aalanko.cli.parser;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.stream.Stream;
 
 import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
 import com.aalanko.cli.parser.exceptions.FlagNotFoundException;
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
 import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
@@ -18,12 +23,15 @@ public class Options {
   private HashMap<String, Option> options;
   /** Map of flag names and flag objects. */
   private HashMap<String, Flag> flags;
+  /** Map of all option and flag names and their objects. */
+  private HashMap<String, Object> names;
   /** List of data. */
   private ArrayList<String> data;
 
   public Options() {
-    options = new HashMap<String, Option>();
-    flags = new HashMap<String, Flag>();
+    options = new LinkedHashMap<String, Option>();
+    flags = new LinkedHashMap<String, Flag>();
+    names = new HashMap<String, Object>();
     data = new ArrayList<String>();
   }
   
@@ -50,7 +58,9 @@ public class Options {
     } else if (flagExists(name)) {
       throw new FlagAlreadyExistsException("Flag \"" + name + "\" already exists");
     }
-    flags.put(name, new Flag(name, description));
+    Flag flag = new Flag(name, description);
+    flags.put(name, flag);
+    names.put(name, flag);
   }
   
   /**
@@ -69,7 +79,107 @@ public class Options {
     } else if (flagExists(name)) {
       throw new FlagAlreadyExistsException("Flag \"" + name + "\" already exists");
     }
-    options.put(name, new Option(name, defaultValue, required, description));
+    put(new Option(name, defaultValue, required, description));
+  }
+  
+  /**
+   * Adds a typed option.
+   * 
+   * Values of typed options are converted once when they are parsed against
+   * a frozen schema, see {@link ParseResult#getInt(String)}.
+   * 
+   * @param name         the option name
+   * @param defaultValue the option default value
+   * @param required     if option is required
+   * @param description  the option description
+   * @param type         the option value type
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   * @throws InvalidOptionValueException  thrown if the default value can't be converted to the type
+   */
+  public void addOption(String name, String defaultValue, boolean required, String description, OptionType type) throws OptionAlreadyExistsException, FlagAlreadyExistsException, InvalidOptionValueException {
+    if (optionExists(name)) {
+      throw new OptionAlreadyExistsException("Option \"" + name + "\" already exists");
+    } else if (flagExists(name)) {
+      throw new FlagAlreadyExistsException("Flag \"" + name + "\" already exists");
+    }
+    checkDefault(name, defaultValue, required, type);
+    put(new Option(name, defaultValue, required, description, type));
+  }
+
+  /**
+   * Checks that the default value of an optional typed option can be
+   * converted to its type.
+   *
+   * @param name         the option name
+   * @param defaultValue the option default value, or null
+   * @param required     if option is required
+   * @param type         the option value type
+   * @throws InvalidOptionValueException thrown if the default value can't be converted to the type
+   */
+  static void checkDefault(String name, String defaultValue, boolean required, OptionType type) throws InvalidOptionValueException {
+    if (defaultValue != null && !required) {
+      try {
+        type.convert(defaultValue);
+      } catch (IllegalArgumentException e) {
+        throw new InvalidOptionValueException("Invalid default value for option \"" + name + "\": " + e.getMessage());
+      }
+    }
+  }
+  
+  /**
+   * Adds a repeatable option.
+   * 
+   * A repeatable option can be given any number of times, each value is
+   * appended instead of failing with an
+   * {@link OptionAlreadySetException}.
+   * 
+   * @param name         the option name
+   * @param required     if option is required to be given at least once
+   * @param description  the option description
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addRepeatableOption(String name, boolean required, String description) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    addRepeatableOption(name, required, description, OptionType.STRING);
+  }
+  
+  /**
+   * Adds a typed repeatable option.
+   * 
+   * When parsed against a frozen schema, the values of typed repeatable
+   * options are kept as primitives, see {@link ParseResult#getValues(String)}.
+   * 
+   * @param name         the option name
+   * @param required     if option is required to be given at least once
+   * @param description  the option description
+   * @param type         the option value type
+   * @throws OptionAlreadyExistsException thrown if an option with the same name already exists
+   * @throws FlagAlreadyExistsException   thrown if a flag with the same name already exists
+   */
+  public void addRepeatableOption(String name, boolean required, String description, OptionType type) throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    if (optionExists(name)) {
+      throw new OptionAlreadyExistsException("Option \"" + name + "\" already exists");
+    } else if (flagExists(name)) {
+      throw new FlagAlreadyExistsException("Flag \"" + name + "\" already exists");
+    }
+    put(new Option(name, null, required, description, type, true));
+  }
+  
+  /**
+   * Clears all parsed state, so the options can be used for another parse.
+   * 
+   * Options get their default values back, flags are unset and data values
+   * are removed. The definitions are kept.
+   */
+  public void reset() {
+    for (Option option : options.values()) {
+      option.reset();
+    }
+    for (Flag flag : flags.values()) {
+      flag.reset();
+    }
+    data.clear();
   }
   
   /**
@@ -78,15 +188,18 @@ public class Options {
    * @throws MissingRequiredOptionException thrown if all required options are not set
    */
   public void checkRequiredOptionsSet() throws MissingRequiredOptionException {
-    String missing = "";
+    StringBuilder missing = null;
     for (Option option : options.values()) {
       if (option.required() && !option.isSet()) {
-        missing = missing.concat(" \"" + option.getName() + "\"");
+        if (missing == null) {
+          missing = new StringBuilder("Missing required option(s):");
+        }
+        missing.append(" \"").append(option.getName()).append('"');
       }
     }
     
-    if (!missing.isEmpty() && !options.isEmpty()) {
-      throw new MissingRequiredOptionException("Missing required option(s):" + missing);
+    if (missing != null) {
+      throw new MissingRequiredOptionException(missing.toString());
     }
   }
 
@@ -100,6 +213,19 @@ public class Options {
     return flags.containsKey(name);
   }
 
+  /**
+   * Freezes the option and flag definitions into an immutable schema.
+   * 
+   * Only the definitions are copied, any parse state of this object is
+   * ignored. The returned schema can be shared between threads and used
+   * for any number of {@link Parser#parseArgs(Schema, String[])} calls.
+   * 
+   * @return the frozen schema
+   */
+  public Schema freeze() {
+    return new Schema(options.values(), flags.values());
+  }
+
   /**
    * Returns an String array of data values.
    * 
@@ -109,6 +235,24 @@ public class Options {
     return data.toArray(new String[data.size()]);
   }
 
+  /**
+   * Gets the data values as an unmodifiable view, without copying them.
+   * 
+   * @return list of data values
+   */
+  public List<String> getDataList() {
+    return Collections.unmodifiableList(data);
+  }
+
+  /**
+   * Gets a sequential stream of the data values, without copying them.
+   * 
+   * @return stream of data values
+   */
+  public Stream<String> getDataStream() {
+    return data.stream();
+  }
+
   /**
    * Checks if the flag has been set.
    * 
@@ -117,10 +261,11 @@ public class Options {
    * @throws FlagNotFoundException thrown if a flag with name doesn't exists
    */
   public boolean getFlag(String name) throws FlagNotFoundException {
-    if (!flagExists(name)) {
+    Flag flag = flags.get(name);
+    if (flag == null) {
       throw new FlagNotFoundException("Flag \"" + name + "\" was not found");
     }
-    return flags.get(name).isSet();
+    return flag.isSet();
   }
 
   /**
@@ -131,10 +276,45 @@ public class Options {
    * @throws OptionNotFoundException thrown if an option with name doesn't exists
    */
   public String getOption(String name) throws OptionNotFoundException {
-    if (!optionExists(name)) {
+    Option option = options.get(name);
+    if (option == null) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    return option.getValue();
+  }
+
+  /**
+   * Gets the option or flag definition with the given name, with a single
+   * map lookup.
+   * 
+   * @param name the option or flag name
+   * @return the {@link Option} or {@link Flag}, or null if neither exists
+   */
+  Object lookup(String name) {
+    return names.get(name);
+  }
+
+  /**
+   * Adds an option definition.
+   */
+  private void put(Option option) {
+    options.put(option.getName(), option);
+    names.put(option.getName(), option);
+  }
+
+  /**
+   * Gets all values of the option, in the order they were given.
+   * 
+   * @param name the option name
+   * @return unmodifiable list of values
+   * @throws OptionNotFoundException thrown if an option with name doesn't exists
+   */
+  public List<String> getOptionValues(String name) throws OptionNotFoundException {
+    Option option = options.get(name);
+    if (option == null) {
       throw new OptionNotFoundException("Option \"" + name + "\" was not found");
     }
-    return options.get(name).getValue();
+    return option.getValues();
   }
 
   /**
@@ -154,10 +334,11 @@ public class Options {
    * @throws FlagNotFoundException thrown if a flag with name doesn't exists
    */
   public void setFlag(String name) throws FlagNotFoundException {
-    if (!flagExists(name)) {
+    Flag flag = flags.get(name);
+    if (flag == null) {
       throw new FlagNotFoundException("Flag \"" + name + "\" already exists");
     }
-    flags.get(name).set();
+    flag.set();
   }
 
   /**
@@ -169,11 +350,12 @@ public class Options {
    * @throws OptionAlreadySetException thrown if the option with name has already been set
    */
   public void setOption(String name, String value) throws OptionNotFoundException, OptionAlreadySetException {
-    if (!optionExists(name)) {
+    Option option = options.get(name);
+    if (option == null) {
       throw new OptionNotFoundException("Option \"" + name + "\" was not found");
     }
     
-    if (!options.get(name).setValue(value)) {
+    if (!option.setValue(value)) {
       throw new OptionAlreadySetException("Option \"" + name + "\" has already been set once");
     }
   }
@@ -0,0 +1,179 @@
+package com.aalanko.cli.parser;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * A reusable parse against a frozen schema, for processes that parse one
+ * command line after another.
+ *
+ * The context keeps a single {@link ParseResult} and the tokenizers, and
+ * clears them in place before each parse instead of allocating new ones.
+ * Once its buffers have grown to fit the command lines seen, a context
+ * only allocates the strings of option values and data.
+ *
+ * The result returned by a parse is the same object every time, it is
+ * only valid until the next parse. A context is not thread safe, use one
+ * per thread.
+ *
+ * @author Andreas Alanko
+ */
+public final class ParseContext {
+  /** The schema. */
+  private final Schema schema;
+  /** The reused result. */
+  private final ParseResult result;
+  /** Tokens of argument arrays. */
+  private final ArgumentArray arrayTokens;
+  /** Tokens of command lines, created on first use. */
+  private CharSequenceTokenizer charTokens;
+  /** Tokens of UTF-8 encoded command lines, created on first use. */
+  private ByteBufferTokenizer byteTokens;
+  /** Directory of relative response file names, or null for the working directory. */
+  private Path directory;
+
+  /**
+   * Creates a context for the schema.
+   *
+   * @param schema the schema
+   */
+  public ParseContext(Schema schema) {
+    this.schema = schema;
+    result = new ParseResult(schema);
+    arrayTokens = new ArgumentArray(new String[0]);
+  }
+
+  /**
+   * Gets the schema.
+   *
+   * @return the schema
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Sets the directory that relative response file names are resolved
+   * against, for parsing command lines given in another directory than
+   * the working directory of the process. See
+   * {@link Schema#withResponseFiles(boolean)}.
+   *
+   * @param directory the directory, or null for the working directory
+   */
+  public void setDirectory(Path directory) {
+    this.directory = directory;
+  }
+
+  /**
+   * Gets the directory that relative response file names are resolved
+   * against.
+   *
+   * @return the directory, or null for the working directory
+   */
+  public Path getDirectory() {
+    return directory;
+  }
+
+  /**
+   * Parses the given command line arguments array, see
+   * {@link Parser#parseArgs(Schema, String[])}.
+   *
+   * @param args the command line arguments as an string array
+   * @return the parsed values, valid until the next parse
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public ParseResult parse(String[] args) throws SimpleCliParserException {
+    result.reset();
+    arrayTokens.reset(args);
+    return Parser.parse(schema, arrayTokens, null, directory, result);
+  }
+
+  /**
+   * Parses an unsplit command line, see
+   * {@link Parser#parseArgs(Schema, CharSequence)}.
+   *
+   * @param commandLine the command line
+   * @return the parsed values, valid until the next parse
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public ParseResult parse(CharSequence commandLine) throws SimpleCliParserException {
+    result.reset();
+    return Parser.parse(schema, charTokens(commandLine), null, directory, result);
+  }
+
+  /**
+   * Parses an unsplit UTF-8 encoded command line, see
+   * {@link Parser#parseArgs(Schema, ByteBuffer)}.
+   *
+   * @param commandLine the UTF-8 encoded command line
+   * @return the parsed values, valid until the next parse
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public ParseResult parse(ByteBuffer commandLine) throws SimpleCliParserException {
+    result.reset();
+    return Parser.parse(schema, byteTokens(commandLine), null, directory, result);
+  }
+
+  /**
+   * Parses the given command line arguments array without throwing on
+   * invalid input, see {@link Parser#tryParseArgs(Schema, String[])}.
+   *
+   * @param args the command line arguments as an string array
+   * @return the parsed values and errors, valid until the next parse
+   */
+  public ParseResult tryParse(String[] args) {
+    result.reset();
+    arrayTokens.reset(args);
+    return Parser.tryParse(schema, arrayTokens, directory, result);
+  }
+
+  /**
+   * Parses an unsplit command line without throwing on invalid input, see
+   * {@link Parser#tryParseArgs(Schema, CharSequence)}.
+   *
+   * @param commandLine the command line
+   * @return the parsed values and errors, valid until the next parse
+   */
+  public ParseResult tryParse(CharSequence commandLine) {
+    result.reset();
+    return Parser.tryParse(schema, charTokens(commandLine), directory, result);
+  }
+
+  /**
+   * Parses an unsplit UTF-8 encoded command line without throwing on
+   * invalid input, see {@link Parser#tryParseArgs(Schema, ByteBuffer)}.
+   *
+   * @param commandLine the UTF-8 encoded command line
+   * @return the parsed values and errors, valid until the next parse
+   */
+  public ParseResult tryParse(ByteBuffer commandLine) {
+    result.reset();
+    return Parser.tryParse(schema, byteTokens(commandLine), directory, result);
+  }
+
+  /**
+   * Gets the command line tokenizer, reset to the command line.
+   */
+  private CharSequenceTokenizer charTokens(CharSequence commandLine) {
+    if (charTokens == null) {
+      charTokens = new CharSequenceTokenizer(commandLine);
+    } else {
+      charTokens.reset(commandLine);
+    }
+    return charTokens;
+  }
+
+  /**
+   * Gets the UTF-8 command line tokenizer, reset to the command line.
+   */
+  private ByteBufferTokenizer byteTokens(ByteBuffer commandLine) {
+    if (byteTokens == null) {
+      byteTokens = new ByteBufferTokenizer(commandLine);
+    } else {
+      byteTokens.reset(commandLine);
+    }
+    return byteTokens;
+  }
+}
@@ -0,0 +1,159 @@
+package com.aalanko.cli.parser;
+
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
+import com.aalanko.cli.parser.exceptions.ResponseFileException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnknownCommandException;
+import com.aalanko.cli.parser.exceptions.UnknownOptionException;
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
+
+/**
+ * A single failure found while parsing.
+ *
+ * Errors are cheap to create, the message is only built when it is asked
+ * for.
+ *
+ * @author Andreas Alanko
+ */
+public final class ParseError {
+  /** The kind of error. */
+  private final ErrorCode code;
+  /** Index of the offending token, or -1 if the error is not tied to a token. */
+  private final int position;
+  /** The option name, or null. */
+  private final String name;
+  /** The offending value, or null. */
+  private final String value;
+  /** Details from the tokenizer or the type conversion, or null. */
+  private final String detail;
+
+  /**
+   * @param code     the kind of error
+   * @param position the index of the offending token, or -1
+   * @param name     the option name, or null
+   * @param value    the offending value, or null
+   * @param detail   details from the tokenizer or the type conversion, or null
+   */
+  ParseError(ErrorCode code, int position, String name, String value, String detail) {
+    this.code = code;
+    this.position = position;
+    this.name = name;
+    this.value = value;
+    this.detail = detail;
+  }
+
+  /**
+   * Gets the kind of error.
+   *
+   * @return the error code
+   */
+  public ErrorCode getCode() {
+    return code;
+  }
+
+  /**
+   * Gets the index of the offending token.
+   *
+   * Tokens are counted from zero after splitting and response file
+   * expansion, option values count as tokens of their own.
+   *
+   * @return the token index, or -1 if the error is not tied to a token
+   */
+  public int getPosition() {
+    return position;
+  }
+
+  /**
+   * Gets the name of the option the error is about.
+   *
+   * @return the option name, or null
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Gets the offending value.
+   *
+   * @return the value, or null
+   */
+  public String getValue() {
+    return value;
+  }
+
+  /**
+   * Gets the closest known name of an {@link ErrorCode#UNKNOWN_OPTION}.
+   *
+   * @return the suggested name, or null
+   */
+  public String getSuggestion() {
+    return (code == ErrorCode.UNKNOWN_OPTION) ? detail : null;
+  }
+
+  /**
+   * Builds the error message.
+   *
+   * @return the error message
+   */
+  public String getMessage() {
+    switch (code) {
+    case MISSING_OPTION_VALUE:
+      return "Missing option value: " + name + " = " + value;
+    case OPTION_ALREADY_SET:
+      return "Option \"" + name + "\" has already been set once";
+    case MISSING_REQUIRED_OPTION:
+      return "Missing required option(s): \"" + name + "\"";
+    case INVALID_OPTION_VALUE:
+      return "Invalid value for option \"" + name + "\": " + value + ((detail == null) ? "" : " (" + detail + ")");
+    case UNKNOWN_COMMAND:
+      return (value == null) ? "Missing command" : "Unknown command \"" + value + "\"";
+    case UNKNOWN_OPTION:
+      return "Unknown option \"" + value + "\"" + ((detail == null) ? "" : ", did you mean \"" + detail + "\"?");
+    case AMBIGUOUS_OPTION:
+      return "Ambiguous option \"" + value + "\", could be " + detail;
+    default:
+      return detail;
+    }
+  }
+
+  /**
+   * Creates the exception the throwing parse methods use for this error.
+   *
+   * @param writableStackTrace false to skip capturing the stack trace
+   * @return the exception
+   */
+  public SimpleCliParserException toException(boolean writableStackTrace) {
+    String message = getMessage();
+    switch (code) {
+    case MISSING_OPTION_VALUE:
+      return new MissingOptionValueException(message, writableStackTrace);
+    case OPTION_ALREADY_SET:
+      return new OptionAlreadySetException(message, writableStackTrace);
+    case MISSING_REQUIRED_OPTION:
+      return new MissingRequiredOptionException(message, writableStackTrace);
+    case INVALID_OPTION_VALUE:
+      return new InvalidOptionValueException(message, writableStackTrace);
+    case UNTERMINATED_QUOTE:
+      return new UnterminatedQuoteException(message, writableStackTrace);
+    case UNKNOWN_COMMAND:
+      return new UnknownCommandException(message, writableStackTrace);
+    case UNKNOWN_OPTION:
+    case AMBIGUOUS_OPTION:
+      return new UnknownOptionException(message, writableStackTrace);
+    default:
+      return new ResponseFileException(message, writableStackTrace);
+    }
+  }
+
+  /**
+   * Returns a string representing the error.
+   *
+   * @return the string representation
+   */
+  public String toString() {
+    return code + " at " + position + ": " + getMessage();
+  }
+}
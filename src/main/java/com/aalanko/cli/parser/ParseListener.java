@@ -0,0 +1,34 @@
+package com.aalanko.cli.parser;
+
+/**
+ * Receives events of parses against a schema, see
+ * {@link Schema#withListener(ParseListener)}.
+ *
+ * A listener is called on the parsing thread and may be called by many
+ * threads at once. It should be cheap and must not throw.
+ * {@link ParseMetrics} is a ready made listener that counts the events.
+ *
+ * @author Andreas Alanko
+ */
+public interface ParseListener {
+
+  /**
+   * Called for each error of a parse, before {@link #parsed}.
+   *
+   * A throwing parse reports the error it throws, a collecting parse
+   * reports all errors it collected.
+   *
+   * @param code the kind of error
+   */
+  void error(ErrorCode code);
+
+  /**
+   * Called when a parse has finished, successfully or not.
+   *
+   * @param elapsedNanos the parse duration in nanoseconds
+   * @param tokens       the number of tokens read, including option values
+   * @param dataTokens   the number of tokens that were not options or flags
+   * @param failed       true if the parse found an error
+   */
+  void parsed(long elapsedNanos, int tokens, int dataTokens, boolean failed);
+}
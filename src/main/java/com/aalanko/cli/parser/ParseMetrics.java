@@ -0,0 +1,210 @@
+package com.aalanko.cli.parser;
+
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * A listener that counts parse events, cheap enough to leave on.
+ *
+ * All counters are lock free {@link LongAdder}s, so parsing threads don't
+ * contend on them. Parse durations are counted in a histogram with one
+ * bucket per power of two nanoseconds, percentiles are estimated from it
+ * with the upper bound of their bucket.
+ *
+ * The counters can be read directly or through JMX after
+ * {@link #register(String)}.
+ *
+ * @author Andreas Alanko
+ */
+public final class ParseMetrics implements ParseListener, ParseMetricsMXBean {
+  /** Number of histogram buckets, one per bit of a long. */
+  private static final int BUCKETS = 64;
+
+  /** Number of parses. */
+  private final LongAdder parses = new LongAdder();
+  /** Number of failed parses. */
+  private final LongAdder failures = new LongAdder();
+  /** Number of tokens. */
+  private final LongAdder tokens = new LongAdder();
+  /** Number of data tokens. */
+  private final LongAdder dataTokens = new LongAdder();
+  /** Sum of all parse durations. */
+  private final LongAdder totalNanos = new LongAdder();
+  /** Longest parse duration. */
+  private final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+  /** Errors by error code ordinal. */
+  private final LongAdder[] errors;
+  /** Parses by duration bucket. */
+  private final LongAdder[] histogram;
+
+  /**
+   * Creates metrics with all counters at zero.
+   */
+  public ParseMetrics() {
+    errors = new LongAdder[ErrorCode.values().length];
+    for (int i = 0; i < errors.length; i++) {
+      errors[i] = new LongAdder();
+    }
+    histogram = new LongAdder[BUCKETS];
+    for (int i = 0; i < histogram.length; i++) {
+      histogram[i] = new LongAdder();
+    }
+  }
+
+  @Override
+  public void error(ErrorCode code) {
+    errors[code.ordinal()].increment();
+  }
+
+  @Override
+  public void parsed(long elapsedNanos, int tokens, int dataTokens, boolean failed) {
+    parses.increment();
+    if (failed) {
+      failures.increment();
+    }
+    this.tokens.add(tokens);
+    this.dataTokens.add(dataTokens);
+    totalNanos.add(elapsedNanos);
+    maxNanos.accumulate(elapsedNanos);
+    histogram[bucket(elapsedNanos)].increment();
+  }
+
+  /**
+   * Registers the metrics with the platform MBean server.
+   *
+   * @param name the value of the {@code name} key of the object name
+   * @return the object name the metrics were registered with
+   * @throws JMException thrown if the metrics can't be registered
+   */
+  public ObjectName register(String name) throws JMException {
+    ObjectName objectName = new ObjectName("com.aalanko.cli.parser:type=ParseMetrics,name=" + ObjectName.quote(name));
+    ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    return objectName;
+  }
+
+  @Override
+  public long getParseCount() {
+    return parses.sum();
+  }
+
+  @Override
+  public long getFailedParseCount() {
+    return failures.sum();
+  }
+
+  @Override
+  public long getTokenCount() {
+    return tokens.sum();
+  }
+
+  @Override
+  public long getDataTokenCount() {
+    return dataTokens.sum();
+  }
+
+  /**
+   * Gets the number of errors of a kind.
+   *
+   * @param code the kind of error
+   * @return the number of errors
+   */
+  public long getErrorCount(ErrorCode code) {
+    return errors[code.ordinal()].sum();
+  }
+
+  @Override
+  public Map<String, Long> getErrorCounts() {
+    Map<String, Long> counts = new LinkedHashMap<String, Long>();
+    for (ErrorCode code : ErrorCode.values()) {
+      counts.put(code.name(), errors[code.ordinal()].sum());
+    }
+    return counts;
+  }
+
+  @Override
+  public double getMeanNanos() {
+    long count = parses.sum();
+    return (count == 0) ? 0.0 : (double) totalNanos.sum() / count;
+  }
+
+  @Override
+  public long getMaxNanos() {
+    return maxNanos.get();
+  }
+
+  @Override
+  public long getP50Nanos() {
+    return percentile(0.5);
+  }
+
+  @Override
+  public long getP99Nanos() {
+    return percentile(0.99);
+  }
+
+  /**
+   * Estimates a percentile of the parse duration.
+   *
+   * @param fraction the percentile as a fraction, from 0 to 1
+   * @return the upper bound of the bucket holding the percentile in
+   *     nanoseconds, or 0 if nothing was parsed
+   */
+  public long percentile(double fraction) {
+    long[] counts = getLatencyHistogram();
+    long total = 0;
+    for (long count : counts) {
+      total += count;
+    }
+    if (total == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(fraction * total);
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank && counts[i] != 0) {
+        return (i >= 62) ? Long.MAX_VALUE : (2L << i) - 1;
+      }
+    }
+    return Long.MAX_VALUE;
+  }
+
+  @Override
+  public long[] getLatencyHistogram() {
+    long[] counts = new long[BUCKETS];
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] = histogram[i].sum();
+    }
+    return counts;
+  }
+
+  @Override
+  public void reset() {
+    parses.reset();
+    failures.reset();
+    tokens.reset();
+    dataTokens.reset();
+    totalNanos.reset();
+    maxNanos.reset();
+    for (LongAdder adder : errors) {
+      adder.reset();
+    }
+    for (LongAdder adder : histogram) {
+      adder.reset();
+    }
+  }
+
+  /**
+   * Gets the histogram bucket of a duration.
+   */
+  private static int bucket(long nanos) {
+    return (nanos <= 0) ? 0 : 63 - Long.numberOfLeadingZeros(nanos);
+  }
+}
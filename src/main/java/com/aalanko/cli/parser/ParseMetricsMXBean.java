@@ -0,0 +1,67 @@
+package com.aalanko.cli.parser;
+
+import java.util.Map;
+
+/**
+ * Management interface of {@link ParseMetrics}.
+ *
+ * @author Andreas Alanko
+ */
+public interface ParseMetricsMXBean {
+
+  /**
+   * @return the number of parses
+   */
+  long getParseCount();
+
+  /**
+   * @return the number of parses that found an error
+   */
+  long getFailedParseCount();
+
+  /**
+   * @return the number of tokens read
+   */
+  long getTokenCount();
+
+  /**
+   * @return the number of tokens that were not options or flags
+   */
+  long getDataTokenCount();
+
+  /**
+   * @return the number of errors by error code name
+   */
+  Map<String, Long> getErrorCounts();
+
+  /**
+   * @return the mean parse duration in nanoseconds
+   */
+  double getMeanNanos();
+
+  /**
+   * @return the longest parse duration in nanoseconds
+   */
+  long getMaxNanos();
+
+  /**
+   * @return the 50th percentile of the parse duration in nanoseconds
+   */
+  long getP50Nanos();
+
+  /**
+   * @return the 99th percentile of the parse duration in nanoseconds
+   */
+  long getP99Nanos();
+
+  /**
+   * @return parse counts by duration, bucket {@code i} counts durations
+   *     from {@code 2^i} up to {@code 2^(i+1)} nanoseconds
+   */
+  long[] getLatencyHistogram();
+
+  /**
+   * Sets all counters to zero.
+   */
+  void reset();
+}
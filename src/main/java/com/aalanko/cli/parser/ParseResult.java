@@ -0,0 +1,646 @@
+package com.aalanko.cli.parser;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+import com.aalanko.cli.parser.exceptions.FlagNotFoundException;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+
+/**
+ * The values of a single parse against a {@link Schema}.
+ *
+ * A parse result is cheap to create and is not shared between threads,
+ * while the schema it refers to is.
+ *
+ * @author Andreas Alanko
+ */
+public final class ParseResult {
+  /** The schema the values belong to. */
+  private final Schema schema;
+  /** Option values by option index. */
+  private final String[] values;
+  /** Converted values of typed options by option index. */
+  private final long[] numbers;
+  /** All values of repeatable options by option index, created on the first value. */
+  private final OptionValues[] repeated;
+  /** Options that have been set, one bit per option index. */
+  private final long[] optionBits;
+  /** Flags that have been set, one bit per flag index. */
+  private final long[] flagBits;
+  /** List of data. */
+  private final ArrayList<String> data;
+  /** List of errors, created on the first error and kept by {@link #reset()}. */
+  private ArrayList<ParseError> errors;
+  /** The selected subcommand, or null. */
+  private String command;
+  /** Why the last rejected option value couldn't be converted, or null. */
+  private String invalidReason;
+
+  /**
+   * Creates an empty parse result with all options at their default values.
+   *
+   * @param schema the schema
+   */
+  ParseResult(Schema schema) {
+    this.schema = schema;
+    values = new String[schema.getOptionCount()];
+    numbers = new long[schema.getOptionCount()];
+    repeated = new OptionValues[schema.getOptionCount()];
+    optionBits = new long[Schema.words(schema.getOptionCount())];
+    flagBits = new long[Schema.words(schema.getFlagCount())];
+    data = new ArrayList<String>();
+
+    for (int i = 0; i < values.length; i++) {
+      values[i] = schema.getOptionDefault(i);
+      numbers[i] = schema.getOptionDefaultNumber(i);
+    }
+  }
+
+  /**
+   * Gets the schema.
+   *
+   * @return the schema
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Returns an String array of data values.
+   *
+   * @return array of data values
+   */
+  public String[] getData() {
+    return data.toArray(new String[data.size()]);
+  }
+
+  /**
+   * Gets the data values as an unmodifiable view, without copying them.
+   *
+   * @return list of data values
+   */
+  public List<String> getDataList() {
+    return Collections.unmodifiableList(data);
+  }
+
+  /**
+   * Gets a sequential stream of the data values, without copying them.
+   *
+   * @return stream of data values
+   */
+  public Stream<String> getDataStream() {
+    return data.stream();
+  }
+
+  /**
+   * Gets the subcommand selected by the command line, see
+   * {@link Parser#parseArgs(Commands, String[])}.
+   *
+   * @return the subcommand name, or null if not parsed against subcommands
+   */
+  public String getCommand() {
+    return command;
+  }
+
+  /**
+   * Sets the selected subcommand.
+   *
+   * @param command the subcommand name
+   */
+  void setCommand(String command) {
+    this.command = command;
+  }
+
+  /**
+   * Checks if the parse found any errors.
+   *
+   * Only the non-throwing parse methods, such as
+   * {@link Parser#tryParseArgs(Schema, String[])}, collect errors.
+   *
+   * @return true if there are errors, false otherwise
+   */
+  public boolean hasErrors() {
+    return errors != null && !errors.isEmpty();
+  }
+
+  /**
+   * Gets the errors found by the parse, in the order they were found.
+   *
+   * @return list of errors, empty if the parse succeeded
+   */
+  public List<ParseError> getErrors() {
+    if (errors == null) {
+      return Collections.emptyList();
+    }
+    return Collections.unmodifiableList(errors);
+  }
+
+  /**
+   * Checks if the flag has been set.
+   *
+   * @param name the flag name
+   * @return true if the flag has been set, false otherwise
+   * @throws FlagNotFoundException thrown if a flag with name doesn't exists
+   */
+  public boolean getFlag(String name) throws FlagNotFoundException {
+    int index = schema.flagIndex(name);
+    if (index < 0) {
+      throw new FlagNotFoundException("Flag \"" + name + "\" was not found");
+    }
+    return (flagBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Checks if the flag with the given index has been set.
+   *
+   * @param index the flag index, see {@link Schema#flagIndex(String)}
+   * @return true if the flag has been set, false otherwise
+   */
+  public boolean getFlag(int index) {
+    if (index < 0 || index >= schema.getFlagCount()) {
+      throw new IndexOutOfBoundsException("Flag index " + index);
+    }
+    return (flagBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Gets the flags that have been set, one bit per flag index.
+   *
+   * @return the bits, must not be modified
+   */
+  long[] flagBits() {
+    return flagBits;
+  }
+
+  /**
+   * Gets the option value.
+   *
+   * @param name the option name
+   * @return the option value
+   * @throws OptionNotFoundException thrown if an option with name doesn't exists
+   */
+  public String getOption(String name) throws OptionNotFoundException {
+    int index = schema.optionIndex(name);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    return values[index];
+  }
+
+  /**
+   * Gets the value of the option with the given index.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the option value
+   */
+  public String getOption(int index) {
+    return values[checkOptionIndex(index)];
+  }
+
+  /**
+   * Gets all values of an option, in the order they were given.
+   *
+   * Repeatable options can have any number of values, other options have
+   * at most one. Default values are not included. The returned values are
+   * a view, they are not copied.
+   *
+   * @param name the option name
+   * @return the values
+   * @throws OptionNotFoundException thrown if an option with name doesn't exists
+   */
+  public OptionValues getValues(String name) throws OptionNotFoundException {
+    int index = schema.optionIndex(name);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    return getValues(index);
+  }
+
+  /**
+   * Gets all values of the option with the given index, see
+   * {@link #getValues(String)}.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the values
+   */
+  public OptionValues getValues(int index) {
+    checkOptionIndex(index);
+    if (repeated[index] != null) {
+      return repeated[index];
+    }
+
+    OptionValues single = new OptionValues(schema.getOptionType(index));
+    if ((optionBits[index >>> 6] & (1L << index)) != 0) {
+      if (single.getType() == OptionType.STRING) {
+        single.addString(values[index]);
+      } else {
+        single.addNumber(numbers[index]);
+      }
+    }
+    return single;
+  }
+
+  /**
+   * Gets the value of an {@link OptionType#INT} option.
+   *
+   * The value was converted when it was parsed, so this does not allocate.
+   * Options without a value return zero.
+   *
+   * @param name the option name
+   * @return the option value
+   * @throws OptionNotFoundException      thrown if an option with name doesn't exists
+   * @throws OptionTypeMismatchException  thrown if the option is not an int option
+   */
+  public int getInt(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = typedIndex(name, OptionType.INT, null, null);
+    return (int) numbers[index];
+  }
+
+  /**
+   * Gets the value of the {@link OptionType#INT} option with the given
+   * index, see {@link #getInt(String)}.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the option value
+   * @throws OptionTypeMismatchException thrown if the option is not an int option
+   */
+  public int getInt(int index) throws OptionTypeMismatchException {
+    checkType(checkOptionIndex(index), OptionType.INT, null, null);
+    return (int) numbers[index];
+  }
+
+  /**
+   * Gets the value of an {@link OptionType#LONG}, {@link OptionType#INT} or
+   * {@link OptionType#DURATION} option. Durations are returned in
+   * milliseconds.
+   *
+   * The value was converted when it was parsed, so this does not allocate.
+   * Options without a value return zero.
+   *
+   * @param name the option name
+   * @return the option value
+   * @throws OptionNotFoundException      thrown if an option with name doesn't exists
+   * @throws OptionTypeMismatchException  thrown if the option is not an integer or duration option
+   */
+  public long getLong(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = typedIndex(name, OptionType.LONG, OptionType.INT, OptionType.DURATION);
+    return numbers[index];
+  }
+
+  /**
+   * Gets the value of the option with the given index, see
+   * {@link #getLong(String)}.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the option value
+   * @throws OptionTypeMismatchException thrown if the option is not an integer or duration option
+   */
+  public long getLong(int index) throws OptionTypeMismatchException {
+    checkType(checkOptionIndex(index), OptionType.LONG, OptionType.INT, OptionType.DURATION);
+    return numbers[index];
+  }
+
+  /**
+   * Gets the value of an {@link OptionType#DOUBLE}, {@link OptionType#INT}
+   * or {@link OptionType#LONG} option.
+   *
+   * The value was converted when it was parsed, so this does not allocate.
+   * Options without a value return zero.
+   *
+   * @param name the option name
+   * @return the option value
+   * @throws OptionNotFoundException      thrown if an option with name doesn't exists
+   * @throws OptionTypeMismatchException  thrown if the option is not a numeric option
+   */
+  public double getDouble(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = typedIndex(name, OptionType.DOUBLE, OptionType.INT, OptionType.LONG);
+    if (schema.getOptionType(index) == OptionType.DOUBLE) {
+      return Double.longBitsToDouble(numbers[index]);
+    }
+    return numbers[index];
+  }
+
+  /**
+   * Gets the value of the option with the given index, see
+   * {@link #getDouble(String)}.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the option value
+   * @throws OptionTypeMismatchException thrown if the option is not a numeric option
+   */
+  public double getDouble(int index) throws OptionTypeMismatchException {
+    checkType(checkOptionIndex(index), OptionType.DOUBLE, OptionType.INT, OptionType.LONG);
+    if (schema.getOptionType(index) == OptionType.DOUBLE) {
+      return Double.longBitsToDouble(numbers[index]);
+    }
+    return numbers[index];
+  }
+
+  /**
+   * Gets the value of an {@link OptionType#DURATION} option.
+   *
+   * Use {@link #getLong(String)} to read the milliseconds without creating
+   * a {@link Duration}. Options without a value return a zero duration.
+   *
+   * @param name the option name
+   * @return the option value
+   * @throws OptionNotFoundException      thrown if an option with name doesn't exists
+   * @throws OptionTypeMismatchException  thrown if the option is not a duration option
+   */
+  public Duration getDuration(String name) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = typedIndex(name, OptionType.DURATION, null, null);
+    return Duration.ofMillis(numbers[index]);
+  }
+
+  /**
+   * Gets the value of the {@link OptionType#DURATION} option with the
+   * given index, see {@link #getDuration(String)}.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return the option value
+   * @throws OptionTypeMismatchException thrown if the option is not a duration option
+   */
+  public Duration getDuration(int index) throws OptionTypeMismatchException {
+    checkType(checkOptionIndex(index), OptionType.DURATION, null, null);
+    return Duration.ofMillis(numbers[index]);
+  }
+
+  /**
+   * Checks if the option value has been set.
+   *
+   * @param name the option name
+   * @return true if option value has been set, false otherwise
+   * @throws OptionNotFoundException thrown if an option with name doesn't exists
+   */
+  public boolean isOptionSet(String name) throws OptionNotFoundException {
+    int index = schema.optionIndex(name);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    return (optionBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Checks if the value of the option with the given index has been set.
+   *
+   * @param index the option index, see {@link Schema#optionIndex(String)}
+   * @return true if option value has been set, false otherwise
+   */
+  public boolean isOptionSet(int index) {
+    checkOptionIndex(index);
+    return (optionBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Checks if the option has been set.
+   *
+   * @param index the option index
+   * @return true if set, false otherwise
+   */
+  boolean optionSet(int index) {
+    return (optionBits[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Gets the value of an option.
+   *
+   * @param index the option index
+   * @return the last value given, or the default value
+   */
+  String value(int index) {
+    return values[index];
+  }
+
+  /**
+   * Gets the converted value of a typed option.
+   *
+   * @param index the option index
+   * @return the value as converted by {@link OptionType#convert(String)}
+   */
+  long number(int index) {
+    return numbers[index];
+  }
+
+  /**
+   * Gets all values of a repeatable option.
+   *
+   * @param index the option index
+   * @return the values, or null if the option has never had a value
+   */
+  OptionValues repeated(int index) {
+    return repeated[index];
+  }
+
+  /**
+   * Gets the index of an option and checks its type.
+   *
+   * @param name   the option name
+   * @param type   the accepted type
+   * @param other  another accepted type, or null
+   * @param third  a third accepted type, or null
+   * @return the option index
+   */
+  private int typedIndex(String name, OptionType type, OptionType other, OptionType third) throws OptionNotFoundException, OptionTypeMismatchException {
+    int index = schema.optionIndex(name);
+    if (index < 0) {
+      throw new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+    checkType(index, type, other, third);
+    return index;
+  }
+
+  /**
+   * Checks the type of an option.
+   *
+   * @param index  the option index
+   * @param type   the accepted type
+   * @param other  another accepted type, or null
+   * @param third  a third accepted type, or null
+   */
+  private void checkType(int index, OptionType type, OptionType other, OptionType third) throws OptionTypeMismatchException {
+    OptionType actual = schema.getOptionType(index);
+    if (actual != type && actual != other && actual != third) {
+      throw new OptionTypeMismatchException("Option \"" + schema.getOptionName(index) + "\" is of type " + actual + ", not " + type);
+    }
+  }
+
+  /**
+   * Checks that an option index is in range.
+   *
+   * @param index the option index
+   * @return the index
+   */
+  private int checkOptionIndex(int index) {
+    if (index < 0 || index >= schema.getOptionCount()) {
+      throw new IndexOutOfBoundsException("Option index " + index);
+    }
+    return index;
+  }
+
+  /**
+   * Clears all parsed state in place, so the result can be used for
+   * another parse against the same schema. Storage is kept.
+   */
+  void reset() {
+    for (int i = 0; i < values.length; i++) {
+      values[i] = schema.getOptionDefault(i);
+      numbers[i] = schema.getOptionDefaultNumber(i);
+      if (repeated[i] != null) {
+        repeated[i].clear();
+      }
+    }
+    Arrays.fill(optionBits, 0L);
+    Arrays.fill(flagBits, 0L);
+    data.clear();
+    if (errors != null) {
+      errors.clear();
+    }
+    command = null;
+    invalidReason = null;
+  }
+
+  /**
+   * Adds an error.
+   *
+   * @param error the error
+   */
+  void addError(ParseError error) {
+    if (errors == null) {
+      errors = new ArrayList<ParseError>(4);
+    }
+    errors.add(error);
+  }
+
+  /**
+   * Adds a data value.
+   *
+   * @param data the data value
+   */
+  void addData(String data) {
+    this.data.add(data);
+  }
+
+  /**
+   * Sets the flag.
+   *
+   * @param index the flag index
+   */
+  void setFlag(int index) {
+    flagBits[index >>> 6] |= 1L << index;
+  }
+
+  /**
+   * Gets why the last value rejected with
+   * {@link ErrorCode#INVALID_OPTION_VALUE} couldn't be converted.
+   *
+   * @return the message of the type conversion, or null
+   */
+  String invalidReason() {
+    return invalidReason;
+  }
+
+  /**
+   * Sets the option value.
+   *
+   * Values of repeatable options are appended, the last one is also kept
+   * as the single option value.
+   *
+   * @param index the option index
+   * @param value the option value
+   * @return null if the value could be set, otherwise the reason it couldn't
+   * @see #invalidReason()
+   */
+  ErrorCode setOption(int index, String value) {
+    boolean repeatable = schema.isOptionRepeatable(index);
+    if (!repeatable && (optionBits[index >>> 6] & (1L << index)) != 0) {
+      return ErrorCode.OPTION_ALREADY_SET;
+    }
+    OptionType type = schema.getOptionType(index);
+    long number = 0;
+    if (type != OptionType.STRING) {
+      try {
+        number = type.convert(value);
+      } catch (IllegalArgumentException e) {
+        invalidReason = e.getMessage();
+        return ErrorCode.INVALID_OPTION_VALUE;
+      }
+    }
+    if (repeatable) {
+      if (repeated[index] == null) {
+        repeated[index] = new OptionValues(type);
+      }
+      if (type == OptionType.STRING) {
+        repeated[index].addString(value);
+      } else {
+        repeated[index].addNumber(number);
+      }
+    }
+    numbers[index] = number;
+    values[index] = value;
+    optionBits[index >>> 6] |= 1L << index;
+    return null;
+  }
+
+  /**
+   * Checks if all required options are set.
+   *
+   * @param collect true to add an error for every missing option instead of throwing
+   * @throws MissingRequiredOptionException thrown if all required options are not set
+   */
+  void checkRequiredOptionsSet(boolean collect) throws MissingRequiredOptionException {
+    long[] required = schema.requiredMask();
+    StringBuilder missing = null;
+
+    for (int word = 0; word < required.length; word++) {
+      long bits = required[word] & ~optionBits[word];
+      while (bits != 0) {
+        int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+        bits &= bits - 1;
+
+        if (collect) {
+          addError(new ParseError(ErrorCode.MISSING_REQUIRED_OPTION, -1, schema.getOptionName(index), null, null));
+        } else {
+          if (missing == null) {
+            missing = new StringBuilder("Missing required option(s):");
+          }
+          missing.append(" \"").append(schema.getOptionName(index)).append('"');
+        }
+      }
+    }
+
+    if (missing != null) {
+      throw new MissingRequiredOptionException(missing.toString(), schema.isStackTraces());
+    }
+  }
+
+  /**
+   * Returns a string representing the data of the object.
+   *
+   * @return the string representation
+   */
+  public String toString() {
+    StringBuilder str = new StringBuilder();
+
+    for (int i = 0; i < values.length; i++) {
+      str.append("Option: " + schema.getOptionName(i) + " Value: " + values[i]);
+      str.append("\n");
+    }
+
+    for (int i = 0; i < schema.getFlagCount(); i++) {
+      str.append("Flag: " + schema.getFlagName(i) + " Value: " + ((flagBits[i >>> 6] & (1L << i)) != 0));
+      str.append("\n");
+    }
+
+    for (String data : this.data) {
+      str.append("Data: " + data);
+      str.append("\n");
+    }
+    return str.toString();
+  }
+}
@@ -1,7 +1,16 @@
 package com.aalanko.cli.parser;
 
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
 import com.aalanko.cli.parser.exceptions.MissingOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
+import com.aalanko.cli.parser.exceptions.ResponseFileException;
 import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
 
 /**
  * @author Andreas Alanko
@@ -17,33 +26,754 @@ public class Parser {
    * @throws SimpleCliParserException thrown when the command line parser fails
    */
   public static Options parseArgs(Options options, String[] args) throws SimpleCliParserException {
-    if (args.length > 0) {
-      String arg, nextArg;
+    Object current;
+    Object next = (args.length > 0) ? options.lookup(args[0]) : null;
 
-      for (int i = 0; i < args.length; i++) {
-        arg = args[i];
-        nextArg = null;
-        
-        if (i < args.length - 1) {
-          nextArg = args[i+1];
-        }
+    for (int i = 0; i < args.length; i++) {
+      current = next;
+      next = (i < args.length - 1) ? options.lookup(args[i+1]) : null;
 
-        if (options.optionExists(arg)) {
-          if (nextArg != null && !options.optionExists(nextArg) && !options.flagExists(nextArg)) {
-            options.setOption(arg, nextArg);
-            i++;
-          } else {
-            throw new MissingOptionValueException("Missing option value: " + arg + " = " + nextArg);
-          }
-        } else if (options.flagExists(arg)) {
-          options.setFlag(arg);
-        } else {
-          options.addData(arg);
+      if (current instanceof Option) {
+        if (i == args.length - 1 || next != null) {
+          String nextArg = (i < args.length - 1) ? args[i+1] : null;
+          throw new MissingOptionValueException("Missing option value: " + args[i] + " = " + nextArg);
+        }
+        if (!((Option) current).setValue(args[++i])) {
+          throw new OptionAlreadySetException("Option \"" + args[i-1] + "\" has already been set once");
         }
+        next = (i < args.length - 1) ? options.lookup(args[i+1]) : null;
+      } else if (current instanceof Flag) {
+        ((Flag) current).set();
+      } else {
+        options.addData(args[i]);
       }
     }
     
     options.checkRequiredOptionsSet();
     return options;
   }
+
+  /**
+   * Parses the given command line arguments array against a frozen schema.
+   * 
+   * The schema is not modified, so it can be shared between threads that
+   * parse concurrently.
+   * 
+   * @param schema the schema
+   * @param args the command line arguments as an string array
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, String[] args) throws SimpleCliParserException {
+    return parse(schema, new ArgumentArray(args), null, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses the given command line arguments array against a frozen schema,
+   * handing data values to a consumer as soon as they are found.
+   * 
+   * Data values are not kept in the returned result. The consumer is called
+   * while parsing is still running, so it may already have received data
+   * when the parse later fails, for example on a missing required option.
+   * 
+   * @param schema the schema
+   * @param args the command line arguments as an string array
+   * @param data the consumer of data values
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, String[] args, Consumer<? super String> data) throws SimpleCliParserException {
+    return parse(schema, new ArgumentArray(args), data, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit command line against a frozen schema.
+   * 
+   * The command line is split into arguments with shell style quoting and
+   * escapes, see {@link #parseArgs(Schema, ByteBuffer)}. Strings are only
+   * created for option values and data, option and flag names are matched
+   * directly against the command line.
+   * 
+   * @param schema the schema
+   * @param commandLine the command line
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, CharSequence commandLine) throws SimpleCliParserException {
+    return parse(schema, new CharSequenceTokenizer(commandLine), null, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit command line against a frozen schema, handing data
+   * values to a consumer as soon as they are found.
+   * 
+   * See {@link #parseArgs(Schema, String[], Consumer)} for how data values
+   * are handed over.
+   * 
+   * @param schema the schema
+   * @param commandLine the command line
+   * @param data the consumer of data values
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, CharSequence commandLine, Consumer<? super String> data) throws SimpleCliParserException {
+    return parse(schema, new CharSequenceTokenizer(commandLine), data, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit UTF-8 encoded command line against a frozen schema.
+   * 
+   * Arguments are separated by whitespace. Single quotes keep everything
+   * up to the closing quote literally, double quotes do the same except
+   * that a backslash escapes a double quote, backslash, dollar or backtick.
+   * Outside of quotes a backslash escapes the next character.
+   * 
+   * The bytes from the buffer position to its limit are read, the position
+   * is left unchanged. Only one argument at a time is decoded.
+   * 
+   * @param schema the schema
+   * @param commandLine the UTF-8 encoded command line
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, ByteBuffer commandLine) throws SimpleCliParserException {
+    return parse(schema, new ByteBufferTokenizer(commandLine), null, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit UTF-8 encoded command line against a frozen schema,
+   * handing data values to a consumer as soon as they are found.
+   * 
+   * See {@link #parseArgs(Schema, String[], Consumer)} for how data values
+   * are handed over.
+   * 
+   * @param schema the schema
+   * @param commandLine the UTF-8 encoded command line
+   * @param data the consumer of data values
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public static ParseResult parseArgs(Schema schema, ByteBuffer commandLine, Consumer<? super String> data) throws SimpleCliParserException {
+    return parse(schema, new ByteBufferTokenizer(commandLine), data, null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses the given command line arguments array against a frozen schema
+   * without throwing on invalid input.
+   * 
+   * All errors are collected in one pass and returned with
+   * {@link ParseResult#getErrors()}. After an error the parse continues
+   * with the next token, so the values of a result with errors are only
+   * partially set.
+   * 
+   * @param schema the schema
+   * @param args the command line arguments as an string array
+   * @return the parsed values and errors
+   */
+  public static ParseResult tryParseArgs(Schema schema, String[] args) {
+    return tryParse(schema, new ArgumentArray(args), null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit command line against a frozen schema without throwing
+   * on invalid input.
+   * 
+   * See {@link #tryParseArgs(Schema, String[])} for how errors are returned.
+   * 
+   * @param schema the schema
+   * @param commandLine the command line
+   * @return the parsed values and errors
+   */
+  public static ParseResult tryParseArgs(Schema schema, CharSequence commandLine) {
+    return tryParse(schema, new CharSequenceTokenizer(commandLine), null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses an unsplit UTF-8 encoded command line against a frozen schema
+   * without throwing on invalid input.
+   * 
+   * See {@link #tryParseArgs(Schema, String[])} for how errors are returned.
+   * 
+   * @param schema the schema
+   * @param commandLine the UTF-8 encoded command line
+   * @return the parsed values and errors
+   */
+  public static ParseResult tryParseArgs(Schema schema, ByteBuffer commandLine) {
+    return tryParse(schema, new ByteBufferTokenizer(commandLine), null, new ParseResult(schema));
+  }
+
+  /**
+   * Parses the given command line arguments array against a set of
+   * subcommands.
+   * 
+   * The first argument selects the subcommand, the rest are parsed against
+   * its schema. The options of the subcommand are defined on first use,
+   * see {@link Commands}. Token positions in errors count the subcommand
+   * as the first token.
+   * 
+   * @param commands the subcommands
+   * @param args the command line arguments as an string array
+   * @return the parsed values, with {@link ParseResult#getCommand()} set
+   * @throws SimpleCliParserException thrown when the command line parser fails,
+   *     or the subcommand definition fails
+   */
+  public static ParseResult parseArgs(Commands commands, String[] args) throws SimpleCliParserException {
+    return parseCommand(commands, new ArgumentArray(args), false);
+  }
+
+  /**
+   * Parses an unsplit command line against a set of subcommands.
+   * 
+   * See {@link #parseArgs(Commands, String[])} for how the subcommand is
+   * selected and {@link #parseArgs(Schema, CharSequence)} for how the
+   * command line is split.
+   * 
+   * @param commands the subcommands
+   * @param commandLine the command line
+   * @return the parsed values, with {@link ParseResult#getCommand()} set
+   * @throws SimpleCliParserException thrown when the command line parser fails,
+   *     or the subcommand definition fails
+   */
+  public static ParseResult parseArgs(Commands commands, CharSequence commandLine) throws SimpleCliParserException {
+    return parseCommand(commands, new CharSequenceTokenizer(commandLine), false);
+  }
+
+  /**
+   * Parses the given command line arguments array against a set of
+   * subcommands without throwing on invalid input.
+   * 
+   * A missing or unknown subcommand is reported as an
+   * {@link ErrorCode#UNKNOWN_COMMAND} error, the rest of the command line
+   * is then not parsed. See {@link #tryParseArgs(Schema, String[])} for
+   * how other errors are returned.
+   * 
+   * @param commands the subcommands
+   * @param args the command line arguments as an string array
+   * @return the parsed values and errors
+   * @throws IllegalStateException thrown if the subcommand definition fails
+   */
+  public static ParseResult tryParseArgs(Commands commands, String[] args) {
+    return tryParseCommand(commands, new ArgumentArray(args));
+  }
+
+  /**
+   * Parses an unsplit command line against a set of subcommands without
+   * throwing on invalid input.
+   * 
+   * See {@link #tryParseArgs(Commands, String[])} for how errors are
+   * returned.
+   * 
+   * @param commands the subcommands
+   * @param commandLine the command line
+   * @return the parsed values and errors
+   * @throws IllegalStateException thrown if the subcommand definition fails
+   */
+  public static ParseResult tryParseArgs(Commands commands, CharSequence commandLine) {
+    return tryParseCommand(commands, new CharSequenceTokenizer(commandLine));
+  }
+
+  /**
+   * Parses tokens against a frozen schema, throwing on the first error.
+   * 
+   * @param schema the schema
+   * @param tokens the tokens
+   * @param data the consumer of data values, or null to keep them in the result
+   * @param directory the directory of relative response file names, or null for the working directory
+   * @param result the empty result to fill
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  static ParseResult parse(Schema schema, TokenSource tokens, Consumer<? super String> data, Path directory, ParseResult result) throws SimpleCliParserException {
+    return new Run(schema, tokens, data, false, 0, result, directory).parse();
+  }
+
+  /**
+   * Parses tokens against a frozen schema, collecting all errors.
+   * 
+   * @param schema the schema
+   * @param tokens the tokens
+   * @param directory the directory of relative response file names, or null for the working directory
+   * @param result the empty result to fill
+   * @return the parsed values and errors
+   */
+  static ParseResult tryParse(Schema schema, TokenSource tokens, Path directory, ParseResult result) {
+    try {
+      return new Run(schema, tokens, null, true, 0, result, directory).parse();
+    } catch (SimpleCliParserException e) {
+      throw new IllegalStateException("Collecting parse threw", e);
+    }
+  }
+
+  /**
+   * Parses tokens against a set of subcommands, collecting all errors.
+   * 
+   * @param commands the subcommands
+   * @param tokens the tokens
+   * @return the parsed values and errors
+   */
+  private static ParseResult tryParseCommand(Commands commands, TokenSource tokens) {
+    try {
+      return parseCommand(commands, tokens, true);
+    } catch (SimpleCliParserException e) {
+      throw new IllegalStateException("Command definition failed", e);
+    }
+  }
+
+  /**
+   * Selects the subcommand with the first token and parses the remaining
+   * tokens against its schema.
+   * 
+   * @param commands the subcommands
+   * @param tokens the tokens
+   * @param collect true to collect errors, false to throw the first one
+   * @return the parsed values
+   * @throws SimpleCliParserException thrown when the command line parser fails,
+   *     or the subcommand definition fails
+   */
+  private static ParseResult parseCommand(Commands commands, TokenSource tokens, boolean collect) throws SimpleCliParserException {
+    String name = null;
+    ParseError error = null;
+    if (commands.isResponseFiles()) {
+      tokens = new ResponseFileTokens(tokens);
+    }
+    tokens.setStackTraces(!collect);
+    try {
+      if (tokens.next()) {
+        name = tokens.token();
+      }
+    } catch (UnterminatedQuoteException e) {
+      if (!collect) {
+        throw e;
+      }
+      error = new ParseError(ErrorCode.UNTERMINATED_QUOTE, 0, null, null, e.getMessage());
+    } catch (ResponseFileException e) {
+      if (!collect) {
+        throw e;
+      }
+      error = new ParseError(ErrorCode.RESPONSE_FILE, 0, null, null, e.getMessage());
+    }
+
+    Schema schema = (name == null) ? null : commands.getSchema(name);
+    if (schema == null) {
+      ParseResult result = new ParseResult(Commands.NONE);
+      if (error != null) {
+        result.addError(error);
+      }
+      error = new ParseError(ErrorCode.UNKNOWN_COMMAND, (name == null) ? -1 : 0, null, name, null);
+      if (!collect) {
+        throw error.toException(true);
+      }
+      result.addError(error);
+      return result;
+    }
+
+    ParseResult result = new Run(schema, tokens, null, collect, 1, new ParseResult(schema), null).parse();
+    result.setCommand(name);
+    return result;
+  }
+
+  /**
+   * The state of a single parse against a frozen schema.
+   */
+  private static final class Run {
+    /** Descriptor of a token that was rejected with an error. */
+    private static final int REJECTED = -2;
+
+    /** The schema. */
+    private final Schema schema;
+    /** The tokens. */
+    private final TokenSource tokens;
+    /** The consumer of data values, or null to keep them in the result. */
+    private final Consumer<? super String> data;
+    /** True to collect errors, false to throw the first one. */
+    private final boolean collect;
+    /** The result. */
+    private final ParseResult result;
+    /** The listener, or null. */
+    private final ParseListener listener;
+    /** Index of the current token. */
+    private int position;
+    /** True if the current token has to be handled again. */
+    private boolean pending;
+    /** Number of data tokens. */
+    private int dataTokens;
+    /** True if tokens that are not names are checked further. */
+    private final boolean checkNames;
+    /** True if GNU syntax is accepted. */
+    private final boolean gnuSyntax;
+    /** True after the {@code --} marker, all further tokens are data. */
+    private boolean endOfOptions;
+    /** Code of the error thrown, or null. */
+    private ErrorCode thrown;
+    /** Cache of values, or null. */
+    private final ValueInterner interner;
+
+    /**
+     * @param consumed  the number of tokens already taken from the tokens
+     * @param result    the empty result to fill
+     * @param directory the directory of relative response file names, or null
+     */
+    Run(Schema schema, TokenSource tokens, Consumer<? super String> data, boolean collect, int consumed, ParseResult result, Path directory) {
+      this.schema = schema;
+      // Tokens of a command set with response files are already expanded
+      boolean expand = schema.isResponseFiles() && !(tokens instanceof ResponseFileTokens);
+      this.tokens = expand ? new ResponseFileTokens(tokens, directory) : tokens;
+      this.tokens.setStackTraces(!collect && schema.isStackTraces());
+      this.data = data;
+      this.collect = collect;
+      this.result = result;
+      listener = schema.getListener();
+      checkNames = schema.isAbbreviations() || schema.isStrictOptions();
+      gnuSyntax = schema.isGnuSyntax();
+      interner = schema.getInterner();
+      position = consumed - 1;
+    }
+
+    /**
+     * Parses all tokens, reporting to the listener if there is one.
+     */
+    ParseResult parse() throws SimpleCliParserException {
+      if (listener == null) {
+        return run();
+      }
+
+      long start = System.nanoTime();
+      try {
+        run();
+      } catch (SimpleCliParserException e) {
+        listener.error((thrown != null) ? thrown : codeOf(e));
+        listener.parsed(System.nanoTime() - start, position + 1, dataTokens, true);
+        throw e;
+      }
+      long elapsed = System.nanoTime() - start;
+      for (ParseError error : result.getErrors()) {
+        listener.error(error.getCode());
+      }
+      listener.parsed(elapsed, position + 1, dataTokens, result.hasErrors());
+      return result;
+    }
+
+    /**
+     * Parses all tokens.
+     */
+    private ParseResult run() throws SimpleCliParserException {
+      int optionCount = schema.getOptionCount();
+      int descriptor;
+
+      while (advance()) {
+        if (endOfOptions) {
+          addData();
+          continue;
+        }
+        descriptor = tokens.resolve(schema);
+        if (descriptor < 0 && gnuSyntax && resolveGnu(optionCount)) {
+          continue;
+        }
+        if (descriptor < 0 && checkNames) {
+          descriptor = resolveUnknown();
+          if (descriptor == REJECTED) {
+            continue;
+          }
+        }
+
+        if (descriptor < 0) {
+          addData();
+        } else if (descriptor < optionCount) {
+          setOptionFromNext(descriptor);
+        } else {
+          result.setFlag(descriptor - optionCount);
+        }
+      }
+
+      if (schema.valueSources() != null) {
+        resolveUnset(schema.valueSources());
+      }
+      result.checkRequiredOptionsSet(collect);
+      return result;
+    }
+
+    /**
+     * Adds the current token as data.
+     */
+    private void addData() {
+      dataTokens++;
+      if (data == null) {
+        result.addData(value());
+      } else {
+        data.accept(value());
+      }
+    }
+
+    /**
+     * Creates the string of the current token as a value.
+     */
+    private String value() {
+      return (interner == null) ? tokens.token() : interner.intern(tokens.chars(), tokens.start(), tokens.end());
+    }
+
+    /**
+     * Creates the string of a range of characters as a value.
+     */
+    private String value(CharSequence chars, int start, int end) {
+      return (interner == null) ? chars.subSequence(start, end).toString() : interner.intern(chars, start, end);
+    }
+
+    /**
+     * Sets an option to the value in the next token. A missing value is
+     * reported at the position of the option.
+     */
+    private void setOptionFromNext(int descriptor) throws SimpleCliParserException {
+      String name = schema.getOptionName(descriptor);
+      int optionPosition = position;
+      if (!advance()) {
+        fail(ErrorCode.MISSING_OPTION_VALUE, optionPosition, name, null);
+      } else if (tokens.resolve(schema) >= 0) {
+        fail(ErrorCode.MISSING_OPTION_VALUE, optionPosition, name, tokens.token());
+        retreat();
+      } else {
+        setOption(descriptor, value());
+      }
+    }
+
+    /**
+     * Sets an option to a value.
+     */
+    private void setOption(int descriptor, String value) throws SimpleCliParserException {
+      ErrorCode error = result.setOption(descriptor, value);
+      if (error != null) {
+        fail(error, position, schema.getOptionName(descriptor), value, detailOf(error));
+      }
+    }
+
+    /**
+     * Handles a token that is not a name with GNU syntax: the {@code --}
+     * end of options marker, {@code --name=value}, {@code -ovalue} and
+     * clustered short flags such as {@code -xvf}. Names are resolved from
+     * the token characters in place, only values become strings.
+     *
+     * @param optionCount the number of options
+     * @return true if the token was handled, false if it is not GNU syntax
+     */
+    private boolean resolveGnu(int optionCount) throws SimpleCliParserException {
+      CharSequence chars = tokens.chars();
+      int start = tokens.start();
+      int end = tokens.end();
+      if (end - start < 2 || chars.charAt(start) != '-') {
+        return false;
+      }
+
+      if (chars.charAt(start + 1) == '-') {
+        if (end - start == 2) {
+          endOfOptions = true;
+          return true;
+        }
+        int equals = start + 2;
+        while (equals < end && chars.charAt(equals) != '=') {
+          equals++;
+        }
+        if (equals == end || equals == start + 2) {
+          return false;
+        }
+        int descriptor = schema.resolve(chars, start, equals);
+        if (descriptor < 0 && schema.isAbbreviations()) {
+          descriptor = schema.nameIndex().prefix(chars, start, equals);
+          if (descriptor == NameIndex.AMBIGUOUS) {
+            String name = chars.subSequence(start, equals).toString();
+            fail(ErrorCode.AMBIGUOUS_OPTION, position, null, name, String.join(", ", schema.nameIndex().withPrefix(name)));
+            return true;
+          }
+        }
+        if (descriptor < 0) {
+          return false;
+        }
+        String value = value(chars, equals + 1, end);
+        if (descriptor < optionCount) {
+          setOption(descriptor, value);
+        } else {
+          fail(ErrorCode.INVALID_OPTION_VALUE, position, schema.getFlagName(descriptor - optionCount), value);
+        }
+        return true;
+      }
+
+      if (schema.shortName(chars.charAt(start + 1)) < 0) {
+        return false;
+      }
+      // Check the whole cluster first, so an unknown character sets nothing
+      for (int i = start + 1; i < end; i++) {
+        int descriptor = schema.shortName(chars.charAt(i));
+        if (descriptor < 0) {
+          fail(ErrorCode.UNKNOWN_OPTION, position, null, tokens.token(), null);
+          return true;
+        } else if (descriptor < optionCount) {
+          break;
+        }
+      }
+      for (int i = start + 1; i < end; i++) {
+        int descriptor = schema.shortName(chars.charAt(i));
+        if (descriptor < optionCount) {
+          if (i + 1 < end) {
+            setOption(descriptor, value(chars, i + 1, end));
+          } else {
+            setOptionFromNext(descriptor);
+          }
+          return true;
+        }
+        result.setFlag(descriptor - optionCount);
+      }
+      return true;
+    }
+
+    /**
+     * Sets the options not given on the command line from the value
+     * sources. Each source is asked for its snapshot once, on the first
+     * option that is not set, so all options see the same values.
+     */
+    private void resolveUnset(ValueSource[] sources) throws SimpleCliParserException {
+      ValueSource[] snapshots = null;
+      for (int i = 0; i < schema.getOptionCount(); i++) {
+        if (result.optionSet(i)) {
+          continue;
+        }
+        if (snapshots == null) {
+          snapshots = new ValueSource[sources.length];
+          for (int j = 0; j < sources.length; j++) {
+            snapshots[j] = sources[j].snapshot();
+          }
+        }
+        String name = schema.getOptionName(i);
+        for (ValueSource source : snapshots) {
+          String value = source.get(name);
+          if (value != null) {
+            ErrorCode error = result.setOption(i, value);
+            if (error != null) {
+              fail(error, -1, name, value, detailOf(error));
+            }
+            break;
+          }
+        }
+      }
+    }
+
+    /**
+     * Advances to the next token. When collecting, tokenizer failures are
+     * recorded and the parse carries on with the tokens that follow, the
+     * tokens then create their exceptions without a stack trace.
+     */
+    private boolean advance() throws SimpleCliParserException {
+      if (pending) {
+        pending = false;
+        return true;
+      }
+      while (true) {
+        try {
+          if (tokens.next()) {
+            position++;
+            return true;
+          }
+          return false;
+        } catch (UnterminatedQuoteException e) {
+          if (!collect) {
+            throw e;
+          }
+          result.addError(new ParseError(ErrorCode.UNTERMINATED_QUOTE, position + 1, null, null, e.getMessage()));
+        } catch (ResponseFileException e) {
+          if (!collect) {
+            throw e;
+          }
+          result.addError(new ParseError(ErrorCode.RESPONSE_FILE, position + 1, null, null, e.getMessage()));
+        }
+      }
+    }
+
+    /**
+     * Marks the current token as not consumed. Used when an option is
+     * missing its value, so the option or flag that follows is still
+     * handled.
+     */
+    private void retreat() {
+      pending = true;
+    }
+
+    /**
+     * Resolves a token that is not a name as an abbreviation, or rejects
+     * it as an unknown option. Only tokens that look like options are
+     * checked.
+     *
+     * @return the descriptor, -1 for data or {@link #REJECTED}
+     */
+    private int resolveUnknown() throws SimpleCliParserException {
+      CharSequence chars = tokens.chars();
+      int start = tokens.start();
+      int end = tokens.end();
+      int dashes = start;
+      while (dashes < end && chars.charAt(dashes) == '-') {
+        dashes++;
+      }
+      if (dashes == start || dashes == end || Character.isDigit(chars.charAt(dashes)) || chars.charAt(dashes) == '.') {
+        return -1;
+      }
+
+      NameIndex index = schema.nameIndex();
+      if (schema.isAbbreviations()) {
+        int descriptor = index.prefix(chars, start, end);
+        if (descriptor >= 0) {
+          return descriptor;
+        } else if (descriptor == NameIndex.AMBIGUOUS) {
+          String token = tokens.token();
+          fail(ErrorCode.AMBIGUOUS_OPTION, position, null, token, String.join(", ", index.withPrefix(token)));
+          return REJECTED;
+        }
+      }
+      if (schema.isStrictOptions()) {
+        String token = tokens.token();
+        fail(ErrorCode.UNKNOWN_OPTION, position, null, token, schema.suggestName(token));
+        return REJECTED;
+      }
+      return -1;
+    }
+
+    /**
+     * Gets the details of an error returned when setting an option.
+     */
+    private String detailOf(ErrorCode error) {
+      return (error == ErrorCode.INVALID_OPTION_VALUE) ? result.invalidReason() : null;
+    }
+
+    /**
+     * Gets the error code of a thrown parse failure.
+     */
+    private static ErrorCode codeOf(SimpleCliParserException e) {
+      if (e instanceof MissingOptionValueException) {
+        return ErrorCode.MISSING_OPTION_VALUE;
+      } else if (e instanceof OptionAlreadySetException) {
+        return ErrorCode.OPTION_ALREADY_SET;
+      } else if (e instanceof MissingRequiredOptionException) {
+        return ErrorCode.MISSING_REQUIRED_OPTION;
+      } else if (e instanceof InvalidOptionValueException) {
+        return ErrorCode.INVALID_OPTION_VALUE;
+      } else if (e instanceof UnterminatedQuoteException) {
+        return ErrorCode.UNTERMINATED_QUOTE;
+      }
+      return ErrorCode.RESPONSE_FILE;
+    }
+
+    /**
+     * Records an error, or throws it when not collecting.
+     */
+    private void fail(ErrorCode code, int position, String name, String value) throws SimpleCliParserException {
+      fail(code, position, name, value, null);
+    }
+
+    /**
+     * Records an error with details, or throws it when not collecting.
+     */
+    private void fail(ErrorCode code, int position, String name, String value, String detail) throws SimpleCliParserException {
+      ParseError error = new ParseError(code, position, name, value, detail);
+      if (!collect) {
+        thrown = code;
+        throw error.toException(schema.isStackTraces());
+      }
+      result.addError(error);
+    }
+  }
 }
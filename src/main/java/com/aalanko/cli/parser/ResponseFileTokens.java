@@ -0,0 +1,144 @@
+package com.aalanko.cli.parser;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+import com.aalanko.cli.parser.exceptions.ResponseFileException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Tokens with {@code @file} response file arguments expanded in place.
+ *
+ * A response file is memory-mapped and tokenized lazily with shell style
+ * quoting, one token at a time, so its size is not limited by the heap.
+ * Response files may refer to other response files up to a fixed depth.
+ * Relative file names are resolved against a given directory, or the
+ * working directory of the process.
+ *
+ * @author Andreas Alanko
+ */
+final class ResponseFileTokens extends TokenSource {
+  /** Maximum number of nested response files. */
+  static final int MAX_DEPTH = 16;
+
+  /** Stack of token sources, the command line at the bottom. */
+  private final TokenSource[] sources;
+  /** Index of the current token source. */
+  private int top;
+  /** Directory of relative file names, or null for the working directory. */
+  private final Path directory;
+
+  /**
+   * @param tokens the command line tokens
+   */
+  ResponseFileTokens(TokenSource tokens) {
+    this(tokens, null);
+  }
+
+  /**
+   * @param tokens    the command line tokens
+   * @param directory the directory of relative file names, or null for the
+   *     working directory
+   */
+  ResponseFileTokens(TokenSource tokens, Path directory) {
+    this.directory = directory;
+    sources = new TokenSource[MAX_DEPTH + 1];
+    sources[0] = tokens;
+    top = 0;
+  }
+
+  @Override
+  boolean next() throws SimpleCliParserException {
+    while (top >= 0) {
+      TokenSource current = sources[top];
+      if (!current.next()) {
+        sources[top--] = null;
+      } else if (current.end() - current.start() > 1 && current.chars().charAt(current.start()) == '@') {
+        if (top == MAX_DEPTH) {
+          throw new ResponseFileException("Response files nested deeper than " + MAX_DEPTH + ": " + current.token(), isStackTraces());
+        }
+        MappedByteBuffer file = map(directory, current.token().substring(1), isStackTraces());
+        sources[++top] = new ByteBufferTokenizer(file);
+        sources[top].setStackTraces(isStackTraces());
+      } else {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  void setStackTraces(boolean stackTraces) {
+    super.setStackTraces(stackTraces);
+    for (int i = 0; i <= top; i++) {
+      sources[i].setStackTraces(stackTraces);
+    }
+  }
+
+  @Override
+  CharSequence chars() {
+    return sources[top].chars();
+  }
+
+  @Override
+  int start() {
+    return sources[top].start();
+  }
+
+  @Override
+  int end() {
+    return sources[top].end();
+  }
+
+  @Override
+  int resolve(Schema schema) {
+    return sources[top].resolve(schema);
+  }
+
+  @Override
+  String token() {
+    return sources[top].token();
+  }
+
+  /**
+   * Memory-maps a response file.
+   *
+   * @param directory   the directory of a relative name, or null
+   * @param name        the file name
+   * @param stackTraces false to skip capturing the stack trace of a failure
+   * @return the mapped file contents
+   * @throws ResponseFileException thrown if the file can't be read
+   */
+  private static MappedByteBuffer map(Path directory, String name, boolean stackTraces) throws ResponseFileException {
+    Path path;
+    try {
+      path = (directory == null) ? Paths.get(name) : directory.resolve(name);
+    } catch (InvalidPathException e) {
+      throw new ResponseFileException("Invalid response file name \"" + name + "\"", e, stackTraces);
+    }
+
+    FileChannel channel = null;
+    try {
+      channel = FileChannel.open(path, StandardOpenOption.READ);
+      if (channel.size() > Integer.MAX_VALUE) {
+        throw new ResponseFileException("Response file \"" + name + "\" is larger than 2 GB", stackTraces);
+      }
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    } catch (IOException e) {
+      throw new ResponseFileException("Could not read response file \"" + name + "\"", e, stackTraces);
+    } finally {
+      if (channel != null) {
+        try {
+          channel.close();
+        } catch (IOException e) {
+          // The mapping stays valid after the channel is closed.
+        }
+      }
+    }
+  }
+}
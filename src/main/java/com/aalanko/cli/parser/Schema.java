@@ -0,0 +1,673 @@
+package com.aalanko.cli.parser;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * An immutable set of option and flag definitions.
+ *
+ * A schema is created once with {@link Options#freeze()} and can then be
+ * shared between any number of threads. Each parse produces its own
+ * {@link ParseResult}, so the schema itself never changes.
+ *
+ * Options and flags are numbered in the order they were added, these
+ * numbers are used as indices into the per-parse state.
+ *
+ * @author Andreas Alanko
+ */
+public final class Schema {
+  /** Option names by index. */
+  private final String[] optionNames;
+  /** Option default values by index. */
+  private final String[] optionDefaults;
+  /** Option descriptions by index. */
+  private final String[] optionDescriptions;
+  /** Required options, one bit per option index. */
+  private final long[] requiredMask;
+  /** Repeatable options, one bit per option index. */
+  private final long[] repeatableMask;
+  /** Option value types by index. */
+  private final OptionType[] optionTypes;
+  /** Converted option default values by index. */
+  private final long[] optionDefaultNumbers;
+  /** Flag names by index. */
+  private final String[] flagNames;
+  /** Flag descriptions by index. */
+  private final String[] flagDescriptions;
+  /** Table of all option and flag names. */
+  private final NameTable names;
+  /** Characters of the short names, sorted. */
+  private final char[] shortChars;
+  /** Descriptors of the short names, in the order of their characters. */
+  private final int[] shortDescriptors;
+  /** Parse settings, a combination of the setting bits. */
+  private final int settings;
+  /** Listener of parse events, or null. */
+  private final ParseListener listener;
+  /** Sources of values for options not given, or null. */
+  private final ValueSource[] sources;
+  /** Cache of option values and data, or null. */
+  private final ValueInterner interner;
+
+  /** Setting bit for expanding {@code @file} arguments. */
+  private static final int RESPONSE_FILES = 1;
+  /** Setting bit for throwing parse failures without stack traces. */
+  private static final int NO_STACK_TRACES = 2;
+  /** Setting bit for accepting unique prefixes of names. */
+  private static final int ABBREVIATIONS = 4;
+  /** Setting bit for rejecting unknown tokens that look like options. */
+  private static final int STRICT_OPTIONS = 8;
+  /** Setting bit for accepting GNU syntax. */
+  private static final int GNU_SYNTAX = 16;
+
+  /**
+   * Creates a schema from the given definitions.
+   *
+   * @param options the option definitions
+   * @param flags   the flag definitions
+   */
+  Schema(Collection<Option> options, Collection<Flag> flags) {
+    optionNames = new String[options.size()];
+    optionDefaults = new String[options.size()];
+    optionDescriptions = new String[options.size()];
+    requiredMask = new long[words(options.size())];
+    repeatableMask = new long[words(options.size())];
+    optionTypes = new OptionType[options.size()];
+    optionDefaultNumbers = new long[options.size()];
+
+    int i = 0;
+    for (Option option : options) {
+      optionNames[i] = option.getName();
+      optionDefaults[i] = option.getDefaultValue();
+      optionDescriptions[i] = option.getDescription();
+      if (option.required()) {
+        requiredMask[i >>> 6] |= 1L << i;
+      }
+      if (option.repeatable()) {
+        repeatableMask[i >>> 6] |= 1L << i;
+      }
+      optionTypes[i] = option.getType();
+      if (option.getDefaultValue() != null) {
+        optionDefaultNumbers[i] = option.getType().convert(option.getDefaultValue());
+      }
+      i++;
+    }
+
+    flagNames = new String[flags.size()];
+    flagDescriptions = new String[flags.size()];
+
+    i = 0;
+    for (Flag flag : flags) {
+      flagNames[i] = flag.getName();
+      flagDescriptions[i] = flag.getDescription();
+      i++;
+    }
+
+    String[] all = new String[optionNames.length + flagNames.length];
+    System.arraycopy(optionNames, 0, all, 0, optionNames.length);
+    System.arraycopy(flagNames, 0, all, optionNames.length, flagNames.length);
+    names = new NameTable(all);
+
+    int shortCount = 0;
+    long[] shorts = new long[all.length];
+    for (int d = 0; d < all.length; d++) {
+      if (all[d].length() == 2 && all[d].charAt(0) == '-' && all[d].charAt(1) != '-') {
+        shorts[shortCount++] = ((long) all[d].charAt(1) << 32) | d;
+      }
+    }
+    Arrays.sort(shorts, 0, shortCount);
+    shortChars = new char[shortCount];
+    shortDescriptors = new int[shortCount];
+    for (int j = 0; j < shortCount; j++) {
+      shortChars[j] = (char) (shorts[j] >>> 32);
+      shortDescriptors[j] = (int) shorts[j];
+    }
+    settings = 0;
+    listener = null;
+    sources = null;
+    interner = null;
+  }
+
+  /**
+   * Creates a schema from prebuilt parts, see {@link SchemaSnapshot}.
+   */
+  Schema(String[] optionNames, String[] optionDefaults, String[] optionDescriptions, long[] requiredMask, long[] repeatableMask,
+      OptionType[] optionTypes, long[] optionDefaultNumbers, String[] flagNames, String[] flagDescriptions, NameTable names,
+      char[] shortChars, int[] shortDescriptors, int settings) {
+    this.optionNames = optionNames;
+    this.optionDefaults = optionDefaults;
+    this.optionDescriptions = optionDescriptions;
+    this.requiredMask = requiredMask;
+    this.repeatableMask = repeatableMask;
+    this.optionTypes = optionTypes;
+    this.optionDefaultNumbers = optionDefaultNumbers;
+    this.flagNames = flagNames;
+    this.flagDescriptions = flagDescriptions;
+    this.names = names;
+    this.shortChars = shortChars;
+    this.shortDescriptors = shortDescriptors;
+    this.settings = settings;
+    listener = null;
+    sources = null;
+    interner = null;
+  }
+
+  /**
+   * Creates a copy of a schema with other parse settings.
+   *
+   * @param schema   the schema to copy the definitions from
+   * @param settings the parse settings
+   * @param listener the listener, or null
+   * @param sources  the value sources, or null
+   * @param interner the value cache, or null
+   */
+  private Schema(Schema schema, int settings, ParseListener listener, ValueSource[] sources, ValueInterner interner) {
+    optionNames = schema.optionNames;
+    optionDefaults = schema.optionDefaults;
+    optionDescriptions = schema.optionDescriptions;
+    requiredMask = schema.requiredMask;
+    repeatableMask = schema.repeatableMask;
+    optionTypes = schema.optionTypes;
+    optionDefaultNumbers = schema.optionDefaultNumbers;
+    flagNames = schema.flagNames;
+    flagDescriptions = schema.flagDescriptions;
+    names = schema.names;
+    shortChars = schema.shortChars;
+    shortDescriptors = schema.shortDescriptors;
+    this.settings = settings;
+    this.listener = listener;
+    this.sources = sources;
+    this.interner = interner;
+  }
+
+  /**
+   * Returns a schema with a setting bit turned on or off.
+   */
+  private Schema withSetting(int bit, boolean on) {
+    int changed = on ? (settings | bit) : (settings & ~bit);
+    return (changed == settings) ? this : new Schema(this, changed, listener, sources, interner);
+  }
+
+  /**
+   * Returns a schema that expands response files, or one that doesn't.
+   *
+   * When enabled, an argument of the form {@code @file} is replaced by the
+   * arguments in the file, split with the same quoting rules as
+   * {@link Parser#parseArgs(Schema, CharSequence)}. The file is UTF-8
+   * encoded and memory-mapped, it is never read into memory as a whole.
+   *
+   * @param enabled if {@code @file} arguments are expanded
+   * @return a schema with the same definitions and the given setting
+   */
+  public Schema withResponseFiles(boolean enabled) {
+    return withSetting(RESPONSE_FILES, enabled);
+  }
+
+  /**
+   * Checks if {@code @file} arguments are expanded.
+   *
+   * @return true if response files are expanded, false otherwise
+   */
+  public boolean isResponseFiles() {
+    return (settings & RESPONSE_FILES) != 0;
+  }
+
+  /**
+   * Returns a schema whose parse failures are thrown with or without stack
+   * traces.
+   *
+   * Capturing the stack trace is the main cost of a failed parse. Without
+   * it, rejecting invalid command lines with the throwing parse methods is
+   * much cheaper. Stack traces are captured by default.
+   *
+   * @param enabled if parse failures capture a stack trace
+   * @return a schema with the same definitions and the given setting
+   */
+  public Schema withStackTraces(boolean enabled) {
+    return withSetting(NO_STACK_TRACES, !enabled);
+  }
+
+  /**
+   * Checks if parse failures capture a stack trace.
+   *
+   * @return true if stack traces are captured, false otherwise
+   */
+  public boolean isStackTraces() {
+    return (settings & NO_STACK_TRACES) == 0;
+  }
+
+  /**
+   * Returns a schema that accepts unique prefixes of option and flag
+   * names, or one that doesn't.
+   *
+   * When enabled, a token that starts with a dash and is not a name is
+   * resolved to the only name it is a prefix of, so {@code --verb} is read
+   * as {@code --verbose}. A prefix of more than one name is reported as
+   * {@link ErrorCode#AMBIGUOUS_OPTION}. Tokens without a leading dash are
+   * never abbreviations.
+   *
+   * @param enabled if unique prefixes are accepted
+   * @return a schema with the same definitions and the given setting
+   */
+  public Schema withAbbreviations(boolean enabled) {
+    return withSetting(ABBREVIATIONS, enabled);
+  }
+
+  /**
+   * Checks if unique prefixes of names are accepted.
+   *
+   * @return true if abbreviations are accepted, false otherwise
+   */
+  public boolean isAbbreviations() {
+    return (settings & ABBREVIATIONS) != 0;
+  }
+
+  /**
+   * Returns a schema that rejects unknown tokens that look like options,
+   * or one that takes them as data.
+   *
+   * When enabled, a token that starts with a dash followed by anything but
+   * a digit, and that is not a name, is reported as
+   * {@link ErrorCode#UNKNOWN_OPTION} together with the closest name, see
+   * {@link #suggestName(String)}. Negative numbers are still data. By
+   * default such tokens are data.
+   *
+   * @param enabled if unknown options are rejected
+   * @return a schema with the same definitions and the given setting
+   */
+  public Schema withStrictOptions(boolean enabled) {
+    return withSetting(STRICT_OPTIONS, enabled);
+  }
+
+  /**
+   * Checks if unknown tokens that look like options are rejected.
+   *
+   * @return true if unknown options are rejected, false otherwise
+   */
+  public boolean isStrictOptions() {
+    return (settings & STRICT_OPTIONS) != 0;
+  }
+
+  /**
+   * Returns a schema that accepts GNU style syntax, or one that doesn't.
+   *
+   * When enabled, tokens that are not names are also read as:
+   * <ul>
+   * <li>{@code --name=value}, an option and its value in one token</li>
+   * <li>{@code -ovalue}, a short option and its value in one token</li>
+   * <li>{@code -xvf}, clustered short flags, the last of which may be a
+   * short option that takes the rest of the token or the next token as its
+   * value</li>
+   * <li>{@code --}, after which all tokens are data</li>
+   * </ul>
+   * A short name is a dash and a single character, such as {@code -v}. A
+   * cluster that starts with a short name but holds an unknown character
+   * is reported as {@link ErrorCode#UNKNOWN_OPTION} and sets none of its
+   * flags. With {@link #withAbbreviations(boolean)} the name part of
+   * {@code --name=value} may be a unique prefix as well.
+   *
+   * @param enabled if GNU syntax is accepted
+   * @return a schema with the same definitions and the given setting
+   */
+  public Schema withGnuSyntax(boolean enabled) {
+    return withSetting(GNU_SYNTAX, enabled);
+  }
+
+  /**
+   * Checks if GNU style syntax is accepted.
+   *
+   * @return true if GNU syntax is accepted, false otherwise
+   */
+  public boolean isGnuSyntax() {
+    return (settings & GNU_SYNTAX) != 0;
+  }
+
+  /**
+   * Resolves the short name made of a dash and the given character.
+   *
+   * @param c the character after the dash
+   * @return the descriptor, or -1 if there is no such short name
+   */
+  int shortName(char c) {
+    int i = Arrays.binarySearch(shortChars, c);
+    return (i < 0) ? -1 : shortDescriptors[i];
+  }
+
+  /**
+   * Finds the option or flag name closest to a misspelled one.
+   *
+   * Names are compared by edit distance, up to one edit for every three
+   * characters with at least one and at most three edits. The index
+   * behind it is built once per schema on first use.
+   *
+   * @param name the misspelled name
+   * @return the closest name, or null if no name is close enough
+   */
+  public String suggestName(String name) {
+    return names.index().closest(name, Math.max(1, Math.min(3, name.length() / 3)));
+  }
+
+  /**
+   * Gets the prefix and similarity index of the names.
+   *
+   * @return the index
+   */
+  NameIndex nameIndex() {
+    return names.index();
+  }
+
+  /**
+   * Returns a schema that reports every parse to a listener.
+   *
+   * Parses against a schema without a listener don't measure anything, so
+   * the listener costs nothing when it is not used.
+   *
+   * @param listener the listener, or null for none
+   * @return a schema with the same definitions and settings and the given listener
+   */
+  public Schema withListener(ParseListener listener) {
+    return (listener == this.listener) ? this : new Schema(this, settings, listener, sources, interner);
+  }
+
+  /**
+   * Gets the listener of parse events.
+   *
+   * @return the listener, or null if there is none
+   */
+  public ParseListener getListener() {
+    return listener;
+  }
+
+  /**
+   * Returns a schema that takes the values of options not given on the
+   * command line from the given sources.
+   *
+   * After the command line is parsed, each option that is not set is
+   * looked up in the sources in order, and the first value found is used
+   * as if it was given. Options without a value in any source keep their
+   * default value. A value that doesn't fit the option type is reported
+   * as {@link ErrorCode#INVALID_OPTION_VALUE} without a token position.
+   *
+   * @param sources the sources, highest priority first, none to remove all
+   * @return a schema with the same definitions and settings and the given sources
+   */
+  public Schema withValueSources(ValueSource... sources) {
+    return new Schema(this, settings, listener, (sources.length == 0) ? null : sources.clone(), interner);
+  }
+
+  /**
+   * Gets the value sources.
+   *
+   * @return the sources, or null if there are none
+   */
+  ValueSource[] valueSources() {
+    return sources;
+  }
+
+  /**
+   * Returns a schema that shares repeated option values and data through
+   * a bounded cache.
+   *
+   * Every option value and data token parsed against the returned schema
+   * is looked up in the cache, and a value seen before is returned as the
+   * same string. Results kept in memory then hold one string per distinct
+   * value rather than one per occurrence. The cache can be shared by
+   * schemas and by threads parsing in parallel, for example with a
+   * {@link BatchParser}. Values from value sources and defaults are not
+   * cached.
+   *
+   * @param interner the cache, or null for none
+   * @return a schema with the same definitions and settings and the given cache
+   */
+  public Schema withInterner(ValueInterner interner) {
+    return (interner == this.interner) ? this : new Schema(this, settings, listener, sources, interner);
+  }
+
+  /**
+   * Gets the cache of option values and data.
+   *
+   * @return the cache, or null if there is none
+   */
+  public ValueInterner getInterner() {
+    return interner;
+  }
+
+  /**
+   * Gets the parse settings.
+   *
+   * @return the settings, a combination of the setting bits
+   */
+  int settings() {
+    return settings;
+  }
+
+  /**
+   * Gets the table of all option and flag names.
+   *
+   * @return the name table
+   */
+  NameTable nameTable() {
+    return names;
+  }
+
+  /**
+   * Gets the characters of the short names.
+   *
+   * @return the sorted characters, must not be modified
+   */
+  char[] shortChars() {
+    return shortChars;
+  }
+
+  /**
+   * Gets the descriptors of the short names.
+   *
+   * @return the descriptors in the order of {@link #shortChars()}, must not be modified
+   */
+  int[] shortDescriptors() {
+    return shortDescriptors;
+  }
+
+  /**
+   * Gets the repeatable options as a bit mask, one bit per option index.
+   *
+   * @return the mask, must not be modified
+   */
+  long[] repeatableMask() {
+    return repeatableMask;
+  }
+
+  /**
+   * Resolves a name to its descriptor.
+   *
+   * Descriptors below the option count are option indices, the rest are
+   * flag indices offset by the option count.
+   *
+   * @param name the option or flag name
+   * @return the descriptor, or -1 if no option or flag has the name
+   */
+  int resolve(String name) {
+    return names.lookup(name);
+  }
+
+  /**
+   * Resolves the name held by a range of characters to its descriptor.
+   *
+   * @param chars the characters
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   * @return the descriptor, or -1 if no option or flag has the name
+   */
+  int resolve(CharSequence chars, int start, int end) {
+    return names.lookup(chars, start, end);
+  }
+
+  /**
+   * Gets the number of options.
+   *
+   * @return the number of options
+   */
+  public int getOptionCount() {
+    return optionNames.length;
+  }
+
+  /**
+   * Gets the number of flags.
+   *
+   * @return the number of flags
+   */
+  public int getFlagCount() {
+    return flagNames.length;
+  }
+
+  /**
+   * Gets the index of the option with the given name.
+   *
+   * @param name the option name
+   * @return the option index, or -1 if no such option exists
+   */
+  public int optionIndex(String name) {
+    int descriptor = names.lookup(name);
+    return (descriptor < optionNames.length) ? descriptor : -1;
+  }
+
+  /**
+   * Gets the index of the flag with the given name.
+   *
+   * @param name the flag name
+   * @return the flag index, or -1 if no such flag exists
+   */
+  public int flagIndex(String name) {
+    int descriptor = names.lookup(name);
+    return (descriptor < optionNames.length) ? -1 : descriptor - optionNames.length;
+  }
+
+  /**
+   * Checks if the option exists.
+   *
+   * @param name the option name
+   * @return true if an option with name exists, false otherwise
+   */
+  public boolean optionExists(String name) {
+    return optionIndex(name) >= 0;
+  }
+
+  /**
+   * Checks if a flag with the given name exists.
+   *
+   * @param name the flag name
+   * @return true if a flag with name exists, false otherwise
+   */
+  public boolean flagExists(String name) {
+    return flagIndex(name) >= 0;
+  }
+
+  /**
+   * Gets the option name.
+   *
+   * @param index the option index
+   * @return the option name
+   */
+  public String getOptionName(int index) {
+    return optionNames[index];
+  }
+
+  /**
+   * Gets the option default value.
+   *
+   * @param index the option index
+   * @return the option default value
+   */
+  public String getOptionDefault(int index) {
+    return optionDefaults[index];
+  }
+
+  /**
+   * Gets the option description.
+   *
+   * @param index the option index
+   * @return the option description
+   */
+  public String getOptionDescription(int index) {
+    return optionDescriptions[index];
+  }
+
+  /**
+   * Checks if the option is required to be set.
+   *
+   * @param index the option index
+   * @return true if required, false otherwise
+   */
+  public boolean isOptionRequired(int index) {
+    return (requiredMask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Checks if the option can be given more than once.
+   *
+   * @param index the option index
+   * @return true if repeatable, false otherwise
+   */
+  public boolean isOptionRepeatable(int index) {
+    return (repeatableMask[index >>> 6] & (1L << index)) != 0;
+  }
+
+  /**
+   * Gets the required options as a bit mask, one bit per option index.
+   *
+   * @return the mask, must not be modified
+   */
+  long[] requiredMask() {
+    return requiredMask;
+  }
+
+  /**
+   * Gets the number of 64-bit words needed for one bit per index.
+   *
+   * @param count the number of indices
+   * @return the number of words
+   */
+  static int words(int count) {
+    return (count + 63) >>> 6;
+  }
+
+  /**
+   * Gets the option value type.
+   *
+   * @param index the option index
+   * @return the option value type
+   */
+  public OptionType getOptionType(int index) {
+    return optionTypes[index];
+  }
+
+  /**
+   * Gets the converted option default value.
+   *
+   * @param index the option index
+   * @return the default value as converted by {@link OptionType#convert(String)}
+   */
+  long getOptionDefaultNumber(int index) {
+    return optionDefaultNumbers[index];
+  }
+
+  /**
+   * Gets the flag name.
+   *
+   * @param index the flag index
+   * @return the flag name
+   */
+  public String getFlagName(int index) {
+    return flagNames[index];
+  }
+
+  /**
+   * Gets the flag description.
+   *
+   * @param index the flag index
+   * @return the flag description
+   */
+  public String getFlagDescription(int index) {
+    return flagDescriptions[index];
+  }
+}
@@ -0,0 +1,319 @@
+package com.aalanko.cli.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes frozen schemas to a compact binary format and reads them back.
+ *
+ * A snapshot holds the names, descriptions, defaults, types, required and
+ * repeatable bits and settings of a schema, together with its prebuilt
+ * name table and converted defaults. Reading a snapshot creates only the
+ * strings and arrays of the schema, nothing is hashed, sorted or converted
+ * again, so a tool can ship a snapshot as a file or classpath resource
+ * and skip building its options on every launch.
+ *
+ * Listeners, value sources and value caches are not part of a snapshot,
+ * they are runtime objects to attach after loading.
+ *
+ * @author Andreas Alanko
+ */
+public final class SchemaSnapshot {
+  /** First bytes of every snapshot, {@code SCLS}. */
+  private static final int MAGIC = 0x53434C53;
+  /** Format version. */
+  private static final int VERSION = 1;
+  /** Length of a null string. */
+  private static final int NULL = -1;
+
+  private SchemaSnapshot() {
+  }
+
+  /**
+   * Writes a schema.
+   *
+   * @param schema the schema
+   * @param out    the stream to write to, not closed
+   * @throws IOException thrown if writing fails
+   */
+  public static void write(Schema schema, OutputStream out) throws IOException {
+    DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+    int optionCount = schema.getOptionCount();
+    int flagCount = schema.getFlagCount();
+
+    data.writeInt(MAGIC);
+    data.writeInt(VERSION);
+    data.writeInt(schema.settings());
+    data.writeInt(optionCount);
+    data.writeInt(flagCount);
+
+    for (int i = 0; i < optionCount; i++) {
+      writeString(data, schema.getOptionName(i));
+      writeString(data, schema.getOptionDefault(i));
+      writeString(data, schema.getOptionDescription(i));
+      data.writeByte(schema.getOptionType(i).ordinal());
+      data.writeLong(schema.getOptionDefaultNumber(i));
+    }
+    for (long word : schema.requiredMask()) {
+      data.writeLong(word);
+    }
+    for (long word : schema.repeatableMask()) {
+      data.writeLong(word);
+    }
+    for (int i = 0; i < flagCount; i++) {
+      writeString(data, schema.getFlagName(i));
+      writeString(data, schema.getFlagDescription(i));
+    }
+
+    int[] slots = schema.nameTable().slots();
+    data.writeInt(slots.length);
+    for (int slot : slots) {
+      data.writeInt(slot);
+    }
+    for (int hash : schema.nameTable().hashes()) {
+      data.writeInt(hash);
+    }
+
+    char[] shortChars = schema.shortChars();
+    data.writeInt(shortChars.length);
+    for (int i = 0; i < shortChars.length; i++) {
+      data.writeChar(shortChars[i]);
+      data.writeInt(schema.shortDescriptors()[i]);
+    }
+    data.flush();
+  }
+
+  /**
+   * Writes a schema to a byte array.
+   *
+   * @param schema the schema
+   * @return the snapshot
+   */
+  public static byte[] toByteArray(Schema schema) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    try {
+      write(schema, out);
+    } catch (IOException e) {
+      throw new IllegalStateException("Writing to memory failed", e);
+    }
+    return out.toByteArray();
+  }
+
+  /**
+   * Reads a schema from the bytes between the position and the limit of a
+   * buffer. The position of the buffer is left unchanged.
+   *
+   * @param buffer the snapshot
+   * @return the schema
+   * @throws IOException thrown if the bytes are not a valid snapshot
+   */
+  public static Schema read(ByteBuffer buffer) throws IOException {
+    ByteBuffer in = buffer.duplicate().order(ByteOrder.BIG_ENDIAN);
+    try {
+      return readSchema(in);
+    } catch (BufferUnderflowException | IllegalArgumentException e) {
+      throw new IOException("Invalid schema snapshot", e);
+    }
+  }
+
+  /**
+   * Reads a schema from a stream.
+   *
+   * @param in the stream, read to its end and not closed
+   * @return the schema
+   * @throws IOException thrown if reading fails or the bytes are not a valid snapshot
+   */
+  public static Schema read(InputStream in) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    byte[] chunk = new byte[8192];
+    int n;
+    while ((n = in.read(chunk)) > 0) {
+      bytes.write(chunk, 0, n);
+    }
+    return read(ByteBuffer.wrap(bytes.toByteArray()));
+  }
+
+  /**
+   * Reads a schema from a memory-mapped file.
+   *
+   * @param file the snapshot file
+   * @return the schema
+   * @throws IOException thrown if reading fails or the file is not a valid snapshot
+   */
+  public static Schema load(Path file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+      return read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
+  /**
+   * Reads a schema from a classpath resource.
+   *
+   * @param anchor the class the resource name is relative to
+   * @param name   the resource name, see {@link Class#getResourceAsStream(String)}
+   * @return the schema
+   * @throws IOException thrown if the resource is missing, can't be read or
+   *     is not a valid snapshot
+   */
+  public static Schema loadResource(Class<?> anchor, String name) throws IOException {
+    InputStream in = anchor.getResourceAsStream(name);
+    if (in == null) {
+      throw new FileNotFoundException("Schema snapshot resource \"" + name + "\" not found");
+    }
+    try {
+      return read(in);
+    } finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Reads the parts of a schema.
+   */
+  private static Schema readSchema(ByteBuffer in) throws IOException {
+    if (in.getInt() != MAGIC) {
+      throw new IOException("Not a schema snapshot");
+    }
+    int version = in.getInt();
+    if (version != VERSION) {
+      throw new IOException("Unsupported schema snapshot version " + version);
+    }
+    int settings = in.getInt();
+    int optionCount = count(in);
+    int flagCount = count(in);
+
+    String[] optionNames = new String[optionCount];
+    String[] optionDefaults = new String[optionCount];
+    String[] optionDescriptions = new String[optionCount];
+    OptionType[] optionTypes = new OptionType[optionCount];
+    long[] optionDefaultNumbers = new long[optionCount];
+    OptionType[] types = OptionType.values();
+    for (int i = 0; i < optionCount; i++) {
+      optionNames[i] = readName(in);
+      optionDefaults[i] = readString(in);
+      optionDescriptions[i] = readString(in);
+      int type = in.get();
+      if (type < 0 || type >= types.length) {
+        throw new IOException("Invalid option type " + type);
+      }
+      optionTypes[i] = types[type];
+      optionDefaultNumbers[i] = in.getLong();
+    }
+    long[] requiredMask = readLongs(in, Schema.words(optionCount));
+    long[] repeatableMask = readLongs(in, Schema.words(optionCount));
+
+    String[] flagNames = new String[flagCount];
+    String[] flagDescriptions = new String[flagCount];
+    for (int i = 0; i < flagCount; i++) {
+      flagNames[i] = readName(in);
+      flagDescriptions[i] = readString(in);
+    }
+
+    String[] all = new String[optionCount + flagCount];
+    System.arraycopy(optionNames, 0, all, 0, optionCount);
+    System.arraycopy(flagNames, 0, all, optionCount, flagCount);
+    int[] slots = readInts(in, count(in));
+    int[] hashes = readInts(in, all.length);
+    NameTable names = new NameTable(all, slots, hashes);
+
+    int shortCount = count(in);
+    char[] shortChars = new char[shortCount];
+    int[] shortDescriptors = new int[shortCount];
+    for (int i = 0; i < shortCount; i++) {
+      shortChars[i] = in.getChar();
+      shortDescriptors[i] = in.getInt();
+      if (shortDescriptors[i] < 0 || shortDescriptors[i] >= all.length) {
+        throw new IOException("Invalid short name descriptor " + shortDescriptors[i]);
+      } else if (i > 0 && shortChars[i] <= shortChars[i - 1]) {
+        throw new IOException("Short names are not sorted");
+      }
+    }
+
+    return new Schema(optionNames, optionDefaults, optionDescriptions, requiredMask, repeatableMask, optionTypes,
+        optionDefaultNumbers, flagNames, flagDescriptions, names, shortChars, shortDescriptors, settings);
+  }
+
+  /**
+   * Reads a count and checks that it can fit in the rest of the buffer.
+   */
+  private static int count(ByteBuffer in) throws IOException {
+    int count = in.getInt();
+    if (count < 0 || count > in.remaining()) {
+      throw new IOException("Invalid count " + count);
+    }
+    return count;
+  }
+
+  private static long[] readLongs(ByteBuffer in, int count) {
+    long[] values = new long[count];
+    in.asLongBuffer().get(values);
+    in.position(in.position() + count * 8);
+    return values;
+  }
+
+  private static int[] readInts(ByteBuffer in, int count) {
+    int[] values = new int[count];
+    in.asIntBuffer().get(values);
+    in.position(in.position() + count * 4);
+    return values;
+  }
+
+  /**
+   * Writes a length prefixed UTF-8 string, or the null length.
+   */
+  private static void writeString(DataOutputStream out, String value) throws IOException {
+    if (value == null) {
+      out.writeInt(NULL);
+      return;
+    }
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads an option or flag name, which can't be null.
+   */
+  private static String readName(ByteBuffer in) throws IOException {
+    String name = readString(in);
+    if (name == null) {
+      throw new IOException("Missing name");
+    }
+    return name;
+  }
+
+  /**
+   * Reads a length prefixed UTF-8 string.
+   */
+  private static String readString(ByteBuffer in) throws IOException {
+    int length = in.getInt();
+    if (length == NULL) {
+      return null;
+    } else if (length < 0 || length > in.remaining()) {
+      throw new IOException("Invalid string length " + length);
+    }
+
+    String value;
+    if (in.hasArray()) {
+      value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+    } else {
+      byte[] bytes = new byte[length];
+      in.duplicate().get(bytes);
+      value = new String(bytes, StandardCharsets.UTF_8);
+    }
+    in.position(in.position() + length);
+    return value;
+  }
+}
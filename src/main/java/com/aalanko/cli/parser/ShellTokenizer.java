@@ -0,0 +1,207 @@
+package com.aalanko.cli.parser;
+
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
+
+/**
+ * Splits a command line into tokens using shell style quoting.
+ *
+ * Tokens are separated by unquoted whitespace. Text between single quotes
+ * is taken literally, text between double quotes is taken literally except
+ * for backslash escapes of double quote, backslash, dollar and backtick.
+ * Outside of quotes a backslash escapes the following character. A
+ * backslash followed by a newline is removed as a line continuation.
+ *
+ * All syntax characters are ASCII, so subclasses can feed either
+ * characters or UTF-8 bytes as code units. Tokens without any quotes or
+ * escapes are reported as a plain range of the input, all other tokens
+ * are unescaped into a reused buffer.
+ *
+ * @author Andreas Alanko
+ */
+abstract class ShellTokenizer extends TokenSource {
+  /** Position of the next unread code unit. */
+  private int position;
+  /** End of the input. */
+  private int limit;
+
+  /**
+   * Sets the input range.
+   *
+   * @param position the start of the input
+   * @param limit    the end of the input
+   */
+  void reset(int position, int limit) {
+    this.position = position;
+    this.limit = limit;
+  }
+
+  /**
+   * Gets the code unit at the given position.
+   *
+   * @param index the position
+   * @return the code unit
+   */
+  abstract int unitAt(int index);
+
+  /**
+   * Starts unescaping the current token into the buffer.
+   */
+  abstract void beginCopy();
+
+  /**
+   * Appends a range of input code units to the buffer.
+   *
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   */
+  abstract void appendRange(int start, int end);
+
+  /**
+   * Appends a single code unit to the buffer.
+   *
+   * @param unit the code unit
+   */
+  abstract void appendUnit(int unit);
+
+  /**
+   * Makes a plain input range the current token.
+   *
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   */
+  abstract void finishPlain(int start, int end);
+
+  /**
+   * Makes the buffer the current token.
+   */
+  abstract void finishCopy();
+
+  /**
+   * Advances to the next token.
+   *
+   * An unterminated quote consumes the rest of the input, so the next call
+   * after the failure reports the end of input.
+   *
+   * @return true if there is a current token, false at the end of input
+   * @throws UnterminatedQuoteException thrown if a quote is not closed
+   */
+  @Override
+  boolean next() throws UnterminatedQuoteException {
+    int pos = position;
+
+    while (true) {
+      while (pos < limit && isSpace(unitAt(pos))) {
+        pos++;
+      }
+      if (pos >= limit) {
+        position = pos;
+        return false;
+      }
+
+      int start = pos;
+      boolean copying = false;
+      boolean content = false;
+
+      while (pos < limit) {
+        int unit = unitAt(pos);
+        if (isSpace(unit)) {
+          break;
+        }
+
+        if (unit == '\'' || unit == '"' || unit == '\\') {
+          if (!copying) {
+            beginCopy();
+            appendRange(start, pos);
+            copying = true;
+            content = pos > start;
+          }
+          pos++;
+
+          if (unit == '\'') {
+            int segment = pos;
+            while (pos < limit && unitAt(pos) != '\'') {
+              pos++;
+            }
+            if (pos >= limit) {
+              position = limit;
+              throw new UnterminatedQuoteException("Unterminated single quote at position " + (segment - 1), isStackTraces());
+            }
+            appendRange(segment, pos++);
+            content = true;
+          } else if (unit == '"') {
+            pos = readDoubleQuoted(pos);
+            content = true;
+          } else if (pos >= limit) {
+            appendUnit('\\');
+            content = true;
+          } else {
+            if (unitAt(pos) != '\n') {
+              appendUnit(unitAt(pos));
+              content = true;
+            }
+            pos++;
+          }
+        } else {
+          if (copying) {
+            appendUnit(unit);
+            content = true;
+          }
+          pos++;
+        }
+      }
+
+      position = pos;
+      if (!copying) {
+        finishPlain(start, pos);
+        return true;
+      } else if (content) {
+        finishCopy();
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Reads the rest of a double quoted section into the buffer.
+   *
+   * @param pos the position after the opening quote
+   * @return the position after the closing quote
+   */
+  private int readDoubleQuoted(int pos) throws UnterminatedQuoteException {
+    int open = pos - 1;
+    int segment = pos;
+
+    while (pos < limit) {
+      int unit = unitAt(pos);
+      if (unit == '"') {
+        appendRange(segment, pos);
+        return pos + 1;
+      } else if (unit == '\\' && pos + 1 < limit && isDoubleQuoteEscape(unitAt(pos + 1))) {
+        appendRange(segment, pos);
+        if (unitAt(pos + 1) != '\n') {
+          appendUnit(unitAt(pos + 1));
+        }
+        pos += 2;
+        segment = pos;
+      } else {
+        pos++;
+      }
+    }
+    position = limit;
+    throw new UnterminatedQuoteException("Unterminated double quote at position " + open, isStackTraces());
+  }
+
+  /**
+   * Checks if a backslash escapes the code unit inside double quotes.
+   */
+  private static boolean isDoubleQuoteEscape(int unit) {
+    return unit == '"' || unit == '\\' || unit == '$' || unit == '`' || unit == '\n';
+  }
+
+  /**
+   * Checks if the code unit separates tokens.
+   */
+  private static boolean isSpace(int unit) {
+    return unit == ' ' || unit == '\t' || unit == '\n' || unit == '\r' || unit == '\f';
+  }
+}
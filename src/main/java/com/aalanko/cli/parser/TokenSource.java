@@ -0,0 +1,87 @@
+package com.aalanko.cli.parser;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * A forward only sequence of command line tokens.
+ *
+ * The current token is exposed as a range of characters that is only valid
+ * until the next call to {@link #next()}. A string is only created for it
+ * when {@link #token()} is called, so tokens that are just classified
+ * against the schema never have to be copied.
+ *
+ * @author Andreas Alanko
+ */
+abstract class TokenSource {
+  /** True if the exceptions of malformed input capture a stack trace. */
+  private boolean stackTraces = true;
+
+  /**
+   * Advances to the next token.
+   *
+   * @return true if there is a current token, false at the end of input
+   * @throws SimpleCliParserException thrown if the input is malformed
+   */
+  abstract boolean next() throws SimpleCliParserException;
+
+  /**
+   * Sets if the exceptions of malformed input capture a stack trace.
+   *
+   * Collecting parses only keep the message of the exception, and
+   * throwing parses follow {@link Schema#withStackTraces(boolean)}.
+   *
+   * @param stackTraces false to skip capturing stack traces
+   */
+  void setStackTraces(boolean stackTraces) {
+    this.stackTraces = stackTraces;
+  }
+
+  /**
+   * Checks if the exceptions of malformed input capture a stack trace.
+   *
+   * @return true if stack traces are captured
+   */
+  boolean isStackTraces() {
+    return stackTraces;
+  }
+
+  /**
+   * Gets the characters holding the current token.
+   *
+   * @return the characters
+   */
+  abstract CharSequence chars();
+
+  /**
+   * Gets the start of the current token in {@link #chars()}.
+   *
+   * @return the start, inclusive
+   */
+  abstract int start();
+
+  /**
+   * Gets the end of the current token in {@link #chars()}.
+   *
+   * @return the end, exclusive
+   */
+  abstract int end();
+
+  /**
+   * Resolves the current token against the schema.
+   *
+   * @param schema the schema
+   * @return the descriptor, or -1 if the token is not an option or flag
+   */
+  int resolve(Schema schema) {
+    return schema.resolve(chars(), start(), end());
+  }
+
+  /**
+   * Creates a string of the current token.
+   *
+   * @return the current token
+   */
+  String token() {
+    return chars().subSequence(start(), end()).toString();
+  }
+}
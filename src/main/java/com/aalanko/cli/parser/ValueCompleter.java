@@ -0,0 +1,29 @@
+package com.aalanko.cli.parser;
+
+/**
+ * Suggests values of an option for shell completion, see
+ * {@link Completer#withValueCompleter(String, ValueCompleter)}.
+ *
+ * The candidates are read lazily on one of two shared reader threads and
+ * only until the completer has enough of them or runs out of time, so a
+ * completer backed by a slow source should produce them lazily as well.
+ * When the time is up the reader thread is interrupted and the candidates
+ * it reads later are dropped. A completer that blocks should stop when
+ * interrupted: one that doesn't keeps its reader thread, and while both
+ * are held no option gets value candidates.
+ * Candidates that don't start with the typed prefix are skipped, a
+ * completer may return more than the matches.
+ *
+ * @author Andreas Alanko
+ */
+@FunctionalInterface
+public interface ValueCompleter {
+
+  /**
+   * Gets the candidate values for a typed prefix.
+   *
+   * @param prefix the typed part of the value, may be empty
+   * @return the candidates
+   */
+  Iterable<String> complete(String prefix);
+}
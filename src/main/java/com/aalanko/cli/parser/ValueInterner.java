@@ -0,0 +1,174 @@
+package com.aalanko.cli.parser;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded cache that makes repeated option values and data share one
+ * string, see {@link Schema#withInterner(ValueInterner)}.
+ *
+ * The cache is a fixed size table of strings indexed by hash. A value is
+ * looked up straight from the characters of a token, so a value already in
+ * the cache is never copied into a new string. Each slot holds a cached
+ * string and a string on probation. A value that isn't in the cache only
+ * replaces the string on probation of its slot, and is moved into the
+ * cache when it is seen again while still on probation. A stream of values
+ * that never repeat therefore only churns the probation strings, and a
+ * cached value is only evicted by another value that repeats. The cache
+ * never holds more than twice its capacity in strings.
+ *
+ * The cache is lock free and can be shared by any number of threads.
+ * Racing threads may both create the same string, which only costs the
+ * sharing of that one value. Values longer than the maximum length are
+ * never cached, they are unlikely to repeat and costly to compare.
+ *
+ * Unlike {@link String#intern()}, strings from the cache are ordinary
+ * strings and can be garbage collected once evicted.
+ *
+ * @author Andreas Alanko
+ */
+public final class ValueInterner {
+  /** Default maximum length of a cached value. */
+  public static final int DEFAULT_MAX_LENGTH = 64;
+
+  /** The cached strings. */
+  private final AtomicReferenceArray<String> table;
+  /** The strings seen once, by the same slot index as the cache. */
+  private final AtomicReferenceArray<String> probation;
+  /** Mask of a slot index. */
+  private final int mask;
+  /** Maximum length of a cached value. */
+  private final int maxLength;
+
+  /**
+   * Creates a cache for values up to 64 characters long.
+   *
+   * @param capacity the number of strings to cache, rounded up to a power of two
+   */
+  public ValueInterner(int capacity) {
+    this(capacity, DEFAULT_MAX_LENGTH);
+  }
+
+  /**
+   * Creates a cache.
+   *
+   * @param capacity  the number of strings to cache, rounded up to a power of two
+   * @param maxLength the maximum length of a cached value
+   * @throws IllegalArgumentException thrown if the capacity is not between 1
+   *     and 2^30 or the maximum length is negative
+   */
+  public ValueInterner(int capacity, int maxLength) {
+    if (capacity < 1 || capacity > 1 << 30) {
+      throw new IllegalArgumentException("Capacity must be between 1 and 2^30: " + capacity);
+    } else if (maxLength < 0) {
+      throw new IllegalArgumentException("Maximum length must not be negative: " + maxLength);
+    }
+    int size = Integer.highestOneBit(capacity);
+    if (size < capacity) {
+      size <<= 1;
+    }
+    table = new AtomicReferenceArray<String>(size);
+    probation = new AtomicReferenceArray<String>(size);
+    mask = size - 1;
+    this.maxLength = maxLength;
+  }
+
+  /**
+   * Gets the number of repeated strings the cache can hold.
+   *
+   * @return the capacity
+   */
+  public int getCapacity() {
+    return mask + 1;
+  }
+
+  /**
+   * Gets the shared string equal to a value.
+   *
+   * @param value the value
+   * @return the cached string, or the value itself if it was not cached
+   */
+  public String intern(String value) {
+    int length = value.length();
+    if (length > maxLength) {
+      return value;
+    }
+    int slot = spread(value.hashCode()) & mask;
+    String cached = table.get(slot);
+    if (cached != null && cached.equals(value)) {
+      return cached;
+    }
+    String seen = probation.get(slot);
+    if (seen != null && seen.equals(value)) {
+      table.lazySet(slot, seen);
+      return seen;
+    }
+    probation.lazySet(slot, value);
+    return value;
+  }
+
+  /**
+   * Gets the shared string equal to a range of characters.
+   *
+   * @param chars the characters
+   * @param start the start of the range, inclusive
+   * @param end   the end of the range, exclusive
+   * @return the cached string, or a new one if it was not cached
+   */
+  public String intern(CharSequence chars, int start, int end) {
+    int length = end - start;
+    if (length > maxLength) {
+      return chars.subSequence(start, end).toString();
+    }
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + chars.charAt(i);
+    }
+    int slot = spread(hash) & mask;
+    String cached = table.get(slot);
+    if (cached != null && equals(cached, chars, start, end)) {
+      return cached;
+    }
+    String seen = probation.get(slot);
+    if (seen != null && equals(seen, chars, start, end)) {
+      table.lazySet(slot, seen);
+      return seen;
+    }
+    String value = chars.subSequence(start, end).toString();
+    probation.lazySet(slot, value);
+    return value;
+  }
+
+  /**
+   * Removes all cached strings.
+   */
+  public void clear() {
+    for (int i = 0; i <= mask; i++) {
+      table.set(i, null);
+      probation.set(i, null);
+    }
+  }
+
+  /**
+   * Mixes the high bits of a string hash into the low bits used for the
+   * slot index.
+   */
+  private static int spread(int hash) {
+    hash *= 0x9E3779B9;
+    return hash ^ (hash >>> 16);
+  }
+
+  /**
+   * Checks if a string has the same characters as a range.
+   */
+  private static boolean equals(String value, CharSequence chars, int start, int end) {
+    if (value.length() != end - start) {
+      return false;
+    }
+    for (int i = start; i < end; i++) {
+      if (value.charAt(i - start) != chars.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
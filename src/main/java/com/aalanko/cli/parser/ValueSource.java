@@ -0,0 +1,37 @@
+package com.aalanko.cli.parser;
+
+/**
+ * A source of option values for options not given on the command line,
+ * see {@link Schema#withValueSources(ValueSource...)}.
+ *
+ * Each parse takes a {@link #snapshot()} of every source once and asks it
+ * for each option that is not set, so {@link #get(String)} should be a
+ * cheap lookup in values loaded up front. Sources are shared by all parses
+ * against a schema and must be thread safe.
+ *
+ * @author Andreas Alanko
+ */
+public interface ValueSource {
+
+  /**
+   * Gets the value of an option.
+   *
+   * @param name the option name
+   * @return the value, or null if the source has no value for the option
+   */
+  String get(String name);
+
+  /**
+   * Gets the values of this source for a single parse.
+   *
+   * A source whose values can change, such as a {@link ConfigFileSource}
+   * that reloads its file, returns its current values here so that all
+   * options of a parse see the same version. The default returns this
+   * source.
+   *
+   * @return the source to ask for all options of one parse
+   */
+  default ValueSource snapshot() {
+    return this;
+  }
+}
@@ -0,0 +1,473 @@
+package com.aalanko.cli.parser.binding;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.aalanko.cli.parser.OptionType;
+import com.aalanko.cli.parser.OptionValues;
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Parser;
+import com.aalanko.cli.parser.Schema;
+import com.aalanko.cli.parser.exceptions.FlagNotFoundException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Populates instances of a class from parse results, using the
+ * {@link CliOption}, {@link CliFlag} and {@link CliData} annotations on its
+ * fields.
+ *
+ * The annotations are read and a method handle is built for each field
+ * once per class, see {@link #of(Class)}, and the index of each option
+ * and flag is resolved against the schema. Binding a result of that
+ * schema then only reads each value by its index and writes it through
+ * its handle, primitives are written without boxing. Results of other
+ * schemas, such as copies with other settings, are bound by name. The
+ * schema is built from the annotations as well, so the options don't have
+ * to be declared twice. A field has at most one of the annotations.
+ *
+ * Lists are copied into the bound fields, they don't change with the
+ * result.
+ *
+ * Binders are immutable and can be shared between threads.
+ *
+ * @param <T> the bound class
+ * @author Andreas Alanko
+ */
+public final class Binder<T> {
+  /** Binders by class, built on first use. */
+  private static final ClassValue<Binder<?>> BINDERS = new ClassValue<Binder<?>>() {
+    @Override
+    protected Binder<?> computeValue(Class<?> type) {
+      return new Binder<Object>(type);
+    }
+  };
+
+  /** The bound class. */
+  private final Class<?> type;
+  /** Creates an instance, type {@code ()Object}. */
+  private final MethodHandle constructor;
+  /** Writers of the annotated fields. */
+  private final FieldWriter[] writers;
+  /** Schema of the annotated options and flags. */
+  private final Schema schema;
+
+  /**
+   * Reads the annotations of a class.
+   *
+   * @param type the class
+   * @throws IllegalArgumentException thrown if an annotated field can't be bound
+   */
+  private Binder(Class<?> type) {
+    this.type = type;
+    MethodHandles.Lookup lookup = MethodHandles.lookup();
+    Options options = new Options();
+    List<FieldWriter> list = new ArrayList<FieldWriter>();
+
+    try {
+      List<Class<?>> hierarchy = new ArrayList<Class<?>>();
+      for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+        hierarchy.add(0, c);
+      }
+      for (Class<?> c : hierarchy) {
+        for (Field field : c.getDeclaredFields()) {
+          FieldWriter writer = writer(lookup, options, field);
+          if (writer != null) {
+            list.add(writer);
+          }
+        }
+      }
+    } catch (IllegalAccessException e) {
+      throw new IllegalArgumentException("Can't access fields of " + type.getName(), e);
+    } catch (SimpleCliParserException e) {
+      throw new IllegalArgumentException("Invalid annotations on " + type.getName() + ": " + e.getMessage(), e);
+    }
+
+    MethodHandle create = null;
+    try {
+      Constructor<?> noArgs = type.getDeclaredConstructor();
+      noArgs.setAccessible(true);
+      create = lookup.unreflectConstructor(noArgs).asType(MethodType.methodType(Object.class));
+    } catch (NoSuchMethodException | IllegalAccessException e) {
+      // binding into a new instance is not supported, binding into an existing one is
+    }
+
+    constructor = create;
+    writers = list.toArray(new FieldWriter[list.size()]);
+    schema = options.freeze();
+    for (FieldWriter writer : writers) {
+      writer.index = writer.indexIn(schema);
+    }
+  }
+
+  /**
+   * Gets the binder of a class, reading its annotations on first use.
+   *
+   * @param <T>  the bound class
+   * @param type the class
+   * @return the binder
+   * @throws IllegalArgumentException thrown if an annotated field can't be bound
+   */
+  @SuppressWarnings("unchecked")
+  public static <T> Binder<T> of(Class<T> type) {
+    return (Binder<T>) BINDERS.get(type);
+  }
+
+  /**
+   * Gets the schema of the annotated options and flags.
+   *
+   * @return the schema
+   */
+  public Schema getSchema() {
+    return schema;
+  }
+
+  /**
+   * Parses the given command line arguments array and binds the values to
+   * a new instance.
+   *
+   * @param args the command line arguments as an string array
+   * @return the new instance
+   * @throws SimpleCliParserException thrown when the command line parser fails
+   */
+  public T parse(String[] args) throws SimpleCliParserException {
+    return bind(Parser.parseArgs(schema, args));
+  }
+
+  /**
+   * Binds the values of a parse result to a new instance, created with the
+   * no argument constructor of the class.
+   *
+   * @param result the parse result
+   * @return the new instance
+   * @throws SimpleCliParserException thrown if the result lacks a bound option or flag
+   */
+  @SuppressWarnings("unchecked")
+  public T bind(ParseResult result) throws SimpleCliParserException {
+    if (constructor == null) {
+      throw new IllegalStateException(type.getName() + " has no no argument constructor");
+    }
+    Object target;
+    try {
+      target = (Object) constructor.invokeExact();
+    } catch (RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Can't create " + type.getName(), e);
+    }
+    bind(result, (T) target);
+    return (T) target;
+  }
+
+  /**
+   * Binds the values of a parse result to an existing instance.
+   *
+   * Fields of options that are not set are left unchanged.
+   *
+   * @param result the parse result
+   * @param target the instance
+   * @throws SimpleCliParserException thrown if the result lacks a bound option or flag
+   */
+  public void bind(ParseResult result, T target) throws SimpleCliParserException {
+    Schema resultSchema = result.getSchema();
+    try {
+      for (FieldWriter writer : writers) {
+        int index = writer.index;
+        if (resultSchema != schema) {
+          index = writer.indexIn(resultSchema);
+          if (index < 0) {
+            throw writer.notFound();
+          }
+        }
+        writer.write(result, index, target);
+      }
+    } catch (SimpleCliParserException | RuntimeException | Error e) {
+      throw e;
+    } catch (Throwable e) {
+      throw new IllegalStateException("Can't bind " + type.getName(), e);
+    }
+  }
+
+  /**
+   * Creates the writer of an annotated field and adds its option or flag.
+   *
+   * @return the writer, or null if the field is not annotated
+   */
+  private static FieldWriter writer(MethodHandles.Lookup lookup, Options options, Field field) throws IllegalAccessException, SimpleCliParserException {
+    CliOption option = field.getAnnotation(CliOption.class);
+    CliFlag flag = field.getAnnotation(CliFlag.class);
+    boolean data = field.isAnnotationPresent(CliData.class);
+    int annotations = ((option != null) ? 1 : 0) + ((flag != null) ? 1 : 0) + (data ? 1 : 0);
+    if (annotations == 0) {
+      return null;
+    } else if (annotations > 1) {
+      throw new IllegalArgumentException("Bound field " + field.getName() + " must have only one of @CliOption, @CliFlag and @CliData");
+    }
+    if (Modifier.isFinal(field.getModifiers()) || Modifier.isStatic(field.getModifiers())) {
+      throw new IllegalArgumentException("Bound field " + field.getName() + " must not be final or static");
+    }
+
+    field.setAccessible(true);
+    MethodHandle setter = lookup.unreflectSetter(field);
+    Class<?> fieldType = field.getType();
+
+    if (flag != null) {
+      if (fieldType != boolean.class && fieldType != Boolean.class) {
+        throw unsupported(field);
+      }
+      options.addFlag(flag.name(), flag.description());
+      return new FlagWriter(flag.name(), setter);
+    } else if (data) {
+      if (!isStringList(field)) {
+        throw unsupported(field);
+      }
+      return new DataWriter(setter);
+    }
+
+    String name = option.name();
+    if (isStringList(field)) {
+      options.addRepeatableOption(name, option.required(), option.description());
+      return new ListWriter(name, setter);
+    } else if (fieldType == int[].class || fieldType == long[].class || fieldType == double[].class) {
+      OptionType optionType = (fieldType == int[].class) ? OptionType.INT
+          : (fieldType == long[].class) ? OptionType.LONG : OptionType.DOUBLE;
+      options.addRepeatableOption(name, option.required(), option.description(), optionType);
+      return new ArrayWriter(name, setter, optionType);
+    }
+
+    OptionType optionType;
+    if (fieldType == String.class) {
+      optionType = OptionType.STRING;
+    } else if (fieldType == int.class || fieldType == Integer.class) {
+      optionType = OptionType.INT;
+    } else if (fieldType == long.class || fieldType == Long.class) {
+      optionType = OptionType.LONG;
+    } else if (fieldType == double.class || fieldType == Double.class) {
+      optionType = OptionType.DOUBLE;
+    } else if (fieldType == Duration.class) {
+      optionType = OptionType.DURATION;
+    } else {
+      throw unsupported(field);
+    }
+    options.addOption(name, null, option.required(), option.description(), optionType);
+    return new OptionWriter(name, setter, optionType);
+  }
+
+  /**
+   * Checks if the field is a {@code List<String>}.
+   */
+  private static boolean isStringList(Field field) {
+    if (field.getType() != List.class) {
+      return false;
+    }
+    Type generic = field.getGenericType();
+    return !(generic instanceof ParameterizedType)
+        || ((ParameterizedType) generic).getActualTypeArguments()[0] == String.class;
+  }
+
+  /**
+   * Creates the failure for a field type that can't be bound.
+   */
+  private static IllegalArgumentException unsupported(Field field) {
+    return new IllegalArgumentException("Field " + field.getName() + " of type " + field.getGenericType().getTypeName() + " can't be bound");
+  }
+
+  /**
+   * Writes one field from a parse result.
+   */
+  private abstract static class FieldWriter {
+    /** The option or flag name, or null for data. */
+    final String name;
+    /** The field setter, adapted to an {@code Object} target. */
+    final MethodHandle setter;
+    /** The option or flag index in the schema of the binder. */
+    int index;
+
+    FieldWriter(String name, MethodHandle setter, Class<?> valueType) {
+      this.name = name;
+      this.setter = setter.asType(MethodType.methodType(void.class, Object.class, valueType));
+    }
+
+    /**
+     * Gets the index of the option in a schema.
+     *
+     * @param schema the schema
+     * @return the index, or -1 if the schema lacks the option
+     */
+    int indexIn(Schema schema) {
+      return schema.optionIndex(name);
+    }
+
+    /**
+     * Creates the failure for a schema that lacks the option.
+     */
+    SimpleCliParserException notFound() {
+      return new OptionNotFoundException("Option \"" + name + "\" was not found");
+    }
+
+    abstract void write(ParseResult result, int index, Object target) throws Throwable;
+  }
+
+  /**
+   * Writes a flag.
+   */
+  private static final class FlagWriter extends FieldWriter {
+    FlagWriter(String name, MethodHandle setter) {
+      super(name, setter, boolean.class);
+    }
+
+    @Override
+    int indexIn(Schema schema) {
+      return schema.flagIndex(name);
+    }
+
+    @Override
+    SimpleCliParserException notFound() {
+      return new FlagNotFoundException("Flag \"" + name + "\" was not found");
+    }
+
+    @Override
+    void write(ParseResult result, int index, Object target) throws Throwable {
+      setter.invokeExact(target, result.getFlag(index));
+    }
+  }
+
+  /**
+   * Writes the data values.
+   */
+  private static final class DataWriter extends FieldWriter {
+    DataWriter(MethodHandle setter) {
+      super(null, setter, List.class);
+    }
+
+    @Override
+    int indexIn(Schema schema) {
+      return 0;
+    }
+
+    @Override
+    void write(ParseResult result, int index, Object target) throws Throwable {
+      setter.invokeExact(target, (List<?>) new ArrayList<String>(result.getDataList()));
+    }
+  }
+
+  /**
+   * Writes a single valued option.
+   */
+  private static final class OptionWriter extends FieldWriter {
+    /** The option type. */
+    private final OptionType type;
+
+    OptionWriter(String name, MethodHandle setter, OptionType type) {
+      super(name, setter, valueType(type));
+      this.type = type;
+    }
+
+    private static Class<?> valueType(OptionType type) {
+      switch (type) {
+      case INT:
+        return int.class;
+      case LONG:
+        return long.class;
+      case DOUBLE:
+        return double.class;
+      case DURATION:
+        return Duration.class;
+      default:
+        return String.class;
+      }
+    }
+
+    @Override
+    void write(ParseResult result, int index, Object target) throws Throwable {
+      if (!result.isOptionSet(index)) {
+        return;
+      }
+      switch (type) {
+      case INT:
+        setter.invokeExact(target, result.getInt(index));
+        break;
+      case LONG:
+        setter.invokeExact(target, result.getLong(index));
+        break;
+      case DOUBLE:
+        setter.invokeExact(target, result.getDouble(index));
+        break;
+      case DURATION:
+        setter.invokeExact(target, result.getDuration(index));
+        break;
+      default:
+        setter.invokeExact(target, result.getOption(index));
+      }
+    }
+  }
+
+  /**
+   * Writes a repeatable string option.
+   */
+  private static final class ListWriter extends FieldWriter {
+    ListWriter(String name, MethodHandle setter) {
+      super(name, setter, List.class);
+    }
+
+    @Override
+    void write(ParseResult result, int index, Object target) throws Throwable {
+      OptionValues values = result.getValues(index);
+      if (!values.isEmpty()) {
+        setter.invokeExact(target, (List<?>) new ArrayList<String>(values.asList()));
+      }
+    }
+  }
+
+  /**
+   * Writes a repeatable typed option into a primitive array.
+   */
+  private static final class ArrayWriter extends FieldWriter {
+    /** The option type. */
+    private final OptionType type;
+
+    ArrayWriter(String name, MethodHandle setter, OptionType type) {
+      super(name, setter, Object.class);
+      this.type = type;
+    }
+
+    @Override
+    void write(ParseResult result, int index, Object target) throws Throwable {
+      OptionValues values = result.getValues(index);
+      if (values.isEmpty()) {
+        return;
+      }
+      Object array;
+      if (type == OptionType.INT) {
+        int[] ints = new int[values.size()];
+        for (int i = 0; i < ints.length; i++) {
+          ints[i] = values.getInt(i);
+        }
+        array = ints;
+      } else if (type == OptionType.LONG) {
+        long[] longs = new long[values.size()];
+        for (int i = 0; i < longs.length; i++) {
+          longs[i] = values.getLong(i);
+        }
+        array = longs;
+      } else {
+        double[] doubles = new double[values.size()];
+        for (int i = 0; i < doubles.length; i++) {
+          doubles[i] = values.getDouble(i);
+        }
+        array = doubles;
+      }
+      setter.invokeExact(target, array);
+    }
+  }
+}
@@ -0,0 +1,19 @@
+package com.aalanko.cli.parser.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@code List<String>} field to the data values, see
+ * {@link Binder}.
+ *
+ * @author Andreas Alanko
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface CliData {
+}
@@ -0,0 +1,28 @@
+package com.aalanko.cli.parser.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a {@code boolean} field to a flag, see {@link Binder}.
+ *
+ * @author Andreas Alanko
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface CliFlag {
+
+  /**
+   * @return the flag name
+   */
+  String name();
+
+  /**
+   * @return the flag description
+   */
+  String description() default "";
+}
@@ -0,0 +1,40 @@
+package com.aalanko.cli.parser.binding;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Binds a field to an option, see {@link Binder}.
+ *
+ * The option type follows the field type: {@code String} is a string
+ * option, {@code int}, {@code long}, {@code double} and their wrappers are
+ * typed options and {@code java.time.Duration} is a duration option.
+ * {@code List<String>}, {@code int[]}, {@code long[]} and {@code double[]}
+ * fields are repeatable options. A field whose option is not given keeps
+ * the value it was initialized with.
+ *
+ * @author Andreas Alanko
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.FIELD)
+public @interface CliOption {
+
+  /**
+   * @return the option name
+   */
+  String name();
+
+  /**
+   * @return if the option is required to be set
+   */
+  boolean required() default false;
+
+  /**
+   * @return the option description
+   */
+  String description() default "";
+}
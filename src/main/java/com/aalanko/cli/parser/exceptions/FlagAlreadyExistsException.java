@@ -5,4 +5,8 @@ public class FlagAlreadyExistsException extends SimpleCliParserException {
   public FlagAlreadyExistsException(String message) {
     super(message);
   }
+
+  public FlagAlreadyExistsException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
@@ -5,4 +5,8 @@ public class FlagNotFoundException extends SimpleCliParserException {
   public FlagNotFoundException(String message) {
     super(message);
   }
+
+  public FlagNotFoundException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
@@ -0,0 +1,12 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class InvalidOptionValueException extends SimpleCliParserException {
+
+  public InvalidOptionValueException(String message) {
+    super(message);
+  }
+
+  public InvalidOptionValueException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+}
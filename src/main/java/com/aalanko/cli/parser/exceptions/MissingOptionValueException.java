@@ -5,4 +5,8 @@ public class MissingOptionValueException extends SimpleCliParserException {
   public MissingOptionValueException(String message) {
     super(message);
   }
+
+  public MissingOptionValueException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
@@ -5,4 +5,8 @@ public class MissingRequiredOptionException extends SimpleCliParserException {
   public MissingRequiredOptionException(String message) {
     super(message);
   }
+
+  public MissingRequiredOptionException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
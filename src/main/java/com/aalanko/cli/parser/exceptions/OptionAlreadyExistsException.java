@@ -5,4 +5,8 @@ public class OptionAlreadyExistsException extends SimpleCliParserException {
   public OptionAlreadyExistsException(String message) {
     super(message);
   }
+
+  public OptionAlreadyExistsException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
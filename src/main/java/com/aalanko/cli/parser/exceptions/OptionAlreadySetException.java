@@ -5,4 +5,8 @@ public class OptionAlreadySetException extends SimpleCliParserException {
   public OptionAlreadySetException(String message) {
     super(message);
   }
+
+  public OptionAlreadySetException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
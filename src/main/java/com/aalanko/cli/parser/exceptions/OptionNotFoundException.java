@@ -5,4 +5,8 @@ public class OptionNotFoundException extends SimpleCliParserException {
   public OptionNotFoundException(String message) {
     super(message);
   }
+
+  public OptionNotFoundException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
 }
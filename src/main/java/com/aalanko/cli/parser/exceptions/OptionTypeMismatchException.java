@@ -0,0 +1,12 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class OptionTypeMismatchException extends SimpleCliParserException {
+
+  public OptionTypeMismatchException(String message) {
+    super(message);
+  }
+
+  public OptionTypeMismatchException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+}
@@ -0,0 +1,20 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class ResponseFileException extends SimpleCliParserException {
+
+  public ResponseFileException(String message) {
+    super(message);
+  }
+
+  public ResponseFileException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+
+  public ResponseFileException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  public ResponseFileException(String message, Throwable cause, boolean writableStackTrace) {
+    super(message, cause, writableStackTrace);
+  }
+}
@@ -4,4 +4,26 @@ public class SimpleCliParserException extends Exception {
   public SimpleCliParserException(String message) {
     super(message);
   }
+
+  public SimpleCliParserException(String message, Throwable cause) {
+    super(message, cause);
+  }
+
+  /**
+   * @param message            the detail message
+   * @param writableStackTrace false to skip capturing the stack trace, which
+   *                           makes the exception much cheaper to create
+   */
+  public SimpleCliParserException(String message, boolean writableStackTrace) {
+    super(message, null, true, writableStackTrace);
+  }
+
+  /**
+   * @param message            the detail message
+   * @param cause              the cause
+   * @param writableStackTrace false to skip capturing the stack trace
+   */
+  public SimpleCliParserException(String message, Throwable cause, boolean writableStackTrace) {
+    super(message, cause, true, writableStackTrace);
+  }
 }
@@ -0,0 +1,12 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class UnknownCommandException extends SimpleCliParserException {
+
+  public UnknownCommandException(String message) {
+    super(message);
+  }
+
+  public UnknownCommandException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+}
@@ -0,0 +1,12 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class UnknownOptionException extends SimpleCliParserException {
+
+  public UnknownOptionException(String message) {
+    super(message);
+  }
+
+  public UnknownOptionException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+}
@@ -0,0 +1,12 @@
+package com.aalanko.cli.parser.exceptions;
+
+public class UnterminatedQuoteException extends SimpleCliParserException {
+
+  public UnterminatedQuoteException(String message) {
+    super(message);
+  }
+
+  public UnterminatedQuoteException(String message, boolean writableStackTrace) {
+    super(message, writableStackTrace);
+  }
+}
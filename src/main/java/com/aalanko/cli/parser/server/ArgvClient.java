@@ -0,0 +1,134 @@
+package com.aalanko.cli.parser.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Sends a command line to an {@link ArgvServer} and relays its output and
+ * exit status.
+ *
+ * The port and the token of the server are read from its server file,
+ * the command line is sent together with the working directory of the
+ * client.
+ *
+ * The client is meant to be started with a small heap and class data
+ * sharing, or compiled ahead of time, so that it starts much faster than
+ * the tool itself.
+ *
+ * @author Andreas Alanko
+ */
+public final class ArgvClient {
+  /** System property with the path of the server file. */
+  public static final String SERVER_FILE_PROPERTY = "simplecliparser.server.file";
+
+  /** Digits of the hexadecimal token. */
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+  private ArgvClient() {
+  }
+
+  /**
+   * Runs a command line on the server that wrote the given server file,
+   * from the working directory of this process.
+   *
+   * @param serverFile the server file, see {@link ArgvServer#start(int, Path)}
+   * @param args       the command line arguments
+   * @param out        the stream to copy the standard output to
+   * @param err        the stream to copy the standard error to
+   * @return the exit status
+   * @throws IOException thrown if the server file can't be read, the server
+   *     can't be reached or the response is invalid
+   */
+  public static int run(Path serverFile, String[] args, OutputStream out, OutputStream err) throws IOException {
+    String[] contents = new String(Files.readAllBytes(serverFile), StandardCharsets.US_ASCII).trim().split(" ");
+    int port;
+    byte[] token;
+    try {
+      if (contents.length != 2) {
+        throw new IllegalArgumentException("expected port and token");
+      }
+      port = Integer.parseInt(contents[0]);
+      token = unhex(contents[1]);
+    } catch (IllegalArgumentException e) {
+      throw new IOException("Invalid server file " + serverFile + ": " + e.getMessage(), e);
+    }
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+      socket.setTcpNoDelay(true);
+      String directory = Paths.get("").toAbsolutePath().toString();
+      Protocol.writeRequest(new DataOutputStream(new BufferedOutputStream(socket.getOutputStream())), token, directory, args);
+
+      DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+      int status = in.readInt();
+      out.write(Protocol.readBlock(in, Protocol.MAX_BLOCK));
+      out.flush();
+      err.write(Protocol.readBlock(in, Protocol.MAX_BLOCK));
+      err.flush();
+      return status;
+    }
+  }
+
+  /**
+   * Runs the arguments on the server given by the
+   * {@link #SERVER_FILE_PROPERTY} system property and exits with its
+   * status.
+   *
+   * @param args the command line arguments
+   */
+  public static void main(String[] args) {
+    String file = System.getProperty(SERVER_FILE_PROPERTY);
+    if (file == null) {
+      System.err.println("System property " + SERVER_FILE_PROPERTY + " is not set");
+      System.exit(ArgvServer.STATUS_USAGE);
+    }
+    try {
+      System.exit(run(Paths.get(file), args, System.out, System.err));
+    } catch (IOException e) {
+      System.err.println("Can't reach server of " + file + ": " + e.getMessage());
+      System.exit(ArgvServer.STATUS_FAILED);
+    }
+  }
+
+  /**
+   * Encodes bytes as lowercase hexadecimal digits.
+   */
+  static String hex(byte[] bytes) {
+    char[] chars = new char[bytes.length * 2];
+    for (int i = 0; i < bytes.length; i++) {
+      chars[2 * i] = HEX[(bytes[i] >>> 4) & 0xF];
+      chars[2 * i + 1] = HEX[bytes[i] & 0xF];
+    }
+    return new String(chars);
+  }
+
+  /**
+   * Decodes hexadecimal digits.
+   *
+   * @throws IllegalArgumentException thrown if the text is not hexadecimal
+   */
+  static byte[] unhex(String text) {
+    if (text.length() % 2 != 0) {
+      throw new IllegalArgumentException("odd number of hex digits");
+    }
+    byte[] bytes = new byte[text.length() / 2];
+    for (int i = 0; i < bytes.length; i++) {
+      int high = Character.digit(text.charAt(2 * i), 16);
+      int low = Character.digit(text.charAt(2 * i + 1), 16);
+      if (high < 0 || low < 0) {
+        throw new IllegalArgumentException("invalid hex digit");
+      }
+      bytes[i] = (byte) ((high << 4) | low);
+    }
+    return bytes;
+  }
+}
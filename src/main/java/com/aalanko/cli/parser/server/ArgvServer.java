@@ -0,0 +1,465 @@
+package com.aalanko.cli.parser.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileAttribute;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.aalanko.cli.parser.ParseContext;
+import com.aalanko.cli.parser.ParseError;
+import com.aalanko.cli.parser.ParseResult;
+import com.aalanko.cli.parser.Schema;
+
+/**
+ * A resident process that parses and runs command lines sent by
+ * {@link ArgvClient}, so repeated invocations of a tool skip starting a
+ * JVM and building its options.
+ *
+ * The server listens on the loopback interface only. When started it
+ * writes its port and a random token to a server file that only its owner
+ * can read, where the file system supports POSIX permissions. A client
+ * has to send the token before its command line, so only users that can
+ * read the file can run commands. Connections with another token are
+ * closed without an answer.
+ *
+ * Every connection carries one command line and the working directory of
+ * the client, which is parsed by a worker thread against the shared
+ * schema and handed to the {@link CommandHandler}. Each worker reuses its
+ * own {@link ParseContext}. Relative response file names are resolved
+ * against the directory of the client, the handler gets it to resolve
+ * relative paths in values. Whatever the handler prints is sent back to
+ * the client together with the exit status.
+ *
+ * A command line with parse errors is not handed to the handler, the
+ * errors are sent back on standard error with exit status 2.
+ *
+ * The token is checked by a small handshake stage before the connection
+ * takes a worker. A client that doesn't send its token within
+ * {@value #TOKEN_TIMEOUT} milliseconds, or its whole command line within
+ * {@value #READ_TIMEOUT} milliseconds of connecting, is disconnected,
+ * however slowly the bytes trickle in. At most {@value #MAX_OUTPUT} bytes
+ * of each output stream are kept, the rest is dropped and a note on
+ * standard error tells the client how much.
+ *
+ * @author Andreas Alanko
+ */
+public final class ArgvServer implements Closeable {
+  /** Exit status of a failed command. */
+  public static final int STATUS_FAILED = 1;
+  /** Exit status of a command line with parse errors. */
+  public static final int STATUS_USAGE = 2;
+  /** Time to read a request from connecting, in milliseconds. */
+  public static final int READ_TIMEOUT = 10000;
+  /** Time to read the token from connecting, in milliseconds. */
+  public static final int TOKEN_TIMEOUT = 1000;
+  /** Largest number of bytes kept of each output stream. */
+  public static final int MAX_OUTPUT = Protocol.MAX_BLOCK - 1024;
+  /** Number of threads that check tokens. */
+  private static final int HANDSHAKE_THREADS = 2;
+  /** Longest pause of the accept loop after a failure, in milliseconds. */
+  private static final long MAX_ACCEPT_PAUSE = 1000;
+
+  /** The schema. */
+  private final Schema schema;
+  /** The handler. */
+  private final CommandHandler handler;
+  /** The threads that check tokens before handing connections to the workers. */
+  private final ExecutorService handshakes;
+  /** The workers. */
+  private final ExecutorService workers;
+  /** True if the workers are shut down when the server is closed. */
+  private final boolean ownsWorkers;
+  /** Parse context of each worker thread. */
+  private final ThreadLocal<ParseContext> contexts;
+  /** The token clients have to send. */
+  private final byte[] token;
+  /** The listening socket, or null until started. */
+  private volatile ServerSocket socket;
+  /** The server file, or null until started. */
+  private Path serverFile;
+
+  /**
+   * Creates a server with one worker per processor.
+   *
+   * @param schema  the schema
+   * @param handler the handler
+   */
+  public ArgvServer(Schema schema, CommandHandler handler) {
+    this(schema, handler, Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), new DaemonFactory("argv-server-worker-")), true);
+  }
+
+  /**
+   * Creates a server with the given workers. The workers are not shut down
+   * when the server is closed.
+   *
+   * @param schema  the schema
+   * @param handler the handler
+   * @param workers the workers
+   */
+  public ArgvServer(Schema schema, CommandHandler handler, ExecutorService workers) {
+    this(schema, handler, workers, false);
+  }
+
+  private ArgvServer(Schema schema, CommandHandler handler, ExecutorService workers, boolean ownsWorkers) {
+    this.schema = schema;
+    this.handler = handler;
+    this.workers = workers;
+    this.ownsWorkers = ownsWorkers;
+    handshakes = Executors.newFixedThreadPool(HANDSHAKE_THREADS, new DaemonFactory("argv-server-handshake-"));
+    token = new byte[Protocol.TOKEN_LENGTH];
+    new SecureRandom().nextBytes(token);
+    contexts = new ThreadLocal<ParseContext>() {
+      @Override
+      protected ParseContext initialValue() {
+        return new ParseContext(ArgvServer.this.schema);
+      }
+    };
+  }
+
+  /**
+   * Starts listening on any free loopback port, see
+   * {@link #start(int, Path)}.
+   *
+   * @param serverFile the file to write the port and token to
+   * @throws IOException thrown if the port can't be bound or the file can't be written
+   * @throws IllegalStateException thrown if the server was already started
+   */
+  public void start(Path serverFile) throws IOException {
+    start(0, serverFile);
+  }
+
+  /**
+   * Starts listening on a loopback port and writes the port and the token
+   * to the server file, which {@link ArgvClient} reads. The file is
+   * replaced if it exists and deleted when the server is closed.
+   *
+   * @param port       the port, or 0 for any free port
+   * @param serverFile the file to write the port and token to
+   * @throws IOException thrown if the port can't be bound or the file can't be written
+   * @throws IllegalStateException thrown if the server was already started
+   */
+  public synchronized void start(int port, Path serverFile) throws IOException {
+    if (socket != null) {
+      throw new IllegalStateException("Server already started");
+    }
+    ServerSocket server = new ServerSocket();
+    try {
+      server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+      writeServerFile(serverFile, server.getLocalPort());
+    } catch (IOException e) {
+      server.close();
+      throw e;
+    }
+    socket = server;
+    this.serverFile = serverFile;
+
+    Thread acceptor = new Thread(() -> accept(server), "argv-server-accept");
+    acceptor.setDaemon(true);
+    acceptor.start();
+  }
+
+  /**
+   * Gets the port the server listens on.
+   *
+   * @return the port
+   * @throws IllegalStateException thrown if the server is not started
+   */
+  public int getPort() {
+    ServerSocket server = socket;
+    if (server == null) {
+      throw new IllegalStateException("Server not started");
+    }
+    return server.getLocalPort();
+  }
+
+  /**
+   * Stops listening. Command lines already received are still run.
+   */
+  @Override
+  public synchronized void close() throws IOException {
+    if (socket != null) {
+      socket.close();
+      Files.deleteIfExists(serverFile);
+    }
+    handshakes.shutdown();
+    if (ownsWorkers) {
+      workers.shutdown();
+    }
+  }
+
+  /**
+   * Writes the port and the token to a new file readable by its owner
+   * only, then moves it over the server file.
+   */
+  private void writeServerFile(Path file, int port) throws IOException {
+    Path directory = file.toAbsolutePath().getParent();
+    FileAttribute<?>[] attributes = new FileAttribute<?>[0];
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      attributes = new FileAttribute<?>[] { PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")) };
+    }
+    Path temporary = Files.createTempFile(directory, ".argv-server", ".tmp", attributes);
+    try {
+      Files.write(temporary, (port + " " + ArgvClient.hex(token) + "\n").getBytes(StandardCharsets.US_ASCII));
+      Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      Files.deleteIfExists(temporary);
+    }
+  }
+
+  /**
+   * Accepts connections until the socket is closed. After a failure the
+   * loop pauses, twice as long after each failure in a row, so a
+   * persistent failure such as running out of file descriptors doesn't
+   * spin.
+   */
+  private void accept(ServerSocket server) {
+    long pause = 1;
+    while (!server.isClosed()) {
+      Socket connection;
+      try {
+        connection = server.accept();
+        pause = 1;
+      } catch (SocketException e) {
+        return;
+      } catch (IOException e) {
+        try {
+          Thread.sleep(pause);
+        } catch (InterruptedException interrupted) {
+          return;
+        }
+        pause = Math.min(pause * 2, MAX_ACCEPT_PAUSE);
+        continue;
+      }
+      long accepted = System.nanoTime();
+      try {
+        handshakes.execute(() -> handshake(connection, accepted));
+      } catch (RejectedExecutionException e) {
+        closeQuietly(connection);
+      }
+    }
+  }
+
+  /**
+   * Checks the token of a connection and hands it to a worker.
+   *
+   * @param accepted the time the connection was accepted, in
+   *     {@link System#nanoTime()} units
+   */
+  private void handshake(Socket connection, long accepted) {
+    boolean handed = false;
+    try {
+      connection.setTcpNoDelay(true);
+      DeadlineInputStream deadline = new DeadlineInputStream(connection, accepted + TimeUnit.MILLISECONDS.toNanos(TOKEN_TIMEOUT));
+      DataInputStream in = new DataInputStream(new BufferedInputStream(deadline));
+      if (!MessageDigest.isEqual(token, Protocol.readToken(in))) {
+        return;
+      }
+      deadline.setDeadline(accepted + TimeUnit.MILLISECONDS.toNanos(READ_TIMEOUT));
+      workers.execute(() -> serve(connection, in));
+      handed = true;
+    } catch (IOException | RejectedExecutionException e) {
+      // a client without the token or too slow, or the server is closing
+    } finally {
+      if (!handed) {
+        closeQuietly(connection);
+      }
+    }
+  }
+
+  /**
+   * Reads, runs and answers one command line after its token.
+   */
+  private void serve(Socket connection, DataInputStream in) {
+    try {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(connection.getOutputStream()));
+      Protocol.Request request = Protocol.readRequest(in);
+      CappedOutput stdout = new CappedOutput();
+      CappedOutput stderr = new CappedOutput();
+      int status;
+      try (PrintStream outStream = new PrintStream(stdout, false, "UTF-8");
+          PrintStream errStream = new PrintStream(stderr, false, "UTF-8")) {
+        status = run(request, outStream, errStream);
+      }
+      stderr.noteDropped("standard output", stdout);
+      stderr.noteDropped("standard error", stderr);
+
+      out.writeInt(status);
+      Protocol.writeBlock(out, stdout.toByteArray());
+      Protocol.writeBlock(out, stderr.toByteArray());
+      out.flush();
+    } catch (IOException e) {
+      // the client went away, nothing to answer
+    } finally {
+      closeQuietly(connection);
+    }
+  }
+
+  /**
+   * Parses and runs a command line.
+   *
+   * @return the exit status
+   */
+  private int run(Protocol.Request request, PrintStream out, PrintStream err) {
+    Path directory;
+    try {
+      directory = Paths.get(request.directory);
+    } catch (InvalidPathException e) {
+      directory = null;
+    }
+    if (directory == null || !directory.isAbsolute()) {
+      err.println("Invalid working directory \"" + request.directory + "\"");
+      return STATUS_USAGE;
+    }
+
+    ParseContext context = contexts.get();
+    context.setDirectory(directory);
+    ParseResult result = context.tryParse(request.args);
+    if (result.hasErrors()) {
+      for (ParseError error : result.getErrors()) {
+        err.println(error.getMessage());
+      }
+      return STATUS_USAGE;
+    }
+    try {
+      return handler.handle(result, directory, out, err);
+    } catch (Exception e) {
+      err.println(e.toString());
+      return STATUS_FAILED;
+    }
+  }
+
+  private static void closeQuietly(Socket connection) {
+    try {
+      connection.close();
+    } catch (IOException e) {
+      // already closed
+    }
+  }
+
+  /**
+   * Input of a connection that fails once a deadline has passed, no matter
+   * how many reads that took. Each read waits at most until the deadline.
+   */
+  private static final class DeadlineInputStream extends FilterInputStream {
+    /** The connection. */
+    private final Socket connection;
+    /** The deadline, in {@link System#nanoTime()} units. */
+    private long deadline;
+
+    DeadlineInputStream(Socket connection, long deadline) throws IOException {
+      super(connection.getInputStream());
+      this.connection = connection;
+      this.deadline = deadline;
+    }
+
+    void setDeadline(long deadline) {
+      this.deadline = deadline;
+    }
+
+    @Override
+    public int read() throws IOException {
+      waitAtMostUntilDeadline();
+      return super.read();
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+      waitAtMostUntilDeadline();
+      return super.read(bytes, offset, length);
+    }
+
+    private void waitAtMostUntilDeadline() throws IOException {
+      long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+      if (remaining <= 0) {
+        throw new SocketTimeoutException("Request not received in time");
+      }
+      connection.setSoTimeout((int) remaining);
+    }
+  }
+
+  /**
+   * Output that keeps at most {@link #MAX_OUTPUT} bytes and counts the
+   * bytes it drops.
+   */
+  private static final class CappedOutput extends ByteArrayOutputStream {
+    /** Number of bytes dropped. */
+    private long dropped;
+
+    @Override
+    public synchronized void write(int b) {
+      if (count < MAX_OUTPUT) {
+        super.write(b);
+      } else {
+        dropped++;
+      }
+    }
+
+    @Override
+    public synchronized void write(byte[] bytes, int offset, int length) {
+      int kept = Math.min(length, MAX_OUTPUT - count);
+      super.write(bytes, offset, kept);
+      dropped += length - kept;
+    }
+
+    /**
+     * Appends a note about the bytes dropped from an output, past the
+     * limit. The room left in a block after the limit holds both notes.
+     */
+    synchronized void noteDropped(String name, CappedOutput output) {
+      if (output.dropped > 0) {
+        byte[] note = ("\nargv-server: " + name + " truncated, " + output.dropped + " bytes dropped\n").getBytes(StandardCharsets.UTF_8);
+        super.write(note, 0, note.length);
+      }
+    }
+  }
+
+  /**
+   * Creates daemon threads, so an unclosed server doesn't keep the process
+   * alive.
+   */
+  private static final class DaemonFactory implements ThreadFactory {
+    /** Prefix of the thread names. */
+    private final String prefix;
+    /** Number of the next thread. */
+    private final AtomicInteger next = new AtomicInteger();
+
+    DaemonFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable task) {
+      Thread thread = new Thread(task, prefix + next.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+}
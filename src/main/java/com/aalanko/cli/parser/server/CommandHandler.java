@@ -0,0 +1,34 @@
+package com.aalanko.cli.parser.server;
+
+import java.io.PrintStream;
+import java.nio.file.Path;
+
+import com.aalanko.cli.parser.ParseResult;
+
+/**
+ * Runs a command line received by an {@link ArgvServer}.
+ *
+ * A handler is called by many worker threads at once and must be thread
+ * safe.
+ *
+ * @author Andreas Alanko
+ */
+@FunctionalInterface
+public interface CommandHandler {
+
+  /**
+   * Runs a parsed command line.
+   *
+   * The result is reused by the worker thread, it is only valid until the
+   * handler returns.
+   *
+   * @param result    the parsed command line
+   * @param directory the working directory of the client, to resolve
+   *     relative paths in values against
+   * @param out       the standard output of the client
+   * @param err       the standard error of the client
+   * @return the exit status of the client
+   * @throws Exception thrown if the command fails, the client exits with status 1
+   */
+  int handle(ParseResult result, Path directory, PrintStream out, PrintStream err) throws Exception;
+}
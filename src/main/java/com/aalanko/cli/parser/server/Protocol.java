@@ -0,0 +1,149 @@
+package com.aalanko.cli.parser.server;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The wire format between {@link ArgvClient} and {@link ArgvServer}.
+ *
+ * A request is the token of the server, the working directory of the
+ * client, the argument count and the arguments. A response is the exit
+ * status followed by the standard output and standard error bytes.
+ * Strings are length prefixed UTF-8, byte blocks are length prefixed, all
+ * integers are big endian.
+ *
+ * Blocks are read into a buffer that grows as the bytes arrive, so a
+ * length prefix alone doesn't make the reader allocate.
+ *
+ * @author Andreas Alanko
+ */
+final class Protocol {
+  /** Length of the server token in bytes. */
+  static final int TOKEN_LENGTH = 32;
+  /** Largest number of arguments in a request. */
+  static final int MAX_ARGS = 1 << 16;
+  /** Largest size of the directory and arguments of a request in bytes. */
+  static final int MAX_REQUEST = 1 << 24;
+  /** Largest size of an output block in bytes. */
+  static final int MAX_BLOCK = 1 << 24;
+  /** Size of the first buffer of a block. */
+  private static final int FIRST_BUFFER = 1 << 12;
+
+  private Protocol() {
+  }
+
+  /**
+   * A command line received by the server.
+   */
+  static final class Request {
+    /** The working directory of the client. */
+    final String directory;
+    /** The arguments. */
+    final String[] args;
+
+    Request(String directory, String[] args) {
+      this.directory = directory;
+      this.args = args;
+    }
+  }
+
+  /**
+   * Writes a request.
+   *
+   * @param out       the stream
+   * @param token     the server token
+   * @param directory the working directory of the client
+   * @param args      the arguments
+   * @throws IOException thrown if writing fails
+   */
+  static void writeRequest(DataOutputStream out, byte[] token, String directory, String[] args) throws IOException {
+    writeBlock(out, token);
+    writeBlock(out, directory.getBytes(StandardCharsets.UTF_8));
+    out.writeInt(args.length);
+    for (String arg : args) {
+      writeBlock(out, arg.getBytes(StandardCharsets.UTF_8));
+    }
+    out.flush();
+  }
+
+  /**
+   * Reads the token that starts a request.
+   *
+   * @param in the stream
+   * @return the token
+   * @throws IOException thrown if reading fails or the token has the wrong length
+   */
+  static byte[] readToken(DataInputStream in) throws IOException {
+    byte[] token = readBlock(in, TOKEN_LENGTH);
+    if (token.length != TOKEN_LENGTH) {
+      throw new IOException("Invalid token length " + token.length);
+    }
+    return token;
+  }
+
+  /**
+   * Reads the rest of a request after its token.
+   *
+   * @param in the stream
+   * @return the request
+   * @throws IOException thrown if reading fails or the request is too large
+   */
+  static Request readRequest(DataInputStream in) throws IOException {
+    byte[] directory = readBlock(in, MAX_REQUEST);
+    int remaining = MAX_REQUEST - directory.length;
+    int count = in.readInt();
+    if (count < 0 || count > MAX_ARGS) {
+      throw new IOException("Invalid argument count " + count);
+    }
+    String[] args = new String[Math.min(count, 16)];
+    for (int i = 0; i < count; i++) {
+      byte[] arg = readBlock(in, remaining);
+      remaining -= arg.length;
+      if (i == args.length) {
+        args = Arrays.copyOf(args, Math.min(count, args.length * 2));
+      }
+      args[i] = new String(arg, StandardCharsets.UTF_8);
+    }
+    return new Request(new String(directory, StandardCharsets.UTF_8), args);
+  }
+
+  /**
+   * Writes a length prefixed block of bytes.
+   *
+   * @param out   the stream
+   * @param bytes the bytes
+   * @throws IOException thrown if writing fails
+   */
+  static void writeBlock(DataOutputStream out, byte[] bytes) throws IOException {
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * Reads a length prefixed block of bytes.
+   *
+   * @param in  the stream
+   * @param max the largest accepted length
+   * @return the bytes
+   * @throws IOException thrown if reading fails or the block is too large
+   */
+  static byte[] readBlock(DataInputStream in, int max) throws IOException {
+    int length = in.readInt();
+    if (length < 0 || length > max) {
+      throw new IOException("Invalid block length " + length);
+    }
+    byte[] bytes = new byte[Math.min(length, FIRST_BUFFER)];
+    int read = 0;
+    while (true) {
+      in.readFully(bytes, read, bytes.length - read);
+      read = bytes.length;
+      if (read == length) {
+        return bytes;
+      }
+      bytes = Arrays.copyOf(bytes, (int) Math.min(length, 2L * read));
+    }
+  }
+}
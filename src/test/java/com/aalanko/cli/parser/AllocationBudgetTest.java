@@ -0,0 +1,182 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assume.assumeTrue;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+/**
+ * Checks that the parse path stays within its allocation budgets.
+ *
+ * Allocation is measured with the per-thread allocation counter of the JVM,
+ * averaged over many calls after a warm-up so the measured code is
+ * compiled. Each call is measured on a short and a long command line, so
+ * the cost per token is checked apart from the cost per call. The tests
+ * are skipped on JVMs without the counter.
+ *
+ * A reused {@link ParseContext} may not allocate per token at all, the
+ * values it keeps are the argument strings themselves.
+ */
+public class AllocationBudgetTest {
+  /** Calls made before measuring. */
+  private static final int WARM_UP = 20000;
+  /** Calls measured. */
+  private static final int CALLS = 20000;
+
+  /** Bytes any parse may allocate once per call, for the state of the parse. */
+  private static final long CALL_BUDGET = 128;
+  /** Bytes a parse returning a new result may allocate for the result and its arrays. */
+  private static final long RESULT_BUDGET = 512;
+  /** Bytes a parse may allocate per token. */
+  private static final long TOKEN_BUDGET = 16;
+  /** Bytes a lookup of a parsed value may allocate. */
+  private static final long LOOKUP_BUDGET = 0;
+  /** Average bytes per call allowed over a budget, for allocations of the measurement itself. */
+  private static final double NOISE = 1;
+
+  private static com.sun.management.ThreadMXBean threads;
+
+  /** A short command line. */
+  private final String[] shortArgs = { "--name", "value", "--count", "42", "--verbose", "data1", "--include", "a", "--include", "b", "data2" };
+  /** The short command line with more repeated values and data, to tell the per token cost from the per call cost. */
+  private final String[] longArgs = longArgs(shortArgs, 200);
+  private Options options;
+  private Schema schema;
+
+  @BeforeClass
+  public static void setUpClass() {
+    java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+    assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+    threads = (com.sun.management.ThreadMXBean) bean;
+    assumeTrue(threads.isThreadAllocatedMemorySupported());
+    threads.setThreadAllocatedMemoryEnabled(true);
+  }
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    options = new Options();
+    options.addOption("--name", "none", false, "");
+    options.addOption("--count", "1", false, "", OptionType.INT);
+    options.addRepeatableOption("--include", false, "");
+    options.addOption("--unused", "x", false, "");
+    options.addFlag("--verbose", "");
+    options.addFlag("--quiet", "");
+    schema = options.freeze();
+  }
+
+  /**
+   * Appends pairs of a repeated option and its value and data values to
+   * the arguments.
+   */
+  private static String[] longArgs(String[] args, int extra) {
+    String[] result = Arrays.copyOf(args, args.length + extra);
+    for (int i = args.length; i < result.length; i++) {
+      int n = i - args.length;
+      result[i] = (n % 4 == 0) ? "--include" : (n % 4 == 1) ? "v" + n : "data" + n;
+    }
+    return result;
+  }
+
+  @Test
+  public void testParseArgs() throws Exception {
+    assertWithin("Parser.parseArgs(Schema, String[])", CALL_BUDGET + RESULT_BUDGET, TOKEN_BUDGET,
+        args -> () -> Parser.parseArgs(schema, args));
+  }
+
+  @Test
+  public void testParseContext() throws Exception {
+    assertWithin("ParseContext.parse(String[])", CALL_BUDGET, 0, args -> {
+      ParseContext context = new ParseContext(schema);
+      return () -> context.parse(args);
+    });
+  }
+
+  @Test
+  public void testLegacyParseArgs() throws Exception {
+    assertWithin("Parser.parseArgs(Options, String[])", CALL_BUDGET, TOKEN_BUDGET, args -> () -> {
+      options.reset();
+      Parser.parseArgs(options, args);
+    });
+  }
+
+  @Test
+  public void testOptionsLookups() throws Exception {
+    assertWithin("Options.getOption and getFlag", LOOKUP_BUDGET, LOOKUP_BUDGET, args -> {
+      options.reset();
+      Parser.parseArgs(options, args);
+      return () -> {
+        options.getOption("--name");
+        options.getOption("--unused");
+        options.getFlag("--verbose");
+        options.getFlag("--quiet");
+      };
+    });
+  }
+
+  @Test
+  public void testParseResultLookups() throws Exception {
+    assertWithin("ParseResult lookups", LOOKUP_BUDGET, LOOKUP_BUDGET, args -> {
+      ParseResult result = Parser.parseArgs(schema, args);
+      return () -> {
+        result.getOption("--name");
+        result.getInt("--count");
+        result.getValues("--include");
+        result.getFlag("--verbose");
+        result.getFlag("--quiet");
+      };
+    });
+  }
+
+  /**
+   * Fails if a call allocates more than its budgets on average. The call
+   * is measured on the short and the long command line, the difference
+   * divided by the number of extra tokens is the cost per token and the
+   * rest is the cost per call.
+   */
+  private void assertWithin(String name, long callBudget, long tokenBudget, Calls calls) throws Exception {
+    double shortCall = perCall(calls.create(shortArgs));
+    double longCall = perCall(calls.create(longArgs));
+    double perToken = (longCall - shortCall) / (longArgs.length - shortArgs.length);
+    double perCall = shortCall - perToken * shortArgs.length;
+    assertTrue(name + " allocated " + perToken + " bytes per token, budget is " + tokenBudget, perToken < tokenBudget + NOISE);
+    assertTrue(name + " allocated " + perCall + " bytes per call, budget is " + callBudget, perCall < callBudget + NOISE);
+  }
+
+  /**
+   * Measures the average bytes allocated by a call after a warm-up.
+   */
+  private static double perCall(Call call) throws Exception {
+    for (int i = 0; i < WARM_UP; i++) {
+      call.run();
+    }
+    long id = Thread.currentThread().getId();
+    long empty = measure(id, () -> {
+    });
+    return (double) (measure(id, call) - empty) / CALLS;
+  }
+
+  private static long measure(long id, Call call) throws Exception {
+    long before = threads.getThreadAllocatedBytes(id);
+    for (int i = 0; i < CALLS; i++) {
+      call.run();
+    }
+    return threads.getThreadAllocatedBytes(id) - before;
+  }
+
+  @FunctionalInterface
+  private interface Call {
+    void run() throws Exception;
+  }
+
+  @FunctionalInterface
+  private interface Calls {
+    Call create(String[] args) throws Exception;
+  }
+}
@@ -0,0 +1,146 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.MissingOptionValueException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class BatchParserTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Schema schema;
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--id", null, true, "", OptionType.INT);
+    options.addFlag("--flag", "");
+    schema = options.freeze();
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  private static Stream<String[]> commands(int count) {
+    return IntStream.range(0, count).mapToObj(i -> new String[] { "--id", Integer.toString(i), "data" + i });
+  }
+
+  @Test
+  public void testOrderedResults() throws Exception {
+    List<ParseResult> results = new BatchParser(schema, pool, 7).parseAll(commands(10000));
+
+    assertEquals(10000, results.size());
+    for (int i = 0; i < results.size(); i++) {
+      assertEquals(i, results.get(i).getInt("--id"));
+      assertEquals("data" + i, results.get(i).getDataList().get(0));
+    }
+  }
+
+  @Test
+  public void testEmpty() throws Exception {
+    assertEquals(0, new BatchParser(schema).parseAll(Stream.<String[]>empty()).size());
+  }
+
+  @Test(expected = MissingOptionValueException.class)
+  public void testFirstFailureThrown() throws Exception {
+    Stream<String[]> commands = Stream.concat(commands(5000), Stream.<String[]>of(new String[] { "--id" }));
+    new BatchParser(schema, pool, 16).parseAll(Stream.concat(commands, commands(5000)));
+  }
+
+  @Test
+  public void testCallback() throws Exception {
+    final AtomicReferenceArray<ParseResult> results = new AtomicReferenceArray<ParseResult>(1001);
+    final AtomicLong failures = new AtomicLong();
+    Stream<String[]> commands = Stream.concat(commands(1000), Stream.<String[]>of(new String[] { "--flag" }));
+
+    new BatchParser(schema, pool, 10).parseAll(commands, new BatchCallback() {
+      public void onResult(long index, ParseResult result, SimpleCliParserException error) {
+        if (error != null) {
+          assertNull(result);
+          assertEquals(1000, index);
+          failures.incrementAndGet();
+        } else {
+          results.set((int) index, result);
+        }
+      }
+    });
+
+    assertEquals(1, failures.get());
+    for (int i = 0; i < 1000; i++) {
+      assertNotNull(results.get(i));
+      assertEquals(i, results.get(i).getInt("--id"));
+    }
+  }
+
+  @Test
+  public void testLines() throws Exception {
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < 3000; i++) {
+      lines.add("--id " + i + " 'quoted data' --flag");
+    }
+    File file = folder.newFile("commands");
+    Files.write(file.toPath(), lines, Charset.forName("UTF-8"));
+
+    List<ParseResult> results = new BatchParser(schema, pool, 100).parseLines(file.toPath());
+
+    assertEquals(3000, results.size());
+    assertEquals(2999, results.get(2999).getInt("--id"));
+    assertEquals("quoted data", results.get(5).getDataList().get(0));
+    assertTrue(results.get(5).getFlag("--flag"));
+  }
+
+  @Test
+  public void testLinesCallback() throws Exception {
+    File file = folder.newFile("commands");
+    Files.write(file.toPath(), "--id 1\n--id\n--id 3\n".getBytes(Charset.forName("UTF-8")));
+    final AtomicLong sum = new AtomicLong();
+    final AtomicLong failedLine = new AtomicLong(-1);
+
+    new BatchParser(schema, pool, 1).parseLines(file.toPath(), new BatchCallback() {
+      public void onResult(long index, ParseResult result, SimpleCliParserException error) {
+        if (error != null) {
+          failedLine.set(index);
+        } else {
+          try {
+            sum.addAndGet(result.getInt("--id"));
+          } catch (SimpleCliParserException e) {
+            throw new AssertionError(e);
+          }
+        }
+      }
+    });
+
+    assertEquals(4, sum.get());
+    assertEquals(1, failedLine.get());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidChunkSize() {
+    new BatchParser(schema, pool, 0);
+  }
+}
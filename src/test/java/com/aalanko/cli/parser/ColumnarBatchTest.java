@@ -0,0 +1,186 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ColumnarBatchTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Schema schema;
+  private ForkJoinPool pool;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--host", null, false, "");
+    options.addOption("--port", "80", false, "", OptionType.INT);
+    options.addRepeatableOption("--tag", false, "");
+    options.addOption("--mode", "fast", false, "");
+    options.addFlag("--verbose", "");
+    options.addFlag("--dry-run", "");
+    schema = options.freeze();
+    pool = new ForkJoinPool(4);
+  }
+
+  @After
+  public void tearDown() {
+    pool.shutdown();
+  }
+
+  private ColumnarBatch build(boolean offHeap) {
+    ParseContext context = new ParseContext(schema);
+    ColumnarBatch.Builder builder = new ColumnarBatch.Builder(schema);
+    builder.add(context.tryParse("--host a --port 8080 --verbose --tag x --tag y"));
+    builder.add(context.tryParse("--host b --dry-run"));
+    builder.add(context.tryParse("--port nope"));
+    builder.add(context.tryParse("--host a --tag z --verbose --mode slow"));
+    return builder.build(offHeap);
+  }
+
+  @Test
+  public void testColumns() throws SimpleCliParserException {
+    for (boolean offHeap : new boolean[] { false, true }) {
+      ColumnarBatch batch = build(offHeap);
+      assertEquals(4, batch.getRowCount());
+      assertEquals(1, batch.getFailedCount());
+      assertTrue(batch.isFailed(2));
+
+      assertEquals(2, batch.getFlagCount("--verbose"));
+      assertTrue(batch.getFlag("--verbose", 3));
+      assertFalse(batch.getFlag("--verbose", 1));
+      assertEquals(0b1001L, batch.getFlagBitmap("--verbose").get(0));
+
+      assertEquals(Arrays.asList("a", "b"), batch.getDictionary("--host"));
+      IntBuffer codes = batch.getCodes("--host");
+      assertEquals(4, codes.limit());
+      assertEquals(0, codes.get(0));
+      assertEquals(1, codes.get(1));
+      assertEquals(ColumnarBatch.NOT_SET, codes.get(2));
+      assertEquals(0, codes.get(3));
+      assertArrayEquals(new int[] { 2, 1 }, batch.getValueCounts("--host"));
+      assertEquals("b", batch.getOption("--host", 1));
+      assertNull(batch.getOption("--host", 2));
+
+      LongBuffer ports = batch.getNumbers("--port");
+      assertEquals(8080, ports.get(0));
+      assertEquals(80, ports.get(1));
+      assertEquals(0, ports.get(2));
+      assertTrue(batch.isOptionSet("--port", 0));
+      assertFalse(batch.isOptionSet("--port", 1));
+      assertEquals(1, batch.getOptionCount("--port"));
+
+      IntBuffer offsets = batch.getOffsets("--tag");
+      assertEquals(5, offsets.limit());
+      assertEquals(0, offsets.get(0));
+      assertEquals(2, offsets.get(1));
+      assertEquals(2, offsets.get(3));
+      assertEquals(3, offsets.get(4));
+      assertEquals(Arrays.asList("x", "y", "z"), batch.getDictionary("--tag"));
+      assertEquals("y", batch.getOption("--tag", 0));
+      assertNull(batch.getOption("--tag", 1));
+      assertNull(batch.getOffsets("--host"));
+
+      assertEquals(Arrays.asList("fast", "slow"), batch.getDictionary("--mode"));
+      assertEquals("fast", batch.getOption("--mode", 0));
+      assertFalse(batch.isOptionSet("--mode", 0));
+      assertNull(batch.getOption("--mode", 2));
+      assertEquals("slow", batch.getOption("--mode", 3));
+      assertArrayEquals(new int[] { 2, 1 }, batch.getValueCounts("--mode"));
+    }
+  }
+
+  @Test
+  public void testOffHeap() throws SimpleCliParserException {
+    ColumnarBatch batch = build(true);
+    assertTrue(batch.getCodes("--host").isDirect());
+    assertTrue(batch.getFlagBitmap("--verbose").isReadOnly());
+    assertFalse(build(false).getCodes("--host").isDirect());
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testTypeMismatch() throws SimpleCliParserException {
+    build(false).getCodes("--port");
+  }
+
+  @Test
+  public void testAppend() throws SimpleCliParserException {
+    ParseContext context = new ParseContext(schema);
+    ColumnarBatch.Builder first = new ColumnarBatch.Builder(schema);
+    ColumnarBatch.Builder second = new ColumnarBatch.Builder(schema);
+    for (int i = 0; i < 70; i++) {
+      first.add(context.tryParse("--host h" + (i % 3)));
+      second.add(context.tryParse("--host h" + (i % 5) + " --verbose --tag t" + (i % 2)));
+    }
+    first.append(second);
+    ColumnarBatch batch = first.build(false);
+
+    assertEquals(140, batch.getRowCount());
+    assertEquals(70, batch.getFlagCount("--verbose"));
+    assertFalse(batch.getFlag("--verbose", 69));
+    assertTrue(batch.getFlag("--verbose", 70));
+    assertEquals(Arrays.asList("h0", "h1", "h2", "h3", "h4"), batch.getDictionary("--host"));
+    assertEquals("h4", batch.getOption("--host", 70 + 4));
+    assertEquals("t1", batch.getOption("--tag", 70 + 1));
+    assertEquals(70, batch.getOffsets("--tag").get(140));
+  }
+
+  @Test
+  public void testParseColumnar() throws Exception {
+    BatchParser parser = new BatchParser(schema, pool, 37);
+    ColumnarBatch batch = parser.parseColumnar(IntStream.range(0, 1000).mapToObj(i -> (i % 100 == 99)
+        ? new String[] { "--port", "x" }
+        : new String[] { "--host", "h" + (i % 7), "--port", Integer.toString(i) }), false);
+
+    assertEquals(1000, batch.getRowCount());
+    assertEquals(10, batch.getFailedCount());
+    assertEquals(7, batch.getDictionary("--host").size());
+    for (int i = 0; i < 1000; i++) {
+      if (i % 100 == 99) {
+        assertTrue(batch.isFailed(i));
+      } else {
+        assertEquals("h" + (i % 7), batch.getOption("--host", i));
+        assertEquals(i, batch.getNumbers("--port").get(i));
+      }
+    }
+  }
+
+  @Test
+  public void testParseLinesColumnar() throws Exception {
+    File file = folder.newFile();
+    List<String> lines = new ArrayList<String>();
+    for (int i = 0; i < 500; i++) {
+      lines.add("--host \"h " + (i % 4) + "\"" + ((i % 2 == 0) ? " --dry-run" : ""));
+    }
+    Files.write(file.toPath(), lines, Charset.forName("UTF-8"));
+
+    ColumnarBatch batch = new BatchParser(schema, pool, 64).parseLinesColumnar(file.toPath(), true);
+    assertEquals(500, batch.getRowCount());
+    assertEquals(250, batch.getFlagCount("--dry-run"));
+    assertArrayEquals(new int[] { 125, 125, 125, 125 }, batch.getValueCounts("--host"));
+    assertEquals("h 3", batch.getOption("--host", 499));
+  }
+}
@@ -0,0 +1,181 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnknownCommandException;
+
+public class CommandsTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Commands commands;
+  private AtomicInteger defined;
+
+  @Before
+  public void setUp() {
+    defined = new AtomicInteger();
+    commands = new Commands()
+        .add("build", () -> {
+          defined.incrementAndGet();
+          Options options = new Options();
+          options.addOption("--target", "all", false, "");
+          options.addFlag("--verbose", "");
+          return options;
+        })
+        .add("deploy", () -> {
+          defined.incrementAndGet();
+          Options options = new Options();
+          options.addOption("--host", null, true, "");
+          return options;
+        });
+  }
+
+  @Test
+  public void testDefinedOnFirstUse() throws SimpleCliParserException {
+    assertFalse(commands.isLoaded("build"));
+
+    ParseResult result = Parser.parseArgs(commands, new String[] { "build", "--target", "core", "--verbose", "x" });
+    assertEquals("build", result.getCommand());
+    assertEquals("core", result.getOption("--target"));
+    assertTrue(result.getFlag("--verbose"));
+    assertEquals(Arrays.asList("x"), result.getDataList());
+    assertTrue(commands.isLoaded("build"));
+    assertFalse(commands.isLoaded("deploy"));
+
+    Parser.parseArgs(commands, "build --target docs");
+    assertEquals(1, defined.get());
+    assertSame(commands.getSchema("build"), commands.getSchema("build"));
+  }
+
+  @Test
+  public void testCommandNames() {
+    assertEquals(Arrays.asList("build", "deploy"), Arrays.asList(commands.getCommandNames().toArray()));
+    assertTrue(commands.commandExists("deploy"));
+    assertFalse(commands.commandExists("test"));
+    assertEquals(0, defined.get());
+  }
+
+  @Test
+  public void testCommandFromResponseFile() throws Exception {
+    Path file = folder.newFile("args.rsp").toPath();
+    Files.write(file, "build --target core\n--verbose".getBytes(StandardCharsets.UTF_8));
+    String[] args = { "@" + file };
+
+    assertEquals(ErrorCode.UNKNOWN_COMMAND, Parser.tryParseArgs(commands, args).getErrors().get(0).getCode());
+
+    commands.setResponseFiles(true);
+    ParseResult result = Parser.parseArgs(commands, args);
+    assertEquals("build", result.getCommand());
+    assertEquals("core", result.getOption("--target"));
+    assertTrue(result.getFlag("--verbose"));
+  }
+
+  @Test
+  public void testMissingResponseFile() {
+    commands.setResponseFiles(true);
+    List<ParseError> errors = Parser.tryParseArgs(commands, new String[] { "@/nonexistent/args" }).getErrors();
+    assertEquals(ErrorCode.RESPONSE_FILE, errors.get(0).getCode());
+    assertEquals(ErrorCode.UNKNOWN_COMMAND, errors.get(1).getCode());
+  }
+
+  @Test
+  public void testSchemaSettings() throws SimpleCliParserException {
+    commands.add("run", () -> {
+      Options options = new Options();
+      options.addOption("--mode", "fast", false, "");
+      return options;
+    }, schema -> schema.withGnuSyntax(true));
+
+    assertFalse(commands.isLoaded("run"));
+    ParseResult result = Parser.parseArgs(commands, "run --mode=slow");
+    assertEquals("slow", result.getOption("--mode"));
+    assertTrue(commands.getSchema("run").isGnuSyntax());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testAddDuplicate() {
+    commands.add("build", Options::new);
+  }
+
+  @Test(expected = UnknownCommandException.class)
+  public void testUnknownCommand() throws SimpleCliParserException {
+    Parser.parseArgs(commands, new String[] { "test", "--host", "a" });
+  }
+
+  @Test
+  public void testMissingCommand() throws SimpleCliParserException {
+    try {
+      Parser.parseArgs(commands, "  ");
+      fail("Missing command was accepted");
+    } catch (UnknownCommandException e) {
+      assertEquals("Missing command", e.getMessage());
+    }
+  }
+
+  @Test(expected = MissingRequiredOptionException.class)
+  public void testCommandOptionsChecked() throws SimpleCliParserException {
+    Parser.parseArgs(commands, "deploy");
+  }
+
+  @Test
+  public void testTryParse() {
+    ParseResult result = Parser.tryParseArgs(commands, new String[] { "deploy", "--host" });
+    List<ParseError> errors = result.getErrors();
+
+    assertEquals("deploy", result.getCommand());
+    assertEquals(2, errors.size());
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, errors.get(0).getCode());
+    assertEquals(1, errors.get(0).getPosition());
+
+    errors = Parser.tryParseArgs(commands, "test --host a").getErrors();
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.UNKNOWN_COMMAND, errors.get(0).getCode());
+    assertEquals("Unknown command \"test\"", errors.get(0).getMessage());
+  }
+
+  @Test
+  public void testFailedDefinitionRetried() throws SimpleCliParserException {
+    commands.add("broken", () -> {
+      defined.incrementAndGet();
+      Options options = new Options();
+      options.addOption("--a", null, false, "");
+      options.addFlag("--a", "");
+      return options;
+    });
+
+    for (int i = 0; i < 2; i++) {
+      try {
+        Parser.parseArgs(commands, "broken");
+      } catch (OptionAlreadyExistsException e) {
+        // expected
+      }
+    }
+    assertEquals(2, defined.get());
+    assertFalse(commands.isLoaded("broken"));
+  }
+
+  @Test
+  public void testGetSchemaUnknown() throws SimpleCliParserException {
+    assertNull(commands.getSchema("test"));
+  }
+}
@@ -0,0 +1,224 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class CompleterTest {
+  private Schema schema;
+  private Completer completer;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--format", "text", false, "");
+    options.addOption("--file", null, false, "");
+    options.addOption("-o", null, false, "");
+    options.addFlag("--verbose", "");
+    options.addFlag("--version", "");
+    options.addFlag("-x", "");
+    schema = options.freeze();
+    completer = new Completer(schema).withValueCompleter("--format", prefix -> Arrays.asList("json", "text", "table"));
+  }
+
+  private static String[] words(String... words) {
+    return words;
+  }
+
+  @Test
+  public void testNames() {
+    assertEquals(Arrays.asList("--verbose", "--version"), completer.complete(words("--ver")));
+    assertEquals(Arrays.asList("--file", "--format"), completer.complete(words("a", "--f")));
+    assertEquals(6, completer.complete(words()).size());
+    assertEquals(6, completer.complete(words("")).size());
+    assertEquals(Collections.emptyList(), completer.complete(words("--size")));
+  }
+
+  @Test
+  public void testValues() {
+    assertEquals(Arrays.asList("text", "table"), completer.complete(words("--format", "t")));
+    assertEquals(Arrays.asList("json", "text", "table"), completer.complete(words("--verbose", "--format", "")));
+    assertEquals(Collections.emptyList(), completer.complete(words("--file", "")));
+    assertEquals(Arrays.asList("--verbose", "--version"), completer.complete(words("--format", "json", "--ver")));
+  }
+
+  @Test
+  public void testValueFollowedByName() {
+    assertEquals(Arrays.asList("--verbose", "--version"), completer.complete(words("--file", "--verbose", "--ver")));
+  }
+
+  @Test
+  public void testGnuSyntax() throws OptionNotFoundException {
+    Completer gnu = new Completer(schema.withGnuSyntax(true)).withValueCompleter("--format", prefix -> Arrays.asList("json", "text"));
+    assertEquals(Arrays.asList("--format=json"), gnu.complete(words("--format=j")));
+    assertEquals(Collections.emptyList(), gnu.complete(words("--", "--ver")));
+    assertEquals(Arrays.asList("--verbose", "--version"), gnu.complete(words("--format=json", "--ver")));
+    assertEquals(Arrays.asList("--verbose", "--version"), gnu.complete(words("-xo", "value", "--ver")));
+    assertEquals(Arrays.asList("--verbose", "--version"), gnu.complete(words("-xovalue", "--ver")));
+  }
+
+  @Test
+  public void testAbbreviations() throws OptionNotFoundException {
+    Completer abbreviated = new Completer(schema.withAbbreviations(true)).withValueCompleter("--format", prefix -> Arrays.asList("json"));
+    assertEquals(Arrays.asList("json"), abbreviated.complete(words("--form", "")));
+  }
+
+  @Test
+  public void testMaxCandidates() {
+    assertEquals(Arrays.asList("--file"), completer.withMaxCandidates(1).complete(words("--f")));
+    assertEquals(Arrays.asList("json", "text"), completer.withMaxCandidates(2).complete(words("--format", "")));
+  }
+
+  @Test
+  public void testBudget() throws OptionNotFoundException {
+    Iterable<String> endless = () -> new Iterator<String>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        return true;
+      }
+
+      @Override
+      public String next() {
+        return "v" + next++;
+      }
+    };
+    Completer slow = completer.withValueCompleter("--file", prefix -> endless).withMaxCandidates(Integer.MAX_VALUE)
+        .withBudget(5, TimeUnit.MILLISECONDS);
+    List<String> candidates = slow.complete(words("--file", "v"));
+    assertTrue(candidates.size() > 0);
+  }
+
+  @Test(timeout = 5000)
+  public void testBudgetWithBlockingCompleter() throws OptionNotFoundException {
+    Iterable<String> blocking = () -> new Iterator<String>() {
+      private int next;
+
+      @Override
+      public boolean hasNext() {
+        if (next == 2) {
+          try {
+            Thread.sleep(60000);
+          } catch (InterruptedException e) {
+            return false;
+          }
+        }
+        return true;
+      }
+
+      @Override
+      public String next() {
+        return "v" + next++;
+      }
+    };
+    Completer slow = completer.withValueCompleter("--file", prefix -> blocking).withBudget(20, TimeUnit.MILLISECONDS);
+    assertEquals(Arrays.asList("v0", "v1"), slow.complete(words("--file", "v")));
+
+    Completer stuck = completer.withValueCompleter("--file", prefix -> {
+      try {
+        Thread.sleep(60000);
+      } catch (InterruptedException e) {
+        // cancelled
+      }
+      return Arrays.asList("late");
+    }).withBudget(20, TimeUnit.MILLISECONDS);
+    assertEquals(Collections.emptyList(), stuck.complete(words("--file", "")));
+  }
+
+  @Test(timeout = 10000)
+  public void testCompleterIgnoringInterrupts() throws Exception {
+    CountDownLatch release = new CountDownLatch(1);
+    Completer stuck = completer.withValueCompleter("--file", prefix -> {
+      while (true) {
+        try {
+          release.await();
+          return Arrays.asList("late");
+        } catch (InterruptedException e) {
+          // ignored
+        }
+      }
+    }).withBudget(20, TimeUnit.MILLISECONDS);
+
+    try {
+      for (int i = 0; i < 10; i++) {
+        assertEquals(Collections.emptyList(), stuck.complete(words("--file", "")));
+      }
+      int readers = 0;
+      for (Thread thread : Thread.getAllStackTraces().keySet()) {
+        if (thread.getName().equals("completer-values")) {
+          readers++;
+        }
+      }
+      assertTrue("reader threads: " + readers, readers <= 2);
+      assertEquals(Collections.emptyList(), completer.complete(words("--format", "")));
+    } finally {
+      release.countDown();
+    }
+    while (completer.complete(words("--format", "")).isEmpty()) {
+      Thread.sleep(10);
+    }
+    assertEquals(Arrays.asList("json", "text", "table"), completer.complete(words("--format", "")));
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testFailingCompleter() throws OptionNotFoundException {
+    completer.withValueCompleter("--file", prefix -> {
+      throw new IllegalStateException("failed");
+    }).complete(words("--file", ""));
+  }
+
+  @Test
+  public void testUnknownOption() {
+    try {
+      completer.withValueCompleter("--size", prefix -> Collections.<String>emptyList());
+      fail();
+    } catch (OptionNotFoundException e) {
+      assertEquals("Option \"--size\" was not found", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSession() {
+    Completer.Session session = completer.newSession();
+    assertEquals(Arrays.asList("--file", "--format"), session.complete(words("--f")));
+    assertEquals(Arrays.asList("--format"), session.complete(words("--fo")));
+    assertEquals(Arrays.asList("json", "text", "table"), session.complete(words("--format", "")));
+    assertEquals(Arrays.asList("json"), session.complete(words("--format", "j")));
+    assertEquals(Arrays.asList("--verbose", "--version"), session.complete(words("--format", "json", "--ver")));
+
+    assertEquals(Collections.emptyList(), session.complete(words("--file", "json", "--verbose", "--format", "x")));
+    assertEquals(Arrays.asList("text", "table"), session.complete(words("--file", "json", "--verbose", "--format", "t")));
+    assertEquals(Arrays.asList("--verbose", "--version"), session.complete(words("--file", "--verbose", "--ver")));
+
+    session.reset();
+    assertEquals(Arrays.asList("json"), session.complete(words("--format", "j")));
+  }
+
+  @Test
+  public void testSessionMatchesCompleter() {
+    Completer.Session session = completer.newSession();
+    String[] line = { "--file", "a", "--format", "t", "b", "--verbose", "--format", "" };
+    for (int i = 1; i <= line.length; i++) {
+      String[] typed = Arrays.copyOf(line, i);
+      assertEquals(completer.complete(typed), session.complete(typed));
+    }
+    for (int i = line.length; i > 0; i--) {
+      String[] typed = Arrays.copyOf(line, i);
+      assertEquals(completer.complete(typed), session.complete(typed));
+    }
+  }
+}
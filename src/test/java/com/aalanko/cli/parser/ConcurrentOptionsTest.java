@@ -0,0 +1,128 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ConcurrentOptionsTest {
+  private ConcurrentOptions options;
+
+  @Before
+  public void setUp() {
+    options = new ConcurrentOptions();
+  }
+
+  @Test
+  public void testFreezeSortsByName() throws SimpleCliParserException {
+    options.addOption("b", "1", false, "");
+    options.addFlag("g", "");
+    options.addOption("a", "2", false, "", OptionType.INT);
+    options.addRepeatableOption("r", false, "");
+    options.addFlag("f", "");
+    Schema schema = options.freeze();
+
+    assertEquals("a", schema.getOptionName(0));
+    assertEquals(OptionType.INT, schema.getOptionType(0));
+    assertEquals("b", schema.getOptionName(1));
+    assertEquals("r", schema.getOptionName(2));
+    assertTrue(schema.isOptionRepeatable(2));
+    assertEquals(OptionType.STRING, schema.getOptionType(2));
+    assertEquals("f", schema.getFlagName(0));
+    assertEquals("g", schema.getFlagName(1));
+    assertEquals(5, options.size());
+  }
+
+  @Test(expected = OptionAlreadyExistsException.class)
+  public void testFlagCollidesWithOption() throws SimpleCliParserException {
+    options.addOption("name", null, false, "");
+    options.addFlag("name", "");
+  }
+
+  @Test(expected = FlagAlreadyExistsException.class)
+  public void testOptionCollidesWithFlag() throws SimpleCliParserException {
+    options.addFlag("name", "");
+    options.addOption("name", null, false, "");
+  }
+
+  @Test(expected = InvalidOptionValueException.class)
+  public void testInvalidDefault() throws SimpleCliParserException {
+    options.addOption("count", "x", false, "", OptionType.INT);
+  }
+
+  @Test
+  public void testExists() throws SimpleCliParserException {
+    options.addOption("option", null, false, "");
+    options.addFlag("flag", "");
+
+    assertTrue(options.optionExists("option"));
+    assertFalse(options.optionExists("flag"));
+    assertTrue(options.flagExists("flag"));
+    assertFalse(options.flagExists("missing"));
+  }
+
+  @Test
+  public void testParallelRegistration() throws Exception {
+    final int threads = 8;
+    final int perThread = 500;
+    final CountDownLatch start = new CountDownLatch(1);
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      List<Future<Integer>> futures = new ArrayList<Future<Integer>>();
+      for (int t = 0; t < threads; t++) {
+        final int thread = t;
+        futures.add(executor.submit(new Callable<Integer>() {
+          @Override
+          public Integer call() throws Exception {
+            start.await();
+            int added = 0;
+            for (int i = 0; i < perThread; i++) {
+              options.addOption("--plugin" + thread + "-" + i, null, false, "");
+              try {
+                if (thread % 2 == 0) {
+                  options.addOption("--shared" + i, null, false, "");
+                } else {
+                  options.addFlag("--shared" + i, "");
+                }
+                added++;
+              } catch (OptionAlreadyExistsException | FlagAlreadyExistsException e) {
+                // another thread claimed the name
+              }
+            }
+            return added;
+          }
+        }));
+      }
+      start.countDown();
+
+      int shared = 0;
+      for (Future<Integer> future : futures) {
+        shared += future.get();
+      }
+      assertEquals(perThread, shared);
+
+      Schema schema = options.freeze();
+      assertEquals(threads * perThread + perThread, schema.getOptionCount() + schema.getFlagCount());
+      for (int i = 0; i < perThread; i++) {
+        assertTrue(schema.optionExists("--shared" + i) != schema.flagExists("--shared" + i));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
@@ -0,0 +1,128 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ConfigFileSourceTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Path write(Path file, String contents) throws IOException {
+    return Files.write(file, contents.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testGet() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "--name=app\nlog-level = debug\n");
+    ConfigFileSource source = new ConfigFileSource(file);
+
+    assertEquals("app", source.get("--name"));
+    assertEquals("debug", source.get("--log-level"));
+    assertEquals("debug", source.get("log-level"));
+    assertNull(source.get("--missing"));
+  }
+
+  @Test
+  public void testMissingFile() throws IOException {
+    ConfigFileSource source = new ConfigFileSource(folder.getRoot().toPath().resolve("missing"), 0);
+
+    assertTrue(source.getValues().isEmpty());
+    assertNull(source.get("--name"));
+  }
+
+  @Test
+  public void testSnapshotKeptWhileUnchanged() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "name=a\n");
+    ConfigFileSource source = new ConfigFileSource(file, 0);
+
+    Map<String, String> values = source.getValues();
+    assertSame(values, source.getValues());
+  }
+
+  @Test
+  public void testReloadedWhenChanged() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "name=a\n");
+    ConfigFileSource source = new ConfigFileSource(file, 0);
+    assertEquals("a", source.get("name"));
+
+    write(file, "name=bb\n");
+    assertEquals("bb", source.get("name"));
+
+    Files.delete(file);
+    assertNull(source.get("name"));
+
+    write(file, "name=c\n");
+    assertEquals("c", source.get("name"));
+  }
+
+  @Test
+  public void testSnapshotNotReloaded() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "name=a\ncolor=red\n");
+    ConfigFileSource source = new ConfigFileSource(file, 0);
+    ValueSource snapshot = source.snapshot();
+
+    write(file, "name=bb\ncolor=green\n");
+    assertEquals("a", snapshot.get("--name"));
+    assertEquals("red", snapshot.get("--color"));
+    assertEquals("bb", source.get("--name"));
+  }
+
+  @Test
+  public void testKeyWithoutDashesWins() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "-name=short\nname=bare\n--name=long\n");
+    ConfigFileSource source = new ConfigFileSource(file);
+
+    assertEquals("long", source.get("--name"));
+    assertEquals("short", source.get("-name"));
+    assertEquals("bare", source.get("---name"));
+  }
+
+  @Test
+  public void testNotCheckedWithinInterval() throws IOException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "name=a\n");
+    ConfigFileSource source = new ConfigFileSource(file, 3600000);
+
+    write(file, "name=bb\n");
+    assertEquals("a", source.get("name"));
+  }
+
+  @Test
+  public void testLayered() throws IOException, SimpleCliParserException {
+    Path file = write(folder.getRoot().toPath().resolve("app.properties"), "name=file\ncolor=blue\nsize=3\n");
+    Map<String, String> environment = new HashMap<String, String>();
+    environment.put("APP_NAME", "env");
+
+    Options options = new Options();
+    options.addOption("--name", null, false, "");
+    options.addOption("--color", "red", false, "");
+    options.addOption("--size", "1", false, "", OptionType.INT);
+    options.addOption("--shape", "round", false, "");
+    Schema schema = options.freeze().withValueSources(new EnvironmentSource("APP_", environment), new ConfigFileSource(file));
+
+    ParseResult result = Parser.parseArgs(schema, new String[] { "--size", "9" });
+    assertEquals("env", result.getOption("--name"));
+    assertEquals("blue", result.getOption("--color"));
+    assertEquals(9, result.getInt("--size"));
+    assertEquals("round", result.getOption("--shape"));
+
+    result = Parser.parseArgs(schema.withValueSources(), new String[0]);
+    assertEquals("red", result.getOption("--color"));
+    assertEquals(Collections.emptyList(), result.getErrors());
+  }
+}
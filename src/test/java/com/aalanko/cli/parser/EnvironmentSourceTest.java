@@ -0,0 +1,75 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class EnvironmentSourceTest {
+  private Map<String, String> environment;
+  private EnvironmentSource source;
+
+  @Before
+  public void setUp() {
+    environment = new HashMap<String, String>();
+    environment.put("APP_LOG_LEVEL", "debug");
+    environment.put("APP_COUNT", "5");
+    source = new EnvironmentSource("APP_", environment);
+  }
+
+  @Test
+  public void testVariableName() {
+    assertEquals("APP_LOG_LEVEL", source.variableName("--log-level"));
+    assertEquals("APP_X_Y", source.variableName("-x.y"));
+  }
+
+  @Test
+  public void testGet() {
+    assertEquals("debug", source.get("--log-level"));
+    assertNull(source.get("--missing"));
+    assertNull(source.get("--missing"));
+  }
+
+  @Test
+  public void testCopiesEnvironment() {
+    environment.put("APP_LATE", "x");
+    assertNull(source.get("--late"));
+  }
+
+  @Test
+  public void testParseFallback() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--log-level", "info", true, "");
+    options.addOption("--count", "1", false, "", OptionType.INT);
+    options.addOption("--other", "none", false, "");
+    Schema schema = options.freeze().withValueSources(source);
+
+    ParseResult result = Parser.parseArgs(schema, "--count 7");
+    assertEquals("debug", result.getOption("--log-level"));
+    assertTrue(result.isOptionSet("--log-level"));
+    assertEquals(7, result.getInt("--count"));
+    assertEquals("none", result.getOption("--other"));
+    assertFalse(result.isOptionSet("--other"));
+  }
+
+  @Test
+  public void testInvalidValue() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--log-level", null, false, "", OptionType.INT);
+    Schema schema = options.freeze().withValueSources(source);
+
+    List<ParseError> errors = Parser.tryParseArgs(schema, "").getErrors();
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.INVALID_OPTION_VALUE, errors.get(0).getCode());
+    assertEquals(-1, errors.get(0).getPosition());
+  }
+}
@@ -28,4 +28,11 @@ public class FlagTest {
     flag.set();
     assertTrue(flag.isSet());
   }
+  
+  @Test
+  public void testResetFlag() {
+    flag.set();
+    flag.reset();
+    assertFalse(flag.isSet());
+  }
 }
@@ -0,0 +1,57 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class NameIndexTest {
+  private final NameIndex index = new NameIndex(new String[] { "--verbose", "--version", "--name", "-n", "output" });
+
+  @Test
+  public void testPrefix() {
+    assertEquals(2, index.prefix("--na", 0, 4));
+    assertEquals(2, index.prefix("x--namex", 1, 7));
+    assertEquals(0, index.prefix("--verb", 0, 6));
+    assertEquals(NameIndex.AMBIGUOUS, index.prefix("--ver", 0, 5));
+    assertEquals(-1, index.prefix("--size", 0, 6));
+    assertEquals(-1, index.prefix("--names", 0, 7));
+    assertEquals(4, index.prefix("out", 0, 3));
+  }
+
+  @Test
+  public void testWithPrefix() {
+    assertEquals(Arrays.asList("--verbose", "--version"), index.withPrefix("--ver"));
+  }
+
+  @Test
+  public void testDistance() {
+    assertEquals(0, NameIndex.distance("abc", "abc"));
+    assertEquals(3, NameIndex.distance("", "abc"));
+    assertEquals(2, NameIndex.distance("--nmae", "--name"));
+    assertEquals(1, NameIndex.distance("--verbos", "--verbose"));
+  }
+
+  @Test
+  public void testClosest() {
+    assertEquals("--name", index.closest("--nmae", 2));
+    assertEquals("--verbose", index.closest("--verbos", 2));
+    assertNull(index.closest("--zzzzzz", 2));
+    assertNull(new NameIndex(new String[0]).closest("--name", 2));
+  }
+
+  @Test
+  public void testLargeIndex() {
+    String[] names = new String[5000];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = "--option-" + i;
+    }
+    NameIndex large = new NameIndex(names);
+
+    assertEquals(4321, large.prefix("--option-4321", 0, 13));
+    assertEquals(NameIndex.AMBIGUOUS, large.prefix("--option-432", 0, 12));
+    assertEquals("--option-4321", large.closest("--optoin-4321", 3));
+  }
+}
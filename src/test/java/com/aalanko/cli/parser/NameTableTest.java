@@ -0,0 +1,88 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class NameTableTest {
+
+  @Test
+  public void testLookup() {
+    NameTable table = new NameTable(new String[] { "--option", "--flag", "-v" });
+
+    assertEquals(0, table.lookup("--option"));
+    assertEquals(1, table.lookup("--flag"));
+    assertEquals(2, table.lookup("-v"));
+    assertEquals(-1, table.lookup("--missing"));
+    assertEquals(-1, table.lookup(""));
+  }
+
+  @Test
+  public void testLookupRange() {
+    NameTable table = new NameTable(new String[] { "--option", "--flag" });
+    String line = "x --flag --option y";
+
+    assertEquals(1, table.lookup(line, 2, 8));
+    assertEquals(0, table.lookup(line, 9, 17));
+    assertEquals(-1, table.lookup(line, 9, 16));
+    assertEquals(-1, table.lookup(line, 0, 1));
+  }
+
+  @Test
+  public void testHashCollisions() {
+    assertEquals("Aa".hashCode(), "BB".hashCode());
+    NameTable table = new NameTable(new String[] { "Aa", "BB", "AaBB", "BBAa" });
+
+    assertEquals(0, table.lookup("Aa"));
+    assertEquals(1, table.lookup("BB"));
+    assertEquals(2, table.lookup("AaBB"));
+    assertEquals(3, table.lookup(new StringBuilder("BBAa"), 0, 4));
+    assertEquals(-1, table.lookup("AaAa"));
+  }
+
+  @Test
+  public void testEmpty() {
+    NameTable table = new NameTable(new String[0]);
+
+    assertEquals(-1, table.lookup("anything"));
+    assertEquals(-1, table.lookup("anything", 0, 3));
+  }
+
+  @Test
+  public void testManyNames() {
+    String[] names = new String[1000];
+    for (int i = 0; i < names.length; i++) {
+      names[i] = "--name" + i;
+    }
+    NameTable table = new NameTable(names);
+
+    for (int i = 0; i < names.length; i++) {
+      assertEquals(i, table.lookup("--name" + i));
+    }
+    assertEquals(-1, table.lookup("--name1000"));
+  }
+
+  @Test
+  public void testPrebuiltLayout() {
+    String[] names = { "--option", "--flag", "-v" };
+    NameTable built = new NameTable(names);
+    NameTable table = new NameTable(names, built.slots(), built.hashes());
+
+    assertEquals(2, table.lookup("-v"));
+    assertEquals(-1, table.lookup("--missing"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testMisplacedLayout() {
+    String[] names = { "Aa", "BB" };
+    NameTable built = new NameTable(names);
+    int home = 0;
+    while (built.slots()[home] != 1) {
+      home++;
+    }
+    int[] slots = new int[built.slots().length];
+    slots[(home + 2) & (slots.length - 1)] = 1;
+    slots[(home + 3) & (slots.length - 1)] = 2;
+    new NameTable(names, slots, built.hashes());
+  }
+}
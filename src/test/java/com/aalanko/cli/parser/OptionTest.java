@@ -24,6 +24,15 @@ public class OptionTest {
     assertEquals("option description", option.getDescription());
     assertTrue(option.required());
     assertFalse(option.isSet());
+    assertEquals(OptionType.STRING, option.getType());
+  }
+  
+  @Test
+  public void testType() {
+    option = new Option("count", "1", false, "option description", OptionType.INT);
+    
+    assertEquals(OptionType.INT, option.getType());
+    assertEquals("1", option.getDefaultValue());
   }
   
   @Test
@@ -54,5 +63,29 @@ public class OptionTest {
     assertFalse(option.setValue("secondValue"));
     assertTrue(option.isSet());
   }
+  
+  @Test
+  public void testRepeatable() {
+    option = new Option("include", null, false, "option description", OptionType.STRING, true);
+    
+    assertTrue(option.repeatable());
+    assertTrue(option.getValues().isEmpty());
+    assertTrue(option.setValue("a"));
+    assertTrue(option.setValue("b"));
+    assertEquals("b", option.getValue());
+    assertEquals(2, option.getValues().size());
+    assertEquals("a", option.getValues().get(0));
+  }
+  
+  @Test
+  public void testReset() {
+    option = new Option("default", "defaultValue", false, "option description");
+    option.setValue("newValue");
+    option.reset();
+    
+    assertEquals("defaultValue", option.getValue());
+    assertFalse(option.isSet());
+    assertTrue(option.setValue("again"));
+  }
 
 }
@@ -0,0 +1,52 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class OptionTypeTest {
+
+  @Test
+  public void testNumbers() {
+    assertEquals(42, OptionType.INT.convert("42"));
+    assertEquals(-7, OptionType.INT.convert(" -7 "));
+    assertEquals(10000000000L, OptionType.LONG.convert("10000000000"));
+    assertEquals(1.5, Double.longBitsToDouble(OptionType.DOUBLE.convert("1.5")), 0.0);
+  }
+
+  @Test
+  public void testDurations() {
+    assertEquals(250, OptionType.DURATION.convert("250"));
+    assertEquals(250, OptionType.DURATION.convert("250ms"));
+    assertEquals(3000, OptionType.DURATION.convert("3s"));
+    assertEquals(120000, OptionType.DURATION.convert("2m"));
+    assertEquals(3600000, OptionType.DURATION.convert("1h"));
+    assertEquals(86400000, OptionType.DURATION.convert("1d"));
+    assertEquals(90000, OptionType.DURATION.convert("PT1M30S"));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testIntOverflow() {
+    OptionType.INT.convert("3000000000");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidNumber() {
+    OptionType.LONG.convert("ten");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownDurationUnit() {
+    OptionType.DURATION.convert("5w");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidIsoDuration() {
+    OptionType.DURATION.convert("PTX");
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDurationOverflow() {
+    OptionType.DURATION.convert("9223372036854775807d");
+  }
+}
@@ -0,0 +1,90 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+
+public class OptionValuesTest {
+
+  @Test
+  public void testStrings() {
+    OptionValues values = new OptionValues(OptionType.STRING);
+    assertTrue(values.isEmpty());
+    values.addString("a");
+    values.addString("b");
+
+    assertFalse(values.isEmpty());
+    assertEquals(2, values.size());
+    assertEquals("b", values.get(1));
+    assertEquals("[a, b]", values.toString());
+  }
+
+  @Test
+  public void testNumbers() throws OptionTypeMismatchException {
+    OptionValues values = new OptionValues(OptionType.INT);
+    for (int i = 0; i < 100; i++) {
+      values.addNumber(OptionType.INT.convert("00" + i));
+    }
+
+    assertEquals(100, values.size());
+    assertEquals(42, values.getInt(42));
+    assertEquals(42L, values.getLong(42));
+    assertEquals(42.0, values.getDouble(42), 0.0);
+    assertEquals("42", values.get(42));
+  }
+
+  @Test
+  public void testDoubles() throws OptionTypeMismatchException {
+    OptionValues values = new OptionValues(OptionType.DOUBLE);
+    values.addNumber(OptionType.DOUBLE.convert("1.5"));
+
+    assertEquals(1.5, values.getDouble(0), 0.0);
+    assertEquals("1.5", values.get(0));
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testTypeMismatch() throws OptionTypeMismatchException {
+    OptionValues values = new OptionValues(OptionType.STRING);
+    values.addString("a");
+    values.getInt(0);
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testIndexOutOfBounds() {
+    OptionValues values = new OptionValues(OptionType.LONG);
+    values.addNumber(1);
+    values.get(1);
+  }
+
+  @Test
+  public void testListView() {
+    OptionValues values = new OptionValues(OptionType.STRING);
+    List<String> list = values.asList();
+    values.addString("a");
+
+    assertEquals(Arrays.asList("a"), list);
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void testListUnmodifiable() {
+    new OptionValues(OptionType.STRING).asList().add("a");
+  }
+
+  @Test
+  public void testClear() {
+    OptionValues values = new OptionValues(OptionType.STRING);
+    values.addString("a");
+    values.clear();
+
+    assertTrue(values.isEmpty());
+    values.addString("b");
+    assertEquals("b", values.get(0));
+  }
+}
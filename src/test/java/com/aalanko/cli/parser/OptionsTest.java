@@ -4,12 +4,15 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
+import java.util.Arrays;
+
 import org.junit.Before;
 import org.junit.Test;
 
 import com.aalanko.cli.parser.Options;
 import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
 import com.aalanko.cli.parser.exceptions.FlagNotFoundException;
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
 import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
@@ -46,6 +49,18 @@ public class OptionsTest {
     options.addFlag("option", "description");
   }
   
+  @Test(expected = InvalidOptionValueException.class)
+  public void testAddTypedOptionInvalidDefault() throws SimpleCliParserException {
+    options.addOption("number", "abc", false, "description", OptionType.INT);
+  }
+  
+  @Test
+  public void testAddTypedRequiredOptionIgnoresDefault() throws SimpleCliParserException {
+    options.addOption("number", "abc", true, "description", OptionType.INT);
+    
+    assertEquals(null, options.getOption("number"));
+  }
+  
   @Test
   public void testAddDataAndSortedReturn() {
     options.addData("1");
@@ -61,6 +76,24 @@ public class OptionsTest {
     assertEquals("4", data[3]);
   }
   
+  @Test
+  public void testDataViews() {
+    options.addData("1");
+    options.addData("2");
+    
+    assertEquals(2, options.getDataList().size());
+    assertEquals("2", options.getDataList().get(1));
+    assertEquals("12", options.getDataStream().reduce("", String::concat));
+    
+    options.addData("3");
+    assertEquals(3, options.getDataList().size());
+  }
+  
+  @Test(expected = UnsupportedOperationException.class)
+  public void testDataListUnmodifiable() {
+    options.getDataList().add("1");
+  }
+  
   @Test
   public void testCheckRequired() throws SimpleCliParserException {
     options.addOption("option1", null, true, "description");
@@ -132,4 +165,38 @@ public class OptionsTest {
   public void testGetOptionNotFound() throws OptionNotFoundException {
     assertEquals("valueNotFound", options.getOption("option1"));
   }
+  
+  @Test
+  public void testRepeatableOption() throws SimpleCliParserException {
+    options.addRepeatableOption("--include", false, "description");
+    Parser.parseArgs(options, new String[] { "--include", "a", "--include", "b" });
+    
+    assertEquals(Arrays.asList("a", "b"), options.getOptionValues("--include"));
+    assertEquals("b", options.getOption("--include"));
+  }
+  
+  @Test(expected = OptionAlreadyExistsException.class)
+  public void testAddDuplicateRepeatableOption() throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    options.addRepeatableOption("option", false, "description");
+  }
+  
+  @Test(expected = OptionNotFoundException.class)
+  public void testGetOptionValuesNotFound() throws OptionNotFoundException {
+    options.getOptionValues("option1");
+  }
+  
+  @Test
+  public void testReset() throws SimpleCliParserException {
+    options.addRepeatableOption("--include", false, "description");
+    Parser.parseArgs(options, new String[] { "option", "newValue", "flag", "--include", "a", "data" });
+    options.reset();
+    
+    assertEquals("value", options.getOption("option"));
+    assertFalse(options.getFlag("flag"));
+    assertEquals(0, options.getData().length);
+    assertTrue(options.getOptionValues("--include").isEmpty());
+    
+    Parser.parseArgs(options, new String[] { "option", "again" });
+    assertEquals("again", options.getOption("option"));
+  }
 }
@@ -0,0 +1,69 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ParseContextTest {
+  private ParseContext context;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--name", "none", false, "");
+    options.addOption("--count", "3", false, "", OptionType.INT);
+    options.addRepeatableOption("--include", false, "");
+    options.addFlag("--verbose", "");
+    context = new ParseContext(options.freeze());
+  }
+
+  @Test
+  public void testStateClearedBetweenParses() throws SimpleCliParserException {
+    ParseResult first = context.parse(new String[] { "--name", "a", "--count", "9", "--include", "x", "--verbose", "data" });
+    assertEquals("a", first.getOption("--name"));
+    assertEquals(9, first.getInt("--count"));
+    assertTrue(first.getFlag("--verbose"));
+
+    ParseResult second = context.parse("--include y");
+    assertSame(first, second);
+    assertEquals("none", second.getOption("--name"));
+    assertFalse(second.isOptionSet("--name"));
+    assertEquals(3, second.getInt("--count"));
+    assertFalse(second.getFlag("--verbose"));
+    assertEquals(Collections.emptyList(), second.getDataList());
+    assertEquals(Arrays.asList("y"), second.getValues("--include").asList());
+  }
+
+  @Test
+  public void testOptionSetAgainAfterReset() throws SimpleCliParserException {
+    for (int i = 0; i < 100; i++) {
+      ByteBuffer line = ByteBuffer.wrap(("--name n" + i).getBytes(StandardCharsets.UTF_8));
+      assertEquals("n" + i, context.parse(line).getOption("--name"));
+    }
+  }
+
+  @Test(expected = OptionAlreadySetException.class)
+  public void testParseFailure() throws SimpleCliParserException {
+    context.parse("--name a --name b");
+  }
+
+  @Test
+  public void testErrorsCleared() throws SimpleCliParserException {
+    assertTrue(context.tryParse("--count x").hasErrors());
+    assertFalse(context.tryParse(new String[] { "--count", "4" }).hasErrors());
+    assertEquals(0, context.tryParse(ByteBuffer.allocate(0)).getErrors().size());
+    assertEquals(4, context.parse(new String[] { "--count", "4" }).getInt("--count"));
+  }
+}
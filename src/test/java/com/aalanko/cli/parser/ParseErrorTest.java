@@ -0,0 +1,57 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
+import com.aalanko.cli.parser.exceptions.ResponseFileException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
+
+public class ParseErrorTest {
+
+  @Test
+  public void testGetters() {
+    ParseError error = new ParseError(ErrorCode.OPTION_ALREADY_SET, 4, "--option", "value", null);
+
+    assertEquals(ErrorCode.OPTION_ALREADY_SET, error.getCode());
+    assertEquals(4, error.getPosition());
+    assertEquals("--option", error.getName());
+    assertEquals("value", error.getValue());
+    assertEquals("Option \"--option\" has already been set once", error.getMessage());
+  }
+
+  @Test
+  public void testToException() {
+    assertTrue(exception(ErrorCode.MISSING_OPTION_VALUE) instanceof MissingOptionValueException);
+    assertTrue(exception(ErrorCode.OPTION_ALREADY_SET) instanceof OptionAlreadySetException);
+    assertTrue(exception(ErrorCode.MISSING_REQUIRED_OPTION) instanceof MissingRequiredOptionException);
+    assertTrue(exception(ErrorCode.INVALID_OPTION_VALUE) instanceof InvalidOptionValueException);
+    assertTrue(exception(ErrorCode.UNTERMINATED_QUOTE) instanceof UnterminatedQuoteException);
+    assertTrue(exception(ErrorCode.RESPONSE_FILE) instanceof ResponseFileException);
+  }
+
+  @Test
+  public void testDetailMessage() {
+    ParseError error = new ParseError(ErrorCode.UNTERMINATED_QUOTE, 2, null, null, "Unterminated single quote at position 7");
+
+    assertEquals("Unterminated single quote at position 7", error.toException(true).getMessage());
+  }
+
+  @Test
+  public void testStacklessException() {
+    ParseError error = new ParseError(ErrorCode.MISSING_OPTION_VALUE, 0, "--option", null, null);
+
+    assertEquals(0, error.toException(false).getStackTrace().length);
+    assertTrue(error.toException(true).getStackTrace().length > 0);
+  }
+
+  private static SimpleCliParserException exception(ErrorCode code) {
+    return new ParseError(code, 0, "--option", "value", "detail").toException(true);
+  }
+}
@@ -0,0 +1,113 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ParseMetricsTest {
+  private ParseMetrics metrics;
+  private Schema schema;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--name", null, true, "");
+    options.addOption("--count", null, false, "", OptionType.INT);
+    options.addFlag("--verbose", "");
+    metrics = new ParseMetrics();
+    schema = options.freeze().withListener(metrics);
+  }
+
+  @Test
+  public void testCountsParses() throws SimpleCliParserException {
+    Parser.parseArgs(schema, "--name a --verbose x y");
+    Parser.parseArgs(schema, new String[] { "--name", "b" });
+
+    assertEquals(2, metrics.getParseCount());
+    assertEquals(0, metrics.getFailedParseCount());
+    assertEquals(7, metrics.getTokenCount());
+    assertEquals(2, metrics.getDataTokenCount());
+    assertTrue(metrics.getMaxNanos() > 0);
+    assertTrue(metrics.getP99Nanos() >= metrics.getP50Nanos());
+    assertTrue(metrics.getP99Nanos() >= metrics.getMaxNanos());
+  }
+
+  @Test
+  public void testCountsThrownError() throws SimpleCliParserException {
+    try {
+      Parser.parseArgs(schema, "--verbose");
+      fail("Missing required option was accepted");
+    } catch (MissingRequiredOptionException e) {
+      // expected
+    }
+
+    assertEquals(1, metrics.getParseCount());
+    assertEquals(1, metrics.getFailedParseCount());
+    assertEquals(1, metrics.getErrorCount(ErrorCode.MISSING_REQUIRED_OPTION));
+  }
+
+  @Test
+  public void testCountsCollectedErrors() {
+    Parser.tryParseArgs(schema, "--count x --count");
+
+    assertEquals(1, metrics.getFailedParseCount());
+    assertEquals(1, metrics.getErrorCount(ErrorCode.INVALID_OPTION_VALUE));
+    assertEquals(1, metrics.getErrorCount(ErrorCode.MISSING_OPTION_VALUE));
+    assertEquals(1, metrics.getErrorCount(ErrorCode.MISSING_REQUIRED_OPTION));
+    assertEquals(Long.valueOf(1), metrics.getErrorCounts().get("INVALID_OPTION_VALUE"));
+  }
+
+  @Test
+  public void testHistogramAndReset() throws SimpleCliParserException {
+    metrics.parsed(1000, 1, 0, false);
+    metrics.parsed(1000, 1, 0, false);
+    metrics.parsed(1000000, 1, 0, false);
+
+    assertEquals(2, metrics.getLatencyHistogram()[9]);
+    assertEquals(1023, metrics.getP50Nanos());
+    assertEquals(1048575, metrics.getP99Nanos());
+    assertEquals(1000000, metrics.getMaxNanos());
+    assertEquals(334000.0, metrics.getMeanNanos(), 0.0);
+
+    metrics.reset();
+    assertEquals(0, metrics.getParseCount());
+    assertEquals(0, metrics.getP50Nanos());
+    assertEquals(0.0, metrics.getMeanNanos(), 0.0);
+  }
+
+  @Test
+  public void testJmx() throws JMException, SimpleCliParserException {
+    ObjectName name = metrics.register("test");
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      Parser.parseArgs(schema, "--name a");
+
+      assertEquals(1L, server.getAttribute(name, "ParseCount"));
+      assertEquals(2L, server.getAttribute(name, "TokenCount"));
+      assertTrue(server.getAttribute(name, "ErrorCounts") instanceof javax.management.openmbean.TabularData);
+    } finally {
+      server.unregisterMBean(name);
+    }
+  }
+
+  @Test
+  public void testNoListener() throws SimpleCliParserException {
+    Parser.parseArgs(schema.withListener(null), "--name a");
+    assertEquals(0, metrics.getParseCount());
+    Map<String, Long> counts = metrics.getErrorCounts();
+    assertEquals(ErrorCode.values().length, counts.size());
+  }
+}
@@ -0,0 +1,212 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.OptionTypeMismatchException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ParseResultTest {
+  private Schema schema;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--name", "none", false, "");
+    options.addOption("--count", "3", false, "", OptionType.INT);
+    options.addOption("--size", null, false, "", OptionType.LONG);
+    options.addOption("--ratio", "0.5", false, "", OptionType.DOUBLE);
+    options.addOption("--timeout", "10s", false, "", OptionType.DURATION);
+    schema = options.freeze();
+  }
+
+  @Test
+  public void testDefaults() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(schema, new String[0]);
+
+    assertEquals(3, result.getInt("--count"));
+    assertEquals(3L, result.getLong("--count"));
+    assertEquals(0L, result.getLong("--size"));
+    assertEquals(0.5, result.getDouble("--ratio"), 0.0);
+    assertEquals(10000L, result.getLong("--timeout"));
+    assertEquals(Duration.ofSeconds(10), result.getDuration("--timeout"));
+    assertEquals("3", result.getOption("--count"));
+    assertFalse(result.isOptionSet("--count"));
+  }
+
+  @Test
+  public void testParsedValues() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(schema, "--count 12 --size 5000000000 --ratio 2.25 --timeout PT2M");
+
+    assertEquals(12, result.getInt("--count"));
+    assertEquals(12.0, result.getDouble("--count"), 0.0);
+    assertEquals(5000000000L, result.getLong("--size"));
+    assertEquals(5.0E9, result.getDouble("--size"), 0.0);
+    assertEquals(2.25, result.getDouble("--ratio"), 0.0);
+    assertEquals(120000L, result.getLong("--timeout"));
+    assertEquals("12", result.getOption("--count"));
+    assertTrue(result.isOptionSet("--count"));
+  }
+
+  @Test(expected = InvalidOptionValueException.class)
+  public void testInvalidValue() throws SimpleCliParserException {
+    Parser.parseArgs(schema, "--count twelve");
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testStringAsInt() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getInt("--name");
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testLongAsInt() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getInt("--size");
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testDurationAsDouble() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getDouble("--timeout");
+  }
+
+  @Test(expected = OptionNotFoundException.class)
+  public void testTypedNotFound() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getLong("--missing");
+  }
+
+  @Test
+  public void testManyFlags() throws SimpleCliParserException {
+    Options options = new Options();
+    for (int i = 0; i < 200; i++) {
+      options.addFlag("-f" + i, "");
+    }
+    Schema schema = options.freeze();
+    ParseResult result = Parser.parseArgs(schema, "-f0 -f63 -f64 -f127 -f199");
+
+    for (int i = 0; i < 200; i++) {
+      boolean expected = i == 0 || i == 63 || i == 64 || i == 127 || i == 199;
+      assertEquals(expected, result.getFlag("-f" + i));
+      assertEquals(expected, result.getFlag(schema.flagIndex("-f" + i)));
+    }
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testFlagIndexOutOfBounds() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getFlag(0);
+  }
+
+  @Test
+  public void testIndexAccess() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(schema, "--count 12 --size 7");
+
+    assertEquals("none", result.getOption(schema.optionIndex("--name")));
+    assertTrue(result.isOptionSet(schema.optionIndex("--count")));
+    assertFalse(result.isOptionSet(schema.optionIndex("--ratio")));
+    assertEquals(12, result.getInt(schema.optionIndex("--count")));
+    assertEquals(7L, result.getLong(schema.optionIndex("--size")));
+    assertEquals(0.5, result.getDouble(schema.optionIndex("--ratio")), 0.0);
+    assertEquals(Duration.ofSeconds(10), result.getDuration(schema.optionIndex("--timeout")));
+    assertEquals(Arrays.asList("12"), result.getValues(schema.optionIndex("--count")).asList());
+  }
+
+  @Test(expected = OptionTypeMismatchException.class)
+  public void testIndexTypeMismatch() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getInt(schema.optionIndex("--name"));
+  }
+
+  @Test(expected = IndexOutOfBoundsException.class)
+  public void testOptionIndexOutOfBounds() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getOption(schema.getOptionCount());
+  }
+
+  @Test
+  public void testManyRequiredOptions() throws SimpleCliParserException {
+    Options options = new Options();
+    StringBuilder args = new StringBuilder();
+    for (int i = 0; i < 150; i++) {
+      options.addOption("-o" + i, null, i % 2 == 0, "");
+      if (i != 2 && i != 64 && i != 148) {
+        args.append(" -o").append(i).append(" v");
+      }
+    }
+    Schema schema = options.freeze();
+
+    try {
+      Parser.parseArgs(schema, args.toString());
+      fail("Missing required options were accepted");
+    } catch (MissingRequiredOptionException e) {
+      assertEquals("Missing required option(s): \"-o2\" \"-o64\" \"-o148\"", e.getMessage());
+    }
+
+    List<?> errors = Parser.tryParseArgs(schema, args.toString()).getErrors();
+    assertEquals(3, errors.size());
+    assertTrue(schema.isOptionRequired(64));
+    assertFalse(schema.isOptionRequired(65));
+  }
+
+  @Test
+  public void testRepeatableValues() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addRepeatableOption("--include", false, "");
+    options.addRepeatableOption("--port", true, "", OptionType.INT);
+    options.addOption("--name", null, false, "");
+    ParseResult result = Parser.parseArgs(options.freeze(), "--include a --port 80 --include b --port 443");
+
+    assertEquals(Arrays.asList("a", "b"), result.getValues("--include").asList());
+    assertEquals("b", result.getOption("--include"));
+    OptionValues ports = result.getValues("--port");
+    assertEquals(2, ports.size());
+    assertEquals(80, ports.getInt(0));
+    assertEquals(443, ports.getInt(1));
+    assertEquals(443, result.getInt("--port"));
+    assertTrue(result.getValues("--name").isEmpty());
+  }
+
+  @Test
+  public void testNonRepeatableValues() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(schema, "--count 7");
+
+    assertEquals(1, result.getValues("--count").size());
+    assertEquals(7L, result.getValues("--count").getLong(0));
+    assertTrue(result.getValues("--size").isEmpty());
+    assertFalse(schema.isOptionRepeatable(0));
+  }
+
+  @Test
+  public void testManyRepeatedValues() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addRepeatableOption("-d", false, "", OptionType.DOUBLE);
+    String[] args = new String[10000];
+    for (int i = 0; i < args.length; i += 2) {
+      args[i] = "-d";
+      args[i + 1] = Integer.toString(i);
+    }
+    OptionValues values = Parser.parseArgs(options.freeze(), args).getValues("-d");
+
+    assertEquals(5000, values.size());
+    assertEquals(9998.0, values.getDouble(4999), 0.0);
+  }
+
+  @Test(expected = InvalidOptionValueException.class)
+  public void testInvalidRepeatedValue() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addRepeatableOption("--port", false, "", OptionType.INT);
+    Parser.parseArgs(options.freeze(), "--port 80 --port http");
+  }
+
+  @Test(expected = OptionNotFoundException.class)
+  public void testValuesNotFound() throws SimpleCliParserException {
+    Parser.parseArgs(schema, new String[0]).getValues("--missing");
+  }
+}
@@ -3,16 +3,31 @@ package com.aalanko.cli.parser;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
 
 import org.junit.Before;
 import org.junit.Test;
 
 import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.InvalidOptionValueException;
 import com.aalanko.cli.parser.exceptions.MissingOptionValueException;
 import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
 import com.aalanko.cli.parser.exceptions.OptionAlreadySetException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
 import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnknownOptionException;
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
 
 public class ParserTest {
   private Options options;
@@ -95,4 +110,521 @@ public class ParserTest {
     assertEquals("middleData", data[1]);
     assertEquals("endData", data[2]);
   }
-}
\ No newline at end of file
+  
+  @Test
+  public void testSchemaRequiredAndFlag() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(options.freeze(), requiredAndFlag);
+    
+    assertEquals("value1", result.getOption("--option1"));
+    assertEquals("value2", result.getOption("--option2"));
+    assertTrue(result.getFlag("--flag1"));
+    assertFalse(result.getFlag("--flag2"));
+  }
+  
+  @Test
+  public void testSchemaData() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(options.freeze(), data);
+    
+    String[] data = result.getData();
+    assertEquals(3, data.length);
+    assertEquals("firstData", data[0]);
+    assertEquals("middleData", data[1]);
+    assertEquals("endData", data[2]);
+  }
+  
+  @Test(expected = MissingRequiredOptionException.class)
+  public void testSchemaMissingRequiredOption() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), missingRequired);
+  }
+  
+  @Test(expected = MissingOptionValueException.class)
+  public void testSchemaMissingValueMiddle() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), missingValueMiddle);
+  }
+  
+  @Test(expected = MissingOptionValueException.class)
+  public void testSchemaMissingValueEnd() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), missingValueEnd);
+  }
+  
+  @Test(expected = OptionAlreadySetException.class)
+  public void testSchemaSetOptionTwice() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), setOptionTwice);
+  }
+  
+  @Test(expected = OptionNotFoundException.class)
+  public void testSchemaOptionNotFound() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), onlyRequired).getOption("--option3");
+  }
+  
+  @Test
+  public void testSchemaResultsAreIndependent() throws SimpleCliParserException {
+    Schema schema = options.freeze();
+    ParseResult first = Parser.parseArgs(schema, requiredAndFlag);
+    ParseResult second = Parser.parseArgs(schema, "--option1 other1 --option2 other2".split(" "));
+    
+    assertEquals("value1", first.getOption("--option1"));
+    assertTrue(first.getFlag("--flag1"));
+    assertEquals("other1", second.getOption("--option1"));
+    assertFalse(second.getFlag("--flag1"));
+  }
+  
+  @Test
+  public void testSchemaSharedBetweenThreads() throws Exception {
+    final Schema schema = options.freeze();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<ParseResult>> futures = new ArrayList<Future<ParseResult>>();
+      for (int i = 0; i < 100; i++) {
+        final String[] args = ("--option1 a" + i + " --option2 b" + i).split(" ");
+        futures.add(executor.submit(new Callable<ParseResult>() {
+          public ParseResult call() throws Exception {
+            return Parser.parseArgs(schema, args);
+          }
+        }));
+      }
+      for (int i = 0; i < 100; i++) {
+        assertEquals("a" + i, futures.get(i).get().getOption("--option1"));
+        assertEquals("b" + i, futures.get(i).get().getOption("--option2"));
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+  
+  @Test
+  public void testCommandLine() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(options.freeze(), "first --option1 'value one' --flag2 --option2 \"value \\\"two\\\"\" last\\ data");
+    
+    assertEquals("value one", result.getOption("--option1"));
+    assertEquals("value \"two\"", result.getOption("--option2"));
+    assertFalse(result.getFlag("--flag1"));
+    assertTrue(result.getFlag("--flag2"));
+    
+    String[] data = result.getData();
+    assertEquals(2, data.length);
+    assertEquals("first", data[0]);
+    assertEquals("last data", data[1]);
+  }
+  
+  @Test
+  public void testQuotedNamesAreNames() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(options.freeze(), "'--option1' value1 \"--option2\" value2 --f'lag1'");
+    
+    assertEquals("value1", result.getOption("--option1"));
+    assertEquals("value2", result.getOption("--option2"));
+    assertTrue(result.getFlag("--flag1"));
+    assertEquals(0, result.getData().length);
+  }
+  
+  @Test
+  public void testByteBuffer() throws SimpleCliParserException {
+    ByteBuffer buffer = ByteBuffer.wrap("--option1 v\u00e4rde1 --flag1 --option2 '\u5024 2'".getBytes(Charset.forName("UTF-8")));
+    ParseResult result = Parser.parseArgs(options.freeze(), buffer);
+    
+    assertEquals("v\u00e4rde1", result.getOption("--option1"));
+    assertEquals("\u5024 2", result.getOption("--option2"));
+    assertTrue(result.getFlag("--flag1"));
+    assertEquals(0, buffer.position());
+  }
+  
+  @Test(expected = MissingOptionValueException.class)
+  public void testCommandLineMissingValue() throws SimpleCliParserException {
+    Parser.parseArgs(options.freeze(), "--option1 --option2 value2");
+  }
+  
+  @Test
+  public void testDataConsumer() throws SimpleCliParserException {
+    final List<String> received = new ArrayList<String>();
+    ParseResult result = Parser.parseArgs(options.freeze(), data, new Consumer<String>() {
+      public void accept(String value) {
+        received.add(value);
+      }
+    });
+    
+    assertEquals("value1", result.getOption("--option1"));
+    assertEquals(0, result.getDataList().size());
+    assertEquals(3, received.size());
+    assertEquals("firstData", received.get(0));
+    assertEquals("middleData", received.get(1));
+    assertEquals("endData", received.get(2));
+  }
+  
+  @Test
+  public void testDataConsumerCalledDuringParse() {
+    final List<String> received = new ArrayList<String>();
+    try {
+      Parser.parseArgs(options.freeze(), "first --option1 value1 second", new Consumer<String>() {
+        public void accept(String value) {
+          received.add(value);
+        }
+      });
+    } catch (SimpleCliParserException e) {
+      assertTrue(e instanceof MissingRequiredOptionException);
+    }
+    
+    assertEquals(2, received.size());
+    assertEquals("first", received.get(0));
+    assertEquals("second", received.get(1));
+  }
+  
+  @Test
+  public void testDataStream() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(options.freeze(), data);
+    
+    assertEquals(3, result.getDataList().size());
+    assertEquals("middleData", result.getDataList().get(1));
+    assertEquals(2, result.getDataStream().filter(s -> s.endsWith("Data") && !s.startsWith("middle")).count());
+  }
+  
+  @Test
+  public void testTryParseValid() {
+    ParseResult result = Parser.tryParseArgs(options.freeze(), requiredAndFlag);
+    
+    assertFalse(result.hasErrors());
+    assertTrue(result.getErrors().isEmpty());
+  }
+  
+  @Test
+  public void testTryParseCollectsAllErrors() throws SimpleCliParserException {
+    ParseResult result = Parser.tryParseArgs(options.freeze(), "--option2 --flag1 --option2 a --option2 b data".split(" "));
+    List<ParseError> errors = result.getErrors();
+    
+    assertTrue(result.hasErrors());
+    assertEquals(3, errors.size());
+    
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, errors.get(0).getCode());
+    assertEquals(0, errors.get(0).getPosition());
+    assertEquals("--option2", errors.get(0).getName());
+    assertEquals("--flag1", errors.get(0).getValue());
+    assertEquals("Missing option value: --option2 = --flag1", errors.get(0).getMessage());
+    
+    assertEquals(ErrorCode.OPTION_ALREADY_SET, errors.get(1).getCode());
+    assertEquals(5, errors.get(1).getPosition());
+    assertEquals("b", errors.get(1).getValue());
+    
+    assertEquals(ErrorCode.MISSING_REQUIRED_OPTION, errors.get(2).getCode());
+    assertEquals(-1, errors.get(2).getPosition());
+    assertEquals("--option1", errors.get(2).getName());
+    
+    assertTrue(result.getFlag("--flag1"));
+    assertEquals("a", result.getOption("--option2"));
+    assertEquals("data", result.getDataList().get(0));
+  }
+  
+  @Test
+  public void testTryParseMissingValueAtEnd() {
+    List<ParseError> errors = Parser.tryParseArgs(options.freeze(), missingValueEnd).getErrors();
+    
+    assertEquals(2, errors.size());
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, errors.get(0).getCode());
+    assertEquals(3, errors.get(0).getPosition());
+    assertEquals(null, errors.get(0).getValue());
+    assertEquals(ErrorCode.MISSING_REQUIRED_OPTION, errors.get(1).getCode());
+  }
+  
+  @Test
+  public void testTryParseMissingValuePosition() {
+    List<ParseError> beforeName = Parser.tryParseArgs(options.freeze(), "data --option2 --flag1").getErrors();
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, beforeName.get(0).getCode());
+    assertEquals(1, beforeName.get(0).getPosition());
+
+    List<ParseError> atEnd = Parser.tryParseArgs(options.freeze(), "data --option2").getErrors();
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, atEnd.get(0).getCode());
+    assertEquals(1, atEnd.get(0).getPosition());
+  }
+  
+  @Test
+  public void testTryParseUnterminatedQuote() {
+    List<ParseError> errors = Parser.tryParseArgs(options.freeze(), "--option1 a --option2 'b").getErrors();
+    
+    assertEquals(3, errors.size());
+    assertEquals(ErrorCode.UNTERMINATED_QUOTE, errors.get(0).getCode());
+    assertEquals(3, errors.get(0).getPosition());
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, errors.get(1).getCode());
+    assertEquals(ErrorCode.MISSING_REQUIRED_OPTION, errors.get(2).getCode());
+  }
+  
+  @Test
+  public void testTryParseUnterminatedQuoteStackTrace() {
+    RecordingTokens tokens = new RecordingTokens(new CharSequenceTokenizer("--option1 a --option2 'b"));
+    Parser.tryParse(options.freeze(), tokens, null, new ParseResult(options.freeze()));
+    
+    assertTrue(tokens.failure instanceof UnterminatedQuoteException);
+    assertEquals(0, tokens.failure.getStackTrace().length);
+  }
+  
+  @Test
+  public void testUnterminatedQuoteStackTraces() {
+    try {
+      Parser.parseArgs(options.freeze(), "--option1 a --option2 'b");
+      fail();
+    } catch (SimpleCliParserException e) {
+      assertTrue(e.getStackTrace().length > 0);
+    }
+    try {
+      Parser.parseArgs(options.freeze().withStackTraces(false), "--option1 a --option2 'b");
+      fail();
+    } catch (SimpleCliParserException e) {
+      assertTrue(e instanceof UnterminatedQuoteException);
+      assertEquals(0, e.getStackTrace().length);
+    }
+  }
+  
+  @Test
+  public void testTryParseResponseFile() {
+    Schema schema = options.freeze().withResponseFiles(true);
+    List<ParseError> errors = Parser.tryParseArgs(schema, "@/nonexistent/args --option1 a --option2 b".split(" ")).getErrors();
+    
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.RESPONSE_FILE, errors.get(0).getCode());
+    assertEquals(0, errors.get(0).getPosition());
+  }
+  
+  @Test
+  public void testTryParseInvalidValue() throws SimpleCliParserException {
+    options.addOption("--count", null, false, "", OptionType.INT);
+    List<ParseError> errors = Parser.tryParseArgs(options.freeze(), "--option1 a --option2 b --count x".split(" ")).getErrors();
+    
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.INVALID_OPTION_VALUE, errors.get(0).getCode());
+    assertEquals("Invalid value for option \"--count\": x (For input string: \"x\")", errors.get(0).getMessage());
+  }
+  
+  @Test
+  public void testInvalidValueReason() throws SimpleCliParserException {
+    options.addOption("--timeout", null, false, "", OptionType.DURATION);
+    try {
+      Parser.parseArgs(options.freeze(), "--option1 a --option2 b --timeout 5x".split(" "));
+      fail();
+    } catch (InvalidOptionValueException e) {
+      assertEquals("Invalid value for option \"--timeout\": 5x (Unknown duration unit \"x\")", e.getMessage());
+    }
+  }
+  
+  @Test
+  public void testStackTraces() {
+    try {
+      Parser.parseArgs(options.freeze(), missingValueMiddle);
+    } catch (SimpleCliParserException e) {
+      assertTrue(e.getStackTrace().length > 0);
+    }
+    try {
+      Parser.parseArgs(options.freeze().withStackTraces(false), missingValueMiddle);
+    } catch (SimpleCliParserException e) {
+      assertTrue(e instanceof MissingOptionValueException);
+      assertEquals("Missing option value: --option1 = --option2", e.getMessage());
+      assertEquals(0, e.getStackTrace().length);
+    }
+    try {
+      Parser.parseArgs(options.freeze().withStackTraces(false), missingRequired);
+    } catch (SimpleCliParserException e) {
+      assertTrue(e instanceof MissingRequiredOptionException);
+      assertEquals(0, e.getStackTrace().length);
+    }
+  }
+
+  @Test
+  public void testAbbreviations() throws SimpleCliParserException {
+    Schema schema = options.freeze().withAbbreviations(true);
+    ParseResult result = Parser.parseArgs(schema, "--option1 a --option2 b --flag2 data -x -5");
+
+    assertTrue(result.getFlag("--flag2"));
+    assertFalse(result.getFlag("--flag1"));
+    assertEquals("[data, -x, -5]", result.getDataList().toString());
+
+    result = Parser.parseArgs(schema, "--option1 a --option2 b --flag1");
+    assertTrue(result.getFlag("--flag1"));
+  }
+
+  @Test
+  public void testAbbreviatedOption() throws SimpleCliParserException {
+    options.addOption("--name", null, false, "");
+    Schema schema = options.freeze().withAbbreviations(true);
+
+    assertEquals("x", Parser.parseArgs(schema, "--option1 a --option2 b --na x").getOption("--name"));
+  }
+
+  @Test
+  public void testAmbiguousAbbreviation() {
+    Schema schema = options.freeze().withAbbreviations(true);
+    List<ParseError> errors = Parser.tryParseArgs(schema, "--option1 a --option2 b --opt").getErrors();
+
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.AMBIGUOUS_OPTION, errors.get(0).getCode());
+    assertEquals("Ambiguous option \"--opt\", could be --option1, --option2", errors.get(0).getMessage());
+  }
+
+  @Test
+  public void testStrictOptions() throws SimpleCliParserException {
+    Schema schema = options.freeze().withStrictOptions(true);
+    List<ParseError> errors = Parser.tryParseArgs(schema, "--option1 a --option2 b --flga1 -5 - data").getErrors();
+
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.UNKNOWN_OPTION, errors.get(0).getCode());
+    assertEquals(4, errors.get(0).getPosition());
+    assertEquals("--flag1", errors.get(0).getSuggestion());
+    assertEquals("Unknown option \"--flga1\", did you mean \"--flag1\"?", errors.get(0).getMessage());
+
+    try {
+      Parser.parseArgs(schema, "--option1 a --option2 b --zzz");
+      fail("Unknown option was accepted");
+    } catch (UnknownOptionException e) {
+      assertEquals("Unknown option \"--zzz\"", e.getMessage());
+    }
+  }
+
+  @Test
+  public void testSuggestName() {
+    Schema schema = options.freeze();
+
+    assertEquals("--option2", schema.suggestName("--optoin2"));
+    assertEquals(null, schema.suggestName("--unrelated"));
+  }
+
+  private Schema gnuSchema() throws SimpleCliParserException {
+    Options gnu = new Options();
+    gnu.addFlag("-x", "");
+    gnu.addFlag("-v", "");
+    gnu.addOption("-f", null, false, "");
+    gnu.addOption("--level", "1", false, "", OptionType.INT);
+    gnu.addFlag("--verbose", "");
+    return gnu.freeze().withGnuSyntax(true);
+  }
+
+  @Test
+  public void testGnuClusteredFlags() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema(), "-xv data");
+
+    assertTrue(result.getFlag("-x"));
+    assertTrue(result.getFlag("-v"));
+    assertEquals("[data]", result.getDataList().toString());
+  }
+
+  @Test
+  public void testGnuClusterWithOption() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema(), "-xvf archive.tar");
+    assertTrue(result.getFlag("-v"));
+    assertEquals("archive.tar", result.getOption("-f"));
+
+    result = Parser.parseArgs(gnuSchema(), new String[] { "-xfarchive.tar" });
+    assertTrue(result.getFlag("-x"));
+    assertFalse(result.getFlag("-v"));
+    assertEquals("archive.tar", result.getOption("-f"));
+  }
+
+  @Test
+  public void testGnuNameEqualsValue() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema(), "--level=3 \"-f=a b\" --level2=x");
+
+    assertEquals(3, result.getInt("--level"));
+    assertEquals("=a b", result.getOption("-f"));
+    assertEquals("[--level2=x]", result.getDataList().toString());
+  }
+
+  @Test
+  public void testGnuEndOfOptions() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema(), "-x -- -v --level=2 --");
+
+    assertTrue(result.getFlag("-x"));
+    assertFalse(result.getFlag("-v"));
+    assertEquals("[-v, --level=2, --]", result.getDataList().toString());
+  }
+
+  @Test
+  public void testGnuErrors() throws SimpleCliParserException {
+    List<ParseError> errors = Parser.tryParseArgs(gnuSchema(), "-xq --verbose=yes --level=high -f").getErrors();
+
+    assertEquals(4, errors.size());
+    assertEquals(ErrorCode.UNKNOWN_OPTION, errors.get(0).getCode());
+    assertEquals(ErrorCode.INVALID_OPTION_VALUE, errors.get(1).getCode());
+    assertEquals("--verbose", errors.get(1).getName());
+    assertEquals(ErrorCode.INVALID_OPTION_VALUE, errors.get(2).getCode());
+    assertEquals(ErrorCode.MISSING_OPTION_VALUE, errors.get(3).getCode());
+  }
+
+  @Test
+  public void testGnuUnknownInClusterSetsNothing() throws SimpleCliParserException {
+    ParseResult result = Parser.tryParseArgs(gnuSchema(), "-xvq");
+
+    assertEquals(1, result.getErrors().size());
+    assertEquals(ErrorCode.UNKNOWN_OPTION, result.getErrors().get(0).getCode());
+    assertFalse(result.getFlag("-x"));
+    assertFalse(result.getFlag("-v"));
+  }
+
+  @Test
+  public void testGnuNameEqualsValueAbbreviated() throws SimpleCliParserException {
+    Schema schema = gnuSchema().withAbbreviations(true);
+    ParseResult result = Parser.parseArgs(schema, "--lev=3");
+    assertEquals(3, result.getInt("--level"));
+
+    Options options = new Options();
+    options.addOption("--verbosity", null, false, "");
+    options.addOption("--version", null, false, "");
+    schema = options.freeze().withGnuSyntax(true).withAbbreviations(true);
+    List<ParseError> errors = Parser.tryParseArgs(schema, "--verb=3 --ver=1 --=x").getErrors();
+    assertEquals(1, errors.size());
+    assertEquals(ErrorCode.AMBIGUOUS_OPTION, errors.get(0).getCode());
+    assertEquals("Ambiguous option \"--ver\", could be --verbosity, --version", errors.get(0).getMessage());
+    assertEquals("3", Parser.tryParseArgs(schema, "--verb=3").getOption("--verbosity"));
+  }
+
+  @Test
+  public void testGnuDisabled() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema().withGnuSyntax(false), "-xv --level=3 -- -5");
+
+    assertFalse(result.getFlag("-x"));
+    assertEquals("[-xv, --level=3, --, -5]", result.getDataList().toString());
+  }
+
+  @Test
+  public void testGnuNegativeNumberIsData() throws SimpleCliParserException {
+    ParseResult result = Parser.parseArgs(gnuSchema(), "-5 -f -5");
+
+    assertEquals("[-5]", result.getDataList().toString());
+    assertEquals("-5", result.getOption("-f"));
+  }
+
+  /**
+   * Tokens that keep the exception of malformed input.
+   */
+  private static final class RecordingTokens extends TokenSource {
+    private final TokenSource tokens;
+    private SimpleCliParserException failure;
+
+    RecordingTokens(TokenSource tokens) {
+      this.tokens = tokens;
+    }
+
+    @Override
+    boolean next() throws SimpleCliParserException {
+      try {
+        return tokens.next();
+      } catch (SimpleCliParserException e) {
+        failure = e;
+        throw e;
+      }
+    }
+
+    @Override
+    void setStackTraces(boolean stackTraces) {
+      tokens.setStackTraces(stackTraces);
+    }
+
+    @Override
+    CharSequence chars() {
+      return tokens.chars();
+    }
+
+    @Override
+    int start() {
+      return tokens.start();
+    }
+
+    @Override
+    int end() {
+      return tokens.end();
+    }
+  }
+}
@@ -0,0 +1,135 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.ResponseFileException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ResponseFileTokensTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Schema schema;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--option", null, false, "");
+    options.addFlag("--flag", "");
+    schema = options.freeze().withResponseFiles(true);
+  }
+
+  private String file(String name, String contents) throws IOException {
+    File file = folder.newFile(name);
+    Files.write(file.toPath(), contents.getBytes(Charset.forName("UTF-8")));
+    return file.getPath();
+  }
+
+  @Test
+  public void testExpansion() throws Exception {
+    String path = file("args", "--flag\n'first data'\n--option \"a value\"\n");
+    ParseResult result = Parser.parseArgs(schema, new String[] { "before", "@" + path, "after" });
+
+    assertTrue(result.getFlag("--flag"));
+    assertEquals("a value", result.getOption("--option"));
+    assertEquals(Arrays.asList("before", "first data", "after"), result.getDataList());
+  }
+
+  @Test
+  public void testOptionValueAcrossFiles() throws Exception {
+    String path = file("value", "from-file rest");
+    ParseResult result = Parser.parseArgs(schema, new String[] { "--option", "@" + path });
+
+    assertEquals("from-file", result.getOption("--option"));
+    assertEquals(Arrays.asList("rest"), result.getDataList());
+  }
+
+  @Test
+  public void testNested() throws Exception {
+    String inner = file("inner", "--flag inner");
+    String outer = file("outer", "outer @" + inner + " end");
+    ParseResult result = Parser.parseArgs(schema, "@" + outer);
+
+    assertTrue(result.getFlag("--flag"));
+    assertEquals(Arrays.asList("outer", "inner", "end"), result.getDataList());
+  }
+
+  @Test
+  public void testEmptyFile() throws Exception {
+    String path = file("empty", "");
+    ParseResult result = Parser.parseArgs(schema, new String[] { "@" + path, "data" });
+
+    assertEquals(Arrays.asList("data"), result.getDataList());
+  }
+
+  @Test
+  public void testLargeFile() throws Exception {
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < 100000; i++) {
+      contents.append("file").append(i).append('\n');
+    }
+    String path = file("large", contents.toString());
+
+    final int[] count = new int[1];
+    Parser.parseArgs(schema, new String[] { "@" + path }, value -> count[0]++);
+
+    assertEquals(100000, count[0]);
+  }
+
+  @Test
+  public void testDisabled() throws Exception {
+    ParseResult result = Parser.parseArgs(schema.withResponseFiles(false), new String[] { "@missing" });
+
+    assertEquals(Arrays.asList("@missing"), result.getDataList());
+  }
+
+  @Test
+  public void testSingleAt() throws Exception {
+    ParseResult result = Parser.parseArgs(schema, new String[] { "@" });
+
+    assertEquals(Arrays.asList("@"), result.getDataList());
+  }
+
+  @Test(expected = ResponseFileException.class)
+  public void testMissingFile() throws Exception {
+    Parser.parseArgs(schema, new String[] { "@" + new File(folder.getRoot(), "missing").getPath() });
+  }
+
+  @Test
+  public void testNextAfterMissingFile() throws Exception {
+    String missing = "@" + new File(folder.getRoot(), "missing").getPath();
+    ResponseFileTokens tokens = new ResponseFileTokens(new ArgumentArray(new String[] { missing, "after" }));
+    try {
+      tokens.next();
+      fail();
+    } catch (ResponseFileException e) {
+      // expected
+    }
+
+    assertTrue(tokens.next());
+    assertEquals("after", tokens.token());
+    assertFalse(tokens.next());
+  }
+
+  @Test(expected = ResponseFileException.class)
+  public void testRecursive() throws Exception {
+    File file = new File(folder.getRoot(), "self");
+    Files.write(file.toPath(), ("@" + file.getPath()).getBytes(Charset.forName("UTF-8")));
+
+    Parser.parseArgs(schema, new String[] { "@" + file.getPath() });
+  }
+}
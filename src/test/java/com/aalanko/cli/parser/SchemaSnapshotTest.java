@@ -0,0 +1,233 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class SchemaSnapshotTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private Schema schema;
+
+  @Before
+  public void setUp() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--name", null, true, "the name \u00e5");
+    options.addOption("--count", "3", false, "", OptionType.INT);
+    options.addOption("--ratio", "0.5", false, null, OptionType.DOUBLE);
+    options.addRepeatableOption("--include", false, "includes", OptionType.STRING);
+    options.addFlag("-v", "verbose");
+    options.addFlag("-x", "extract");
+    schema = options.freeze().withGnuSyntax(true).withStackTraces(false);
+  }
+
+  private void assertSameDefinitions(Schema expected, Schema actual) {
+    assertEquals(expected.getOptionCount(), actual.getOptionCount());
+    assertEquals(expected.getFlagCount(), actual.getFlagCount());
+    for (int i = 0; i < expected.getOptionCount(); i++) {
+      assertEquals(expected.getOptionName(i), actual.getOptionName(i));
+      assertEquals(expected.getOptionDefault(i), actual.getOptionDefault(i));
+      assertEquals(expected.getOptionDescription(i), actual.getOptionDescription(i));
+      assertEquals(expected.getOptionType(i), actual.getOptionType(i));
+      assertEquals(expected.isOptionRequired(i), actual.isOptionRequired(i));
+      assertEquals(expected.isOptionRepeatable(i), actual.isOptionRepeatable(i));
+      assertEquals(i, actual.optionIndex(expected.getOptionName(i)));
+    }
+    for (int i = 0; i < expected.getFlagCount(); i++) {
+      assertEquals(expected.getFlagName(i), actual.getFlagName(i));
+      assertEquals(expected.getFlagDescription(i), actual.getFlagDescription(i));
+      assertEquals(i, actual.flagIndex(expected.getFlagName(i)));
+    }
+    assertEquals(expected.isGnuSyntax(), actual.isGnuSyntax());
+    assertEquals(expected.isStackTraces(), actual.isStackTraces());
+  }
+
+  @Test
+  public void testRoundTrip() throws IOException, SimpleCliParserException {
+    Schema read = SchemaSnapshot.read(ByteBuffer.wrap(SchemaSnapshot.toByteArray(schema)));
+    assertSameDefinitions(schema, read);
+
+    ParseResult result = Parser.parseArgs(read, "--name a -xv --include b --include c");
+    assertEquals("a", result.getOption("--name"));
+    assertEquals(3, result.getInt("--count"));
+    assertEquals(0.5, result.getDouble("--ratio"), 0.0);
+    assertTrue(result.getFlag("-x"));
+    assertEquals(2, result.getValues("--include").size());
+    assertEquals(-1, read.optionIndex("--missing"));
+  }
+
+  @Test
+  public void testLoadFile() throws IOException {
+    Path file = folder.getRoot().toPath().resolve("schema.bin");
+    try (OutputStream out = Files.newOutputStream(file)) {
+      SchemaSnapshot.write(schema, out);
+    }
+    assertSameDefinitions(schema, SchemaSnapshot.load(file));
+  }
+
+  @Test
+  public void testReadStream() throws IOException {
+    byte[] bytes = SchemaSnapshot.toByteArray(schema);
+    assertSameDefinitions(schema, SchemaSnapshot.read(new ByteArrayInputStream(bytes)));
+  }
+
+  @Test
+  public void testReadLeavesPosition() throws IOException {
+    byte[] bytes = SchemaSnapshot.toByteArray(schema);
+    ByteBuffer buffer = ByteBuffer.allocateDirect(bytes.length + 4);
+    buffer.putInt(0).put(bytes).position(4);
+
+    assertSameDefinitions(schema, SchemaSnapshot.read(buffer));
+    assertEquals(4, buffer.position());
+  }
+
+  @Test
+  public void testLargeSchema() throws IOException, SimpleCliParserException {
+    Options options = new Options();
+    for (int i = 0; i < 2000; i++) {
+      options.addOption("--option" + i, null, i % 100 == 0, "");
+      options.addFlag("--flag" + i, "");
+    }
+    Schema large = options.freeze();
+    assertSameDefinitions(large, SchemaSnapshot.read(ByteBuffer.wrap(SchemaSnapshot.toByteArray(large))));
+  }
+
+  @Test
+  public void testEmptySchema() throws IOException {
+    Schema empty = new Options().freeze();
+    Schema read = SchemaSnapshot.read(ByteBuffer.wrap(SchemaSnapshot.toByteArray(empty)));
+
+    assertEquals(0, read.getOptionCount());
+    assertNull(read.getListener());
+  }
+
+  @Test(expected = IOException.class)
+  public void testNotASnapshot() throws IOException {
+    SchemaSnapshot.read(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }));
+  }
+
+  @Test
+  public void testTruncated() throws IOException {
+    byte[] bytes = SchemaSnapshot.toByteArray(schema);
+    for (int length = 0; length < bytes.length; length += 7) {
+      try {
+        SchemaSnapshot.read(ByteBuffer.wrap(bytes, 0, length));
+        throw new AssertionError("Truncated snapshot of " + length + " bytes was read");
+      } catch (IOException e) {
+        // expected
+      }
+    }
+  }
+
+  /**
+   * Writes a snapshot of flags with the given name table and short names.
+   */
+  private static byte[] flagSnapshot(String[] flags, int[] slots, int[] hashes, char[] shortChars) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.write(SchemaSnapshot.toByteArray(new Options().freeze()), 0, 12);
+    out.writeInt(0);
+    out.writeInt(flags.length);
+    for (int i = 0; i < 2 * Schema.words(0); i++) {
+      out.writeLong(0L);
+    }
+    for (String flag : flags) {
+      if (flag == null) {
+        out.writeInt(-1);
+      } else {
+        out.writeInt(flag.length());
+        out.writeBytes(flag);
+      }
+      out.writeInt(-1);
+    }
+    out.writeInt(slots.length);
+    for (int slot : slots) {
+      out.writeInt(slot);
+    }
+    for (int hash : hashes) {
+      out.writeInt(hash);
+    }
+    out.writeInt(shortChars.length);
+    for (int i = 0; i < shortChars.length; i++) {
+      out.writeChar(shortChars[i]);
+      out.writeInt(i);
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  @Test
+  public void testFlagSnapshot() throws IOException, SimpleCliParserException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    Schema read = SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new NameTable(flags).slots(), hashes, new char[] { 'a', 'b' })));
+
+    assertEquals(1, read.flagIndex("-b"));
+    assertEquals(-1, read.flagIndex("-c"));
+  }
+
+  @Test(timeout = 5000, expected = IOException.class)
+  public void testNoEmptySlot() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new int[] { 1, 2 }, hashes, new char[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDescriptorInTwoSlots() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new int[] { 1, 1, 2, 0 }, hashes, new char[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void testDescriptorInNoSlot() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new int[] { 1, 0, 0, 0 }, hashes, new char[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void testWrongHash() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-a".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new NameTable(flags).slots(), hashes, new char[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void testNullName() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(new String[] { "-a", null }, new NameTable(flags).slots(), hashes, new char[0])));
+  }
+
+  @Test(expected = IOException.class)
+  public void testUnsortedShortNames() throws IOException {
+    String[] flags = { "-a", "-b" };
+    int[] hashes = { "-a".hashCode(), "-b".hashCode() };
+    SchemaSnapshot.read(ByteBuffer.wrap(flagSnapshot(flags, new NameTable(flags).slots(), hashes, new char[] { 'b', 'a' })));
+  }
+
+  @Test(expected = FileNotFoundException.class)
+  public void testMissingResource() throws IOException {
+    SchemaSnapshot.loadResource(SchemaSnapshotTest.class, "missing.bin");
+  }
+}
@@ -0,0 +1,89 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.FlagAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.OptionAlreadyExistsException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class SchemaTest {
+  private Options options;
+  private Schema schema;
+
+  @Before
+  public void setUp() throws OptionAlreadyExistsException, FlagAlreadyExistsException {
+    options = new Options();
+    options.addOption("option", "value", false, "option description");
+    options.addOption("required", "ignored", true, "required description");
+    options.addFlag("flag", "flag description");
+    schema = options.freeze();
+  }
+
+  @Test
+  public void testDefinitions() {
+    assertEquals(2, schema.getOptionCount());
+    assertEquals(1, schema.getFlagCount());
+
+    assertEquals(0, schema.optionIndex("option"));
+    assertEquals(1, schema.optionIndex("required"));
+    assertEquals(-1, schema.optionIndex("flag"));
+    assertEquals(0, schema.flagIndex("flag"));
+    assertEquals(-1, schema.flagIndex("option"));
+
+    assertEquals("option", schema.getOptionName(0));
+    assertEquals("value", schema.getOptionDefault(0));
+    assertEquals("option description", schema.getOptionDescription(0));
+    assertFalse(schema.isOptionRequired(0));
+    assertNull(schema.getOptionDefault(1));
+    assertTrue(schema.isOptionRequired(1));
+    assertEquals("flag", schema.getFlagName(0));
+    assertEquals("flag description", schema.getFlagDescription(0));
+  }
+
+  @Test
+  public void testExists() {
+    assertTrue(schema.optionExists("option"));
+    assertFalse(schema.optionExists("flag"));
+    assertTrue(schema.flagExists("flag"));
+    assertFalse(schema.flagExists("option"));
+  }
+
+  @Test
+  public void testFreezeIgnoresParseState() throws SimpleCliParserException {
+    options.setOption("option", "parsed");
+    options.setFlag("flag");
+    schema = options.freeze();
+
+    assertEquals("value", schema.getOptionDefault(0));
+
+    ParseResult result = Parser.parseArgs(schema, "required x".split(" "));
+    assertEquals("value", result.getOption("option"));
+    assertFalse(result.getFlag("flag"));
+  }
+
+  @Test
+  public void testFreezeIsNotAffectedByLaterChanges() throws SimpleCliParserException {
+    options.addOption("later", null, false, "");
+
+    assertFalse(schema.optionExists("later"));
+  }
+
+  @Test
+  public void testWithListener() {
+    ParseMetrics metrics = new ParseMetrics();
+    Schema listened = schema.withResponseFiles(true).withListener(metrics);
+
+    assertNull(schema.getListener());
+    assertEquals(metrics, listened.getListener());
+    assertTrue(listened.isResponseFiles());
+    assertEquals(metrics, listened.withStackTraces(false).getListener());
+    assertEquals(listened, listened.withListener(metrics));
+    assertNull(listened.withListener(null).getListener());
+  }
+}
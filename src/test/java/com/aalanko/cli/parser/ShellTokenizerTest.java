@@ -0,0 +1,118 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+import com.aalanko.cli.parser.exceptions.UnterminatedQuoteException;
+
+public class ShellTokenizerTest {
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+
+  private static List<String> chars(String input) throws SimpleCliParserException {
+    return tokens(new CharSequenceTokenizer(input));
+  }
+
+  private static List<String> bytes(String input) throws SimpleCliParserException {
+    return tokens(new ByteBufferTokenizer(ByteBuffer.wrap(input.getBytes(UTF8))));
+  }
+
+  private static List<String> tokens(TokenSource source) throws SimpleCliParserException {
+    List<String> tokens = new ArrayList<String>();
+    while (source.next()) {
+      tokens.add(source.token());
+    }
+    return tokens;
+  }
+
+  private static void assertTokens(String input, String... expected) throws SimpleCliParserException {
+    assertEquals(Arrays.asList(expected), chars(input));
+    assertEquals(Arrays.asList(expected), bytes(input));
+  }
+
+  @Test
+  public void testWhitespace() throws SimpleCliParserException {
+    assertTokens("");
+    assertTokens("   \t\n ");
+    assertTokens("a", "a");
+    assertTokens("  a  b\tc\r\nd ", "a", "b", "c", "d");
+  }
+
+  @Test
+  public void testQuotes() throws SimpleCliParserException {
+    assertTokens("'a b' \"c d\"", "a b", "c d");
+    assertTokens("pre'mid'post", "premidpost");
+    assertTokens("'' \"\"", "", "");
+    assertTokens("'a \\\" b'", "a \\\" b");
+    assertTokens("\"it's\"", "it's");
+  }
+
+  @Test
+  public void testEscapes() throws SimpleCliParserException {
+    assertTokens("a\\ b", "a b");
+    assertTokens("\\'a\\'", "'a'");
+    assertTokens("\"a\\\"b\\\\c\\$d\\`e\\nf\"", "a\"b\\c$d`e\\nf");
+    assertTokens("a\\", "a\\");
+  }
+
+  @Test
+  public void testLineContinuation() throws SimpleCliParserException {
+    assertTokens("a \\\n b", "a", "b");
+    assertTokens("a\\\nb", "ab");
+    assertTokens("\"a\\\nb\"", "ab");
+  }
+
+  @Test
+  public void testUnicode() throws SimpleCliParserException {
+    assertTokens("h\u00e9llo '\u4e16\u754c' \"\ud83d\ude00\" \\\u00e9", "h\u00e9llo", "\u4e16\u754c", "\ud83d\ude00", "\u00e9");
+  }
+
+  @Test
+  public void testMalformedUtf8() throws SimpleCliParserException {
+    ByteBufferTokenizer tokenizer = new ByteBufferTokenizer(ByteBuffer.wrap(new byte[] { 'a', (byte) 0xff, 'b', ' ', (byte) 0xe4, (byte) 0xb8 }));
+
+    assertEquals(Arrays.asList("a\ufffdb", "\ufffd"), tokens(tokenizer));
+  }
+
+  @Test
+  public void testByteBufferPositionUnchanged() throws SimpleCliParserException {
+    ByteBuffer buffer = ByteBuffer.wrap("skip a b".getBytes(UTF8));
+    buffer.position(5);
+
+    assertEquals(Arrays.asList("a", "b"), tokens(new ByteBufferTokenizer(buffer)));
+    assertEquals(5, buffer.position());
+  }
+
+  @Test
+  public void testPlainTokensAreRanges() throws SimpleCliParserException {
+    String input = "first second";
+    CharSequenceTokenizer tokenizer = new CharSequenceTokenizer(input);
+
+    tokenizer.next();
+    assertSame(input, tokenizer.chars());
+    assertEquals(0, tokenizer.start());
+    assertEquals(5, tokenizer.end());
+    tokenizer.next();
+    assertSame(input, tokenizer.chars());
+    assertEquals(6, tokenizer.start());
+    assertEquals(12, tokenizer.end());
+  }
+
+  @Test(expected = UnterminatedQuoteException.class)
+  public void testUnterminatedSingleQuote() throws SimpleCliParserException {
+    chars("a 'b c");
+  }
+
+  @Test(expected = UnterminatedQuoteException.class)
+  public void testUnterminatedDoubleQuote() throws SimpleCliParserException {
+    bytes("a \"b\\\"");
+  }
+}
@@ -0,0 +1,112 @@
+package com.aalanko.cli.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ValueInternerTest {
+
+  @Test
+  public void testIntern() {
+    ValueInterner interner = new ValueInterner(16);
+    String first = interner.intern(new String("host1"));
+    assertSame(first, interner.intern(new String("host1")));
+    assertSame(first, interner.intern("xhost1x", 1, 6));
+    assertEquals("host2", interner.intern("host2", 0, 5));
+  }
+
+  @Test
+  public void testCapacity() {
+    assertEquals(1, new ValueInterner(1).getCapacity());
+    assertEquals(16, new ValueInterner(16).getCapacity());
+    assertEquals(32, new ValueInterner(17).getCapacity());
+  }
+
+  @Test
+  public void testBounded() {
+    ValueInterner interner = new ValueInterner(1);
+    String first = interner.intern(new String("a"));
+    interner.intern(new String("b"));
+    assertNotSame(first, interner.intern(new String("a")));
+  }
+
+  @Test
+  public void testHotValueSurvivesOneOffValues() {
+    ValueInterner interner = new ValueInterner(16);
+    String hot = interner.intern(new String("hot"));
+    assertSame(hot, interner.intern(new String("hot")));
+    for (int i = 0; i < 10000; i++) {
+      interner.intern("value" + i);
+    }
+    assertSame(hot, interner.intern(new String("hot")));
+  }
+
+  @Test
+  public void testMaxLength() {
+    ValueInterner interner = new ValueInterner(16, 3);
+    String first = interner.intern(new String("long"));
+    assertNotSame(first, interner.intern(new String("long")));
+    assertEquals("long", interner.intern("longer", 0, 4));
+  }
+
+  @Test
+  public void testClear() {
+    ValueInterner interner = new ValueInterner(16);
+    String first = interner.intern(new String("a"));
+    interner.clear();
+    assertNotSame(first, interner.intern(new String("a")));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testInvalidCapacity() {
+    new ValueInterner(0);
+  }
+
+  @Test
+  public void testParse() throws SimpleCliParserException {
+    Options options = new Options();
+    options.addOption("--host", null, false, "");
+    options.addOption("--queue", null, false, "");
+    Schema schema = options.freeze().withInterner(new ValueInterner(64)).withGnuSyntax(true);
+
+    ParseResult first = Parser.parseArgs(schema, "--host h1 --queue=q1 data");
+    ParseResult second = Parser.parseArgs(schema, "--host h1 --queue=q1 data");
+    assertEquals("h1", first.getOption("--host"));
+    assertSame(first.getOption("--host"), second.getOption("--host"));
+    assertSame(first.getOption("--queue"), second.getOption("--queue"));
+    assertSame(first.getDataList().get(0), second.getDataList().get(0));
+  }
+
+  @Test
+  public void testConcurrent() throws Exception {
+    ValueInterner interner = new ValueInterner(256);
+    ExecutorService threads = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<Future<?>>();
+      for (int t = 0; t < 4; t++) {
+        futures.add(threads.submit(() -> {
+          for (int i = 0; i < 100000; i++) {
+            String value = "v" + (i % 1000);
+            assertEquals(value, interner.intern(value));
+            assertEquals(value, interner.intern(value, 0, value.length()));
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      threads.shutdown();
+    }
+  }
+}
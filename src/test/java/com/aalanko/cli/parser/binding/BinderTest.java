@@ -0,0 +1,174 @@
+package com.aalanko.cli.parser.binding;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import com.aalanko.cli.parser.ParseContext;
+import com.aalanko.cli.parser.Parser;
+import com.aalanko.cli.parser.Schema;
+import com.aalanko.cli.parser.exceptions.MissingRequiredOptionException;
+import com.aalanko.cli.parser.exceptions.OptionNotFoundException;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class BinderTest {
+
+  static class Base {
+    @CliFlag(name = "--verbose")
+    boolean verbose;
+  }
+
+  static class Config extends Base {
+    @CliOption(name = "--name", required = true, description = "the name")
+    String name;
+    @CliOption(name = "--count")
+    int count = 3;
+    @CliOption(name = "--size")
+    Long size;
+    @CliOption(name = "--ratio")
+    double ratio;
+    @CliOption(name = "--timeout")
+    Duration timeout;
+    @CliOption(name = "--include")
+    List<String> includes;
+    @CliOption(name = "--port")
+    int[] ports;
+    @CliData
+    List<String> files;
+    String unbound = "kept";
+  }
+
+  static class Unsupported {
+    @CliOption(name = "--object")
+    Object object;
+  }
+
+  static class FinalField {
+    @CliFlag(name = "--flag")
+    final boolean flag = false;
+  }
+
+  static class OptionAndFlag {
+    @CliOption(name = "--value")
+    @CliFlag(name = "--flag")
+    Boolean value;
+  }
+
+  static class DataAndOption {
+    @CliData
+    @CliOption(name = "--file")
+    List<String> files;
+  }
+
+  @Test
+  public void testSchema() {
+    Schema schema = Binder.of(Config.class).getSchema();
+
+    assertEquals(7, schema.getOptionCount());
+    assertEquals(1, schema.getFlagCount());
+    assertTrue(schema.isOptionRequired(schema.optionIndex("--name")));
+    assertEquals("the name", schema.getOptionDescription(schema.optionIndex("--name")));
+    assertTrue(schema.isOptionRepeatable(schema.optionIndex("--port")));
+    assertSame(Binder.of(Config.class), Binder.of(Config.class));
+  }
+
+  @Test
+  public void testParse() throws SimpleCliParserException {
+    Config config = Binder.of(Config.class).parse(new String[] {
+        "--name", "app", "--size", "7", "--ratio", "0.25", "--timeout", "2s", "--verbose",
+        "--include", "a", "--include", "b", "--port", "80", "--port", "443", "file1", "file2" });
+
+    assertEquals("app", config.name);
+    assertEquals(3, config.count);
+    assertEquals(Long.valueOf(7), config.size);
+    assertEquals(0.25, config.ratio, 0.0);
+    assertEquals(Duration.ofSeconds(2), config.timeout);
+    assertTrue(config.verbose);
+    assertEquals(Arrays.asList("a", "b"), config.includes);
+    assertArrayEquals(new int[] { 80, 443 }, config.ports);
+    assertEquals(Arrays.asList("file1", "file2"), config.files);
+    assertEquals("kept", config.unbound);
+  }
+
+  @Test
+  public void testUnsetOptionsKeepValues() throws SimpleCliParserException {
+    Config config = Binder.of(Config.class).parse(new String[] { "--name", "app" });
+
+    assertEquals(3, config.count);
+    assertNull(config.size);
+    assertNull(config.includes);
+    assertFalse(config.verbose);
+  }
+
+  @Test
+  public void testBindExisting() throws SimpleCliParserException {
+    Binder<Config> binder = Binder.of(Config.class);
+    Config config = new Config();
+    config.count = 9;
+    binder.bind(Parser.parseArgs(binder.getSchema(), "--name x --count 4"), config);
+
+    assertEquals(4, config.count);
+    assertEquals("x", config.name);
+  }
+
+  @Test
+  public void testListsAreCopies() throws SimpleCliParserException {
+    Binder<Config> binder = Binder.of(Config.class);
+    ParseContext context = new ParseContext(binder.getSchema());
+    Config config = binder.bind(context.parse(new String[] { "--name", "a", "--include", "x", "file1" }));
+    context.parse(new String[] { "--name", "b", "--include", "y", "--include", "z", "file2", "file3" });
+
+    assertEquals(Arrays.asList("x"), config.includes);
+    assertEquals(Arrays.asList("file1"), config.files);
+  }
+
+  @Test
+  public void testOtherSettings() throws SimpleCliParserException {
+    Binder<Config> binder = Binder.of(Config.class);
+    Schema gnu = binder.getSchema().withGnuSyntax(true);
+    Config config = binder.bind(Parser.parseArgs(gnu, "--name=app --count=5 --verbose"));
+
+    assertEquals("app", config.name);
+    assertEquals(5, config.count);
+    assertTrue(config.verbose);
+  }
+
+  @Test(expected = MissingRequiredOptionException.class)
+  public void testRequired() throws SimpleCliParserException {
+    Binder.of(Config.class).parse(new String[0]);
+  }
+
+  @Test(expected = OptionNotFoundException.class)
+  public void testForeignResult() throws SimpleCliParserException {
+    Binder.of(Config.class).bind(Parser.parseArgs(Binder.of(Base.class).getSchema(), new String[0]));
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnsupportedType() {
+    Binder.of(Unsupported.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testFinalField() {
+    Binder.of(FinalField.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testOptionAndFlag() {
+    Binder.of(OptionAndFlag.class);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testDataAndOption() {
+    Binder.of(DataAndOption.class);
+  }
+}
@@ -0,0 +1,230 @@
+package com.aalanko.cli.parser.server;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.aalanko.cli.parser.OptionType;
+import com.aalanko.cli.parser.Options;
+import com.aalanko.cli.parser.exceptions.SimpleCliParserException;
+
+public class ArgvServerTest {
+  @Rule
+  public TemporaryFolder folder = new TemporaryFolder();
+
+  private ArgvServer server;
+  private Path serverFile;
+
+  @Before
+  public void setUp() throws SimpleCliParserException, IOException {
+    Options options = new Options();
+    options.addOption("--name", "world", false, "");
+    options.addOption("--status", "0", false, "", OptionType.INT);
+    options.addOption("--bytes", "0", false, "", OptionType.INT);
+    options.addFlag("--fail", "");
+    server = new ArgvServer(options.freeze().withResponseFiles(true), (result, directory, out, err) -> {
+      if (result.getFlag("--fail")) {
+        throw new IllegalStateException("failed");
+      }
+      out.print("hello " + result.getOption("--name"));
+      out.write(new byte[result.getInt("--bytes")], 0, result.getInt("--bytes"));
+      err.print(result.getDataList().size() + " " + directory);
+      return result.getInt("--status");
+    });
+    serverFile = folder.getRoot().toPath().resolve("server");
+    server.start(serverFile);
+  }
+
+  @After
+  public void tearDown() throws IOException {
+    server.close();
+  }
+
+  @Test
+  public void testRun() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = ArgvClient.run(serverFile, new String[] { "--name", "\u00e5sa", "--status", "7", "a", "b" }, out, err);
+
+    assertEquals(7, status);
+    assertEquals("hello \u00e5sa", new String(out.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals("2 " + Paths.get("").toAbsolutePath(), new String(err.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testParseError() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = ArgvClient.run(serverFile, new String[] { "--status", "x" }, out, err);
+
+    assertEquals(ArgvServer.STATUS_USAGE, status);
+    assertEquals(0, out.size());
+    assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("--status"));
+  }
+
+  @Test
+  public void testHandlerFailure() throws IOException {
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = ArgvClient.run(serverFile, new String[] { "--fail" }, new ByteArrayOutputStream(), err);
+
+    assertEquals(ArgvServer.STATUS_FAILED, status);
+    assertTrue(new String(err.toByteArray(), StandardCharsets.UTF_8).contains("failed"));
+  }
+
+  @Test
+  public void testConcurrentClients() throws Exception {
+    ExecutorService clients = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<String>> results = new ArrayList<Future<String>>();
+      for (int i = 0; i < 64; i++) {
+        String name = "n" + i;
+        results.add(clients.submit((Callable<String>) () -> {
+          ByteArrayOutputStream out = new ByteArrayOutputStream();
+          ArgvClient.run(serverFile, new String[] { "--name", name }, out, new ByteArrayOutputStream());
+          return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        }));
+      }
+      for (int i = 0; i < results.size(); i++) {
+        assertEquals("hello n" + i, results.get(i).get());
+      }
+    } finally {
+      clients.shutdown();
+    }
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testStartTwice() throws IOException {
+    server.start(folder.getRoot().toPath().resolve("other"));
+  }
+
+  @Test
+  public void testServerFile() throws IOException {
+    assertTrue(new String(Files.readAllBytes(serverFile), StandardCharsets.US_ASCII).startsWith(server.getPort() + " "));
+    if (FileSystems.getDefault().supportedFileAttributeViews().contains("posix")) {
+      assertEquals(PosixFilePermissions.fromString("rw-------"), Files.getPosixFilePermissions(serverFile));
+    }
+    server.close();
+    assertFalse(Files.exists(serverFile));
+  }
+
+  @Test(expected = IOException.class)
+  public void testWrongToken() throws IOException {
+    Path forged = folder.getRoot().toPath().resolve("forged");
+    Files.write(forged, (server.getPort() + " " + ArgvClient.hex(new byte[Protocol.TOKEN_LENGTH])).getBytes(StandardCharsets.US_ASCII));
+    ArgvClient.run(forged, new String[] { "--name", "x" }, new ByteArrayOutputStream(), new ByteArrayOutputStream());
+  }
+
+  @Test
+  public void testClientDirectory() throws IOException {
+    Path directory = folder.newFolder("client").toPath();
+    Files.write(directory.resolve("args"), "--name file a b c".getBytes(StandardCharsets.UTF_8));
+    String[] contents = new String(Files.readAllBytes(serverFile), StandardCharsets.US_ASCII).trim().split(" ");
+
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      Protocol.writeRequest(new DataOutputStream(socket.getOutputStream()), ArgvClient.unhex(contents[1]), directory.toString(), new String[] { "@args" });
+      DataInputStream in = new DataInputStream(socket.getInputStream());
+
+      assertEquals(0, in.readInt());
+      assertEquals("hello file", new String(Protocol.readBlock(in, Protocol.MAX_BLOCK), StandardCharsets.UTF_8));
+      assertEquals("3 " + directory, new String(Protocol.readBlock(in, Protocol.MAX_BLOCK), StandardCharsets.UTF_8));
+    }
+  }
+
+  @Test
+  public void testOutputTruncated() throws IOException {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+    ByteArrayOutputStream err = new ByteArrayOutputStream();
+    int status = ArgvClient.run(serverFile, new String[] { "--bytes", String.valueOf(Protocol.MAX_BLOCK + 100) }, out, err);
+
+    assertEquals(0, status);
+    assertEquals(ArgvServer.MAX_OUTPUT, out.size());
+    String message = new String(err.toByteArray(), StandardCharsets.UTF_8);
+    long dropped = "hello world".length() + Protocol.MAX_BLOCK + 100 - ArgvServer.MAX_OUTPUT;
+    assertTrue(message, message.endsWith("argv-server: standard output truncated, " + dropped + " bytes dropped\n"));
+  }
+
+  @Test(timeout = 5000)
+  public void testSlowTokenDisconnected() throws Exception {
+    try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+      DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+      out.writeInt(Protocol.TOKEN_LENGTH);
+      out.flush();
+      Thread dripper = new Thread(() -> {
+        try {
+          for (int i = 0; i < Protocol.TOKEN_LENGTH; i++) {
+            Thread.sleep(200);
+            out.write(0);
+            out.flush();
+          }
+        } catch (IOException | InterruptedException e) {
+          // disconnected
+        }
+      });
+      dripper.start();
+
+      long start = System.nanoTime();
+      try {
+        assertEquals(-1, socket.getInputStream().read());
+      } catch (IOException e) {
+        // reset instead of a clean close
+      }
+      assertTrue(System.nanoTime() - start < 3000000000L);
+      dripper.interrupt();
+      dripper.join();
+    }
+  }
+
+  @Test(expected = EOFException.class)
+  public void testTruncatedBlock() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeInt(Protocol.MAX_REQUEST);
+    out.write(new byte[10]);
+    Protocol.readBlock(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())), Protocol.MAX_REQUEST);
+  }
+
+  @Test(expected = IOException.class)
+  public void testRequestTooLarge() throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    Protocol.writeRequest(out, new byte[Protocol.TOKEN_LENGTH], "/", new String[0]);
+    byte[] request = bytes.toByteArray();
+    bytes.reset();
+    out.write(request, 0, request.length - 4);
+    out.writeInt(2);
+    out.writeInt(Protocol.MAX_REQUEST - 1);
+    out.write(new byte[Protocol.MAX_REQUEST - 1]);
+    out.writeInt(1);
+    out.write(0);
+    DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    Protocol.readToken(in);
+    Protocol.readRequest(in);
+  }
+}